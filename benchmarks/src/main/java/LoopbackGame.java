@@ -0,0 +1,119 @@
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+
+/**
+ * LoopbackGame class connects an engine end and a player end over a loopback
+ * socket, either with the original byte at a time streams or with ViewChannel.
+ * The player runs on its own thread and answers every view with 'F'.
+ *
+ * @author Yufan Zou
+ */
+public class LoopbackGame implements bench.LoopbackFixture {
+  private final char[][] view = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+
+  private Thread player;
+  private Closeable engineEnd;
+
+  // Engine end when using streams
+  private InputStream in;
+  private OutputStream out;
+
+  // Engine end when using ViewChannel
+  private ViewChannel channel;
+
+  @Override
+  public void open(String transport) throws IOException {
+    for (char[] row : view) {
+      java.util.Arrays.fill(row, ' ');
+    }
+
+    if (transport.equals("stream")) {
+      try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+        Socket playerSocket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+        Socket engineSocket = server.accept();
+        in = engineSocket.getInputStream();
+        out = engineSocket.getOutputStream();
+        engineEnd = engineSocket;
+        player = new Thread(() -> playStream(playerSocket));
+      }
+    } else if (transport.equals("channel")) {
+      try (ServerSocketChannel server = ServerSocketChannel.open()) {
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        ViewChannel playerChannel = new ViewChannel(SocketChannel.open(server.getLocalAddress()));
+        channel = new ViewChannel(server.accept());
+        engineEnd = channel;
+        player = new Thread(() -> playChannel(playerChannel));
+      }
+    } else {
+      throw new IllegalArgumentException("Unknown transport " + transport);
+    }
+
+    player.setDaemon(true);
+    player.start();
+  }
+
+  @Override
+  public int roundTrip() throws IOException {
+    if (channel != null) {
+      channel.writeView(view);
+      return channel.readAction();
+    }
+
+    // As Step used to: every view byte written on its own
+    for (int i = 0; i < GameEngine.VIEW_SIZE; ++i) {
+      for (int j = 0; j < GameEngine.VIEW_SIZE; ++j) {
+        if (i != 2 || j != 2) {
+          out.write(view[i][j]);
+        }
+      }
+    }
+    out.flush();
+    return in.read();
+  }
+
+  @Override
+  public void close() throws IOException {
+    engineEnd.close();
+  }
+
+  /**
+   * Answers views read a byte at a time, as Agent used to.
+   *
+   * @param socket
+   *          player end of the connection
+   */
+  private static void playStream(Socket socket) {
+    try (Socket s = socket) {
+      InputStream in = s.getInputStream();
+      OutputStream out = s.getOutputStream();
+      while (true) {
+        for (int n = 0; n < ViewChannel.FRAME_SIZE; ++n) {
+          if (in.read() == -1) {
+            return;
+          }
+        }
+        out.write('F');
+      }
+    } catch (IOException e) {
+      // engine end closed
+    }
+  }
+
+  /**
+   * Answers views read as whole frames, as Agent does now.
+   *
+   * @param channel
+   *          player end of the connection
+   */
+  private static void playChannel(ViewChannel channel) {
+    char[][] view = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+    try (ViewChannel c = channel) {
+      while (c.readView(view)) {
+        c.writeAction('F');
+      }
+    } catch (IOException e) {
+      // engine end closed
+    }
+  }
+}
@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * RecordedGame class records one game of the agent on a map and keeps the
+ * agent's internal state from the middle of that game as a benchmark fixture.
+ *
+ * @author Yufan Zou
+ */
+public class RecordedGame implements bench.GameFixture {
+  final static int MAX_MOVES = 10000;
+
+  private List<char[][]> views;
+  private State state;
+  private char[][] middleView;
+  private Coordinate goal;
+
+  @Override
+  public void record(String mapName) throws IOException {
+    GameEngine engine = new GameEngine();
+    engine.reset(GameEngine.readMap(mapName));
+    MoveGenerator moveGenerator = new MoveGenerator();
+
+    views = new ArrayList<>();
+    List<Character> actions = new ArrayList<>();
+    while (!engine.isOver() && engine.getNumMoves() < MAX_MOVES) {
+      char[][] view = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+      engine.observe(view);
+      char action = moveGenerator.makeMove(view);
+      views.add(view);
+      actions.add(action);
+      engine.apply(action);
+    }
+
+    // Rebuild the state up to the middle turn the same way MoveGenerator does
+    state = new State();
+    int middle = views.size() / 2;
+    for (int i = 0; i <= middle; ++i) {
+      state.updateViaView(views.get(i));
+      if (i < middle && actions.get(i) != 0) {
+        state.updateViaMove(actions.get(i));
+      }
+    }
+    middleView = views.get(middle);
+    goal = state.treasureLocated() ? state.getTreasureCoordinate() : new Coordinate(0, 0);
+  }
+
+  @Override
+  public int aStarSearch() {
+    AStarSearch a = new AStarSearch(state.getMap(), state.getPlayerCoordinate(), goal);
+    a.search(state.haveKey(), state.haveAxe());
+    return a.returnPath().size();
+  }
+
+  @Override
+  public int araStarSearch() {
+    MoveDeadline deadline = new MoveDeadline(1);
+    deadline.start();
+    ARAStarSearch a = new ARAStarSearch(state.getMap(), state.getPlayerCoordinate(), goal,
+        ARAStarSearch.DEFAULT_EPSILON);
+    a.setDeadline(deadline);
+    a.search(state.haveKey(), state.haveAxe());
+    return a.returnPath().size();
+  }
+
+  @Override
+  public int pathHome() {
+    return state.getPathHome().size();
+  }
+
+  @Override
+  public boolean floodFillCanReach() {
+    FloodFillSearch f = new FloodFillSearch(state.getMap(), state.getPlayerCoordinate(), goal);
+    return f.canReach(state.haveKey(), state.haveAxe());
+  }
+
+  @Override
+  public Object spiralSeekGetTile() {
+    SpiralSeek s = new SpiralSeek(state.getMap(), state.getPlayerCoordinate());
+    return s.getTile(state.haveKey(), state.haveAxe());
+  }
+
+  @Override
+  public void updateViaView() {
+    state.updateViaView(middleView);
+  }
+
+  @Override
+  public boolean testWithStone() {
+    WaterCrossingSearch s = new WaterCrossingSearch(state.getMap(), state.getPlayerCoordinate(), goal);
+    return s.search(state.haveKey(), state.haveAxe(), state.getNumSteppingStones(), state.haveRaft(),
+        state.onRaft());
+  }
+
+  @Override
+  public int replayGame() {
+    MoveGenerator moveGenerator = new MoveGenerator();
+    int numMoves = 0;
+    for (char[][] view : views) {
+      if (moveGenerator.makeMove(view) != 0) {
+        ++numMoves;
+      }
+    }
+    return numMoves;
+  }
+}
@@ -0,0 +1,82 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * SimulatorGames class plays many games on the sample maps with a fixed stream
+ * of pseudo-random actions, either with a GameEngine per game or with one
+ * BatchSimulator.
+ *
+ * @author Yufan Zou
+ */
+public class SimulatorGames implements bench.SimulatorFixture {
+  // Actions drawn from, weighted towards moving forward
+  private final static String ACTIONS = "LRFFFFFFCU";
+
+  private List<char[][]> maps;
+  private int numGames;
+  private Random random;
+
+  private GameEngine[] engines;
+  private char[][] view;
+
+  private BatchSimulator simulator;
+  private byte[] views;
+  private byte[] actions;
+
+  @Override
+  public void setUp(String mapsDir, int numGames, String simulatorName) throws IOException {
+    maps = new ArrayList<>();
+    for (File mapFile : BatchRunner.findMaps(Collections.singletonList(mapsDir))) {
+      maps.add(GameEngine.readMap(mapFile.getPath()));
+    }
+    this.numGames = numGames;
+    random = new Random(42);
+    actions = new byte[numGames];
+
+    if (simulatorName.equals("engines")) {
+      engines = new GameEngine[numGames];
+      for (int g = 0; g < numGames; ++g) {
+        engines[g] = new GameEngine();
+        engines[g].reset(maps.get(g % maps.size()));
+      }
+      view = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+    } else if (simulatorName.equals("batch")) {
+      simulator = new BatchSimulator(maps, numGames);
+      views = new byte[numGames * BatchSimulator.VIEW_BYTES];
+    } else {
+      throw new IllegalArgumentException("Unknown simulator " + simulatorName);
+    }
+  }
+
+  @Override
+  public int stepAll() {
+    for (int g = 0; g < numGames; ++g) {
+      actions[g] = (byte) ACTIONS.charAt(random.nextInt(ACTIONS.length()));
+    }
+
+    int checksum = 0;
+    if (simulator != null) {
+      simulator.observe(views);
+      for (byte tile : views) {
+        checksum += tile;
+      }
+      simulator.step(actions, null);
+      simulator.resetFinished();
+      return checksum;
+    }
+
+    for (int g = 0; g < numGames; ++g) {
+      engines[g].observe(view);
+      for (char[] viewRow : view) {
+        for (char tile : viewRow) {
+          checksum += tile;
+        }
+      }
+      engines[g].apply((char) actions[g]);
+      if (engines[g].isOver()) {
+        engines[g].reset(maps.get(g % maps.size()));
+      }
+    }
+    return checksum;
+  }
+}
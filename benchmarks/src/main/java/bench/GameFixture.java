@@ -0,0 +1,83 @@
+package bench;
+
+import java.io.IOException;
+
+/**
+ * GameFixture is a recorded game on one map, with the agent's internal state
+ * captured half way through it. The agent's classes live in the default package,
+ * which code in a named package (as JMH needs) cannot refer to, so the fixture
+ * is implemented in the default package and reached through this interface.
+ *
+ * @author Yufan Zou
+ */
+public interface GameFixture {
+  /**
+   * Plays the map once with the agent, recording every view and action, and
+   * rebuilds the agent's internal state at the middle of the game.
+   *
+   * @param mapName
+   *          path of the map file
+   * @throws IOException
+   *           if the map cannot be read
+   */
+  void record(String mapName) throws IOException;
+
+  /**
+   * Runs A* from the player to the treasure (or the origin if the treasure has
+   * not been seen yet).
+   *
+   * @return length of the path found
+   */
+  int aStarSearch();
+
+  /**
+   * Runs ARA* to the same goal as aStarSearch, stopping after its first,
+   * weighted round as it would once the move's deadline has passed.
+   *
+   * @return length of the path found
+   */
+  int araStarSearch();
+
+  /**
+   * Reads the way from the player to the origin off the home distance field,
+   * as the agent does once it has the treasure.
+   *
+   * @return length of the path found
+   */
+  int pathHome();
+
+  /**
+   * Runs the flood fill reachability test from the player to the same goal as
+   * aStarSearch.
+   *
+   * @return boolean value of whether the goal is reachable
+   */
+  boolean floodFillCanReach();
+
+  /**
+   * Runs spiral seek from the player.
+   *
+   * @return the tile found, as returned by SpiralSeek
+   */
+  Object spiralSeekGetTile();
+
+  /**
+   * Applies the view seen at the middle of the game to the recorded state again.
+   */
+  void updateViaView();
+
+  /**
+   * Runs the water crossing search behind MoveGenerator.testWithStone from the
+   * player to the same goal as aStarSearch, with the stones and raft held.
+   *
+   * @return boolean value of whether the goal can be reached
+   */
+  boolean testWithStone();
+
+  /**
+   * Feeds every recorded view to a fresh MoveGenerator, one makeMove per turn.
+   *
+   * @return number of moves made
+   */
+  int replayGame();
+}
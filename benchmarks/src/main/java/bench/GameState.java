@@ -0,0 +1,28 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * GameState holds the recorded game for one map of the maps directory. The
+ * directory is taken from the bench.maps system property, "maps" by default,
+ * so benchmarks are normally run from the repository root.
+ *
+ * @author Yufan Zou
+ */
+@State(Scope.Thread)
+public class GameState {
+  @Param({ "s0.in", "s1.in", "s2.in", "s3.in", "s4.in", "s5.in", "s6.in", "s7.in", "s8.in", "s9.in" })
+  public String map;
+
+  public GameFixture game;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, ReflectiveOperationException {
+    String mapsDir = System.getProperty("bench.maps", "maps");
+    game = (GameFixture) Class.forName("RecordedGame").getDeclaredConstructor().newInstance();
+    game.record(new File(mapsDir, map).getPath());
+  }
+}
@@ -0,0 +1,41 @@
+package bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark of the round trip of one move between Step and Agent over a
+ * loopback socket: one view sent by the engine, one action sent back.
+ *
+ * @author Yufan Zou
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LoopbackBenchmark {
+  @Param({ "stream", "channel" })
+  public String transport;
+
+  private LoopbackFixture loopback;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, ReflectiveOperationException {
+    loopback = (LoopbackFixture) Class.forName("LoopbackGame").getDeclaredConstructor().newInstance();
+    loopback.open(transport);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    loopback.close();
+  }
+
+  @Benchmark
+  public int roundTrip() throws IOException {
+    return loopback.roundTrip();
+  }
+}
@@ -0,0 +1,40 @@
+package bench;
+
+import java.io.IOException;
+
+/**
+ * LoopbackFixture is an engine and a player talking over a loopback socket, the
+ * player answering every view with an action straight away. Like GameFixture it
+ * is implemented in the default package, next to the agent's classes.
+ *
+ * @author Yufan Zou
+ */
+public interface LoopbackFixture {
+  /**
+   * Connects the engine and the player.
+   *
+   * @param transport
+   *          "stream" for the original byte at a time socket streams, "channel"
+   *          for the framed ViewChannel protocol
+   * @throws IOException
+   *           if the loopback connection cannot be made
+   */
+  void open(String transport) throws IOException;
+
+  /**
+   * Sends one view from the engine and waits for the player's action.
+   *
+   * @return the action received
+   * @throws IOException
+   *           if the connection is lost
+   */
+  int roundTrip() throws IOException;
+
+  /**
+   * Closes both ends of the connection.
+   *
+   * @throws IOException
+   *           if the connection cannot be closed
+   */
+  void close() throws IOException;
+}
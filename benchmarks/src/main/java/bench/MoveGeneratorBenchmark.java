@@ -0,0 +1,23 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * End to end benchmark of MoveGenerator.makeMove. One operation replays a whole
+ * recorded game into a fresh MoveGenerator.
+ *
+ * @author Yufan Zou
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class MoveGeneratorBenchmark {
+  @Benchmark
+  public int makeMove(GameState s) {
+    return s.game.replayGame();
+  }
+}
@@ -0,0 +1,48 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks of the searches MoveGenerator runs when deciding a move, each on
+ * the state recorded half way through a game on every map.
+ *
+ * @author Yufan Zou
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+  @Benchmark
+  public int aStarSearch(GameState s) {
+    return s.game.aStarSearch();
+  }
+
+  @Benchmark
+  public int araStarSearch(GameState s) {
+    return s.game.araStarSearch();
+  }
+
+  @Benchmark
+  public int pathHome(GameState s) {
+    return s.game.pathHome();
+  }
+
+  @Benchmark
+  public boolean floodFillCanReach(GameState s) {
+    return s.game.floodFillCanReach();
+  }
+
+  @Benchmark
+  public Object spiralSeekGetTile(GameState s) {
+    return s.game.spiralSeekGetTile();
+  }
+
+  @Benchmark
+  public boolean testWithStone(GameState s) {
+    return s.game.testWithStone();
+  }
+}
@@ -0,0 +1,39 @@
+package bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark of stepping many games at once, one observation and one action per
+ * game, with a GameEngine per game against one BatchSimulator.
+ *
+ * @author Yufan Zou
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SimulatorBenchmark {
+  @Param({ "1000" })
+  public int numGames;
+
+  @Param({ "engines", "batch" })
+  public String simulator;
+
+  private SimulatorFixture games;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, ReflectiveOperationException {
+    games = (SimulatorFixture) Class.forName("SimulatorGames").getDeclaredConstructor().newInstance();
+    games.setUp(System.getProperty("bench.maps", "maps"), numGames, simulator);
+  }
+
+  @Benchmark
+  public int stepAll() {
+    return games.stepAll();
+  }
+}
@@ -0,0 +1,35 @@
+package bench;
+
+import java.io.IOException;
+
+/**
+ * SimulatorFixture is a set of games on the sample maps driven by a fixed,
+ * pseudo-random stream of actions, played either by one GameEngine per game or
+ * by one BatchSimulator for them all. Like GameFixture it is implemented in the
+ * default package, next to the agent's classes.
+ *
+ * @author Yufan Zou
+ */
+public interface SimulatorFixture {
+  /**
+   * Starts the games.
+   *
+   * @param mapsDir
+   *          directory of the maps to play, game i on map i modulo their number
+   * @param numGames
+   *          number of games played side by side
+   * @param simulator
+   *          "engines" for a GameEngine per game, "batch" for a BatchSimulator
+   * @throws IOException
+   *           if the maps cannot be read
+   */
+  void setUp(String mapsDir, int numGames, String simulator) throws IOException;
+
+  /**
+   * Observes every game, applies the next action to each and starts again any
+   * game that ended.
+   *
+   * @return a checksum of the observations
+   */
+  int stepAll();
+}
@@ -0,0 +1,22 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark of folding a 5*5 view into the internal map.
+ *
+ * @author Yufan Zou
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateBenchmark {
+  @Benchmark
+  public void updateViaView(GameState s) {
+    s.game.updateViaView();
+  }
+}
@@ -0,0 +1,349 @@
+import java.util.*;
+
+/**
+ * ARAStarSearch class is an anytime version of AStarSearch. It first finds a
+ * path with a weighted heuristic, which is quick but may be up to epsilon
+ * times longer than the shortest, then lowers epsilon and repairs the search
+ * it already has, rather than starting again, for as long as the move's
+ * deadline allows. Each round proves a tighter bound on how far the path can
+ * be from the shortest, down to 1 when it is the shortest.
+ *
+ * @author Yufan Zou
+ * @see "Likhachev, Gordon and Thrun, ARA*: Anytime A* with Provable Bounds on
+ *      Sub-Optimality (NIPS 2003)"
+ */
+public class ARAStarSearch {
+  // Weight of the heuristic in the first round, and how much each round lowers it
+  final static double DEFAULT_EPSILON = 3.0;
+  final static double EPSILON_STEP = 0.5;
+
+  private final static int INFINITY_COST = 9999999;
+
+  private Coordinate start, goal;
+  private Map<Coordinate, Character> map;
+  private Map<Coordinate, Coordinate> origin;
+  private Map<Coordinate, Integer> gScore;
+
+  private double epsilon;
+  private double bound;
+  private int numRounds;
+  private int nodesExpanded;
+
+  // Tiles waiting to be expanded this round, tiles expanded this round, and
+  // tiles improved after being expanded that wait for the next round
+  private PriorityQueue<Entry> openQueue;
+  private Set<Coordinate> openSet;
+  private Set<Coordinate> closedSet;
+  private Set<Coordinate> inconsSet;
+
+  // Stops rounds after the first once passed, null to go on until the path is
+  // the shortest
+  private MoveDeadline deadline;
+
+  /**
+   * A tile in the open queue with the key it was queued with. Entries go stale
+   * when the tile is expanded or queued again with a better score.
+   */
+  private static class Entry {
+    private final Coordinate tile;
+    private final int g;
+    private final double key;
+
+    /**
+     * Entry class constructor.
+     *
+     * @param tile
+     *          the tile queued
+     * @param g
+     *          cost of the path to the tile when queued
+     * @param key
+     *          priority of the tile, lower first
+     */
+    Entry(Coordinate tile, int g, double key) {
+      this.tile = tile;
+      this.g = g;
+      this.key = key;
+    }
+  }
+
+  /**
+   * ARAStarSearch class constructor.
+   *
+   * @param map
+   *          internal view of the map
+   * @param start
+   *          starting coordinate
+   * @param goal
+   *          goal coordinate
+   * @param epsilon
+   *          weight of the heuristic in the first round, at least 1
+   */
+  public ARAStarSearch(Map<Coordinate, Character> map, Coordinate start, Coordinate goal, double epsilon) {
+    if (epsilon < 1) {
+      throw new IllegalArgumentException("Epsilon must be at least 1");
+    }
+
+    this.map = map;
+    this.start = start;
+    this.goal = goal;
+    this.epsilon = epsilon;
+    this.origin = new HashMap<>();
+    this.gScore = new HashMap<>();
+    this.bound = Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Lets the search stop after its first round once the move's deadline has
+   * passed, keeping the best path found so far.
+   *
+   * @param deadline
+   *          deadline of the move being planned, or null for none
+   */
+  public void setDeadline(MoveDeadline deadline) {
+    this.deadline = deadline;
+  }
+
+  /**
+   * Searches for a path, improving it round by round until it is the shortest
+   * or the deadline passes. The first round always runs to the end.
+   *
+   * @param hasKey
+   *          allows player to pass through doors and look beyond if we have key
+   * @param hasAxe
+   *          allows player to pass through trees and look beyond if we have axe
+   */
+  public void search(boolean hasKey, boolean hasAxe) {
+    ARAStarSearchEvent event = new ARAStarSearchEvent();
+    event.begin();
+    double firstEpsilon = epsilon;
+
+    openQueue = new PriorityQueue<>(10, (one, two) -> one.key != two.key ? Double.compare(one.key, two.key)
+        : Integer.compare(two.g, one.g));
+    openSet = new HashSet<>();
+    closedSet = new HashSet<>();
+    inconsSet = new HashSet<>();
+
+    gScore.put(start, 0);
+    openSet.add(start);
+    openQueue.add(new Entry(start, 0, getKey(start, 0)));
+
+    improvePath(hasKey, hasAxe, false);
+    ++numRounds;
+
+    if (getGScore(goal) != INFINITY_COST) {
+      bound = computeBound();
+      while (bound > 1 && (deadline == null || !deadline.isExpired())) {
+        epsilon = Math.max(1.0, epsilon - EPSILON_STEP);
+
+        // Tiles improved last round are expanded again, everything under the new keys
+        openSet.addAll(inconsSet);
+        inconsSet.clear();
+        closedSet.clear();
+        openQueue.clear();
+        for (Coordinate tile : openSet) {
+          openQueue.add(new Entry(tile, getGScore(tile), getKey(tile, getGScore(tile))));
+        }
+
+        if (!improvePath(hasKey, hasAxe, true)) {
+          deadline.cutShort();
+          break;
+        }
+        ++numRounds;
+        bound = computeBound();
+      }
+    }
+
+    if (event.shouldCommit()) {
+      event.startX = start.getX();
+      event.startY = start.getY();
+      event.goalX = goal.getX();
+      event.goalY = goal.getY();
+      event.hasKey = hasKey;
+      event.hasAxe = hasAxe;
+      event.found = getGScore(goal) != INFINITY_COST;
+      event.firstEpsilon = firstEpsilon;
+      event.bound = bound;
+      event.numRounds = numRounds;
+      event.nodesExpanded = nodesExpanded;
+      event.commit();
+    }
+  }
+
+  /**
+   * Expands tiles in key order until none left could lead to a better path to
+   * the goal under the current epsilon.
+   *
+   * @param hasKey
+   *          whether doors can be passed
+   * @param hasAxe
+   *          whether trees can be passed
+   * @param stoppable
+   *          whether to stop when the deadline passes
+   * @return boolean value of whether the round finished, false if the deadline
+   *         stopped it
+   */
+  private boolean improvePath(boolean hasKey, boolean hasAxe, boolean stoppable) {
+    int roundNodes = 0;
+
+    while (!openQueue.isEmpty()) {
+      Entry entry = openQueue.peek();
+      if (!openSet.contains(entry.tile) || entry.g != getGScore(entry.tile)) {
+        openQueue.remove(); // stale
+        continue;
+      }
+      if (getGScore(goal) <= entry.key) {
+        return true;
+      }
+      if (stoppable && deadline != null && ++roundNodes % MoveDeadline.CHECK_INTERVAL == 0
+          && deadline.isExpired()) {
+        return false;
+      }
+
+      openQueue.remove();
+      Coordinate currTile = entry.tile;
+      openSet.remove(currTile);
+      closedSet.add(currTile);
+      ++nodesExpanded;
+
+      for (int i = 0; i < 4; i++) {
+        int neighbourX = currTile.getX();
+        int neighbourY = currTile.getY();
+
+        if (i == 0) {
+          neighbourX++;
+        } else if (i == 1) {
+          neighbourX--;
+        } else if (i == 2) {
+          neighbourY++;
+        } else {
+          neighbourY--;
+        }
+
+        Coordinate neighbour = new Coordinate(neighbourX, neighbourY);
+        Character tile = map.get(neighbour);
+        if (tile == null || !State.isTilePassable(tile, hasKey, hasAxe)) {
+          continue;
+        }
+
+        int tentative_gScore = entry.g + 1;
+        if (tentative_gScore >= getGScore(neighbour)) {
+          continue;
+        }
+
+        origin.put(neighbour, currTile);
+        gScore.put(neighbour, tentative_gScore);
+        if (closedSet.contains(neighbour)) {
+          inconsSet.add(neighbour);
+        } else {
+          openSet.add(neighbour);
+          openQueue.add(new Entry(neighbour, tentative_gScore, getKey(neighbour, tentative_gScore)));
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Works out how far the path found can be from the shortest: its length over
+   * the smallest unweighted estimate of any tile still waiting to be expanded.
+   *
+   * @return the bound, 1 if the path is the shortest
+   */
+  private double computeBound() {
+    int minEstimate = INFINITY_COST;
+    for (Coordinate tile : openSet) {
+      minEstimate = Math.min(minEstimate, getGScore(tile) + getManhattanDistance(tile, goal));
+    }
+    for (Coordinate tile : inconsSet) {
+      minEstimate = Math.min(minEstimate, getGScore(tile) + getManhattanDistance(tile, goal));
+    }
+
+    if (minEstimate >= getGScore(goal)) {
+      return 1.0;
+    }
+    return Math.min(epsilon, (double) getGScore(goal) / minEstimate);
+  }
+
+  /**
+   * Returns the priority of a tile under the current epsilon
+   *
+   * @param tile
+   *          tile that we are looking at
+   * @param g
+   *          cost of the path to the tile
+   * @return the key, lower is expanded first
+   */
+  private double getKey(Coordinate tile, int g) {
+    return g + epsilon * getManhattanDistance(tile, goal);
+  }
+
+  /**
+   * Returns the cost of the best path found so far to a tile
+   *
+   * @param tile
+   *          tile that we are looking at
+   * @return cost of the path, or infinity if there is none yet
+   */
+  private int getGScore(Coordinate tile) {
+    return gScore.getOrDefault(tile, INFINITY_COST);
+  }
+
+  /**
+   * Returns the Manhattan distance between the two points
+   *
+   * @param start
+   *          starting point
+   * @param goal
+   *          goal that we want to reach
+   * @return returns the distance as an int
+   */
+  private static int getManhattanDistance(Coordinate start, Coordinate goal) {
+    return Math.abs(start.getX() - goal.getX()) + Math.abs(start.getY() - goal.getY());
+  }
+
+  /**
+   * Returns how far the path found can be from the shortest, e.g. 1.5 means at
+   * most half as long again
+   *
+   * @return the bound, 1 if the path is the shortest, infinity if there is no
+   *         path
+   */
+  public double getBound() {
+    return bound;
+  }
+
+  /**
+   * Returns the number of rounds the last search finished
+   *
+   * @return number of rounds
+   */
+  public int getNumRounds() {
+    return numRounds;
+  }
+
+  /**
+   * Returns the number of nodes the last search expanded, over all rounds
+   *
+   * @return number of nodes expanded
+   */
+  public int getNodesExpanded() {
+    return nodesExpanded;
+  }
+
+  /**
+   * Returns the best path found from the goal back to (but not including) the
+   * start
+   *
+   * @return returns found path as a linked list from one node to another
+   */
+  public LinkedList<Coordinate> returnPath() {
+    LinkedList<Coordinate> sequence = new LinkedList<>();
+
+    for (Coordinate u = goal; origin.get(u) != null; u = origin.get(u)) {
+      sequence.add(u);
+    }
+
+    return sequence;
+  }
+}
@@ -0,0 +1,46 @@
+import jdk.jfr.*;
+
+/**
+ * ARAStarSearchEvent is the Java Flight Recorder event of one
+ * ARAStarSearch.search, with the bound on the path length it proved and how
+ * many rounds it got through before the deadline.
+ *
+ * @author Yufan Zou
+ */
+@Name("treasurehunt.ARAStarSearch")
+@Label("ARA* Search")
+@Category({ "Treasure Hunt", "Planner" })
+public class ARAStarSearchEvent extends Event {
+  @Label("Start X")
+  int startX;
+
+  @Label("Start Y")
+  int startY;
+
+  @Label("Goal X")
+  int goalX;
+
+  @Label("Goal Y")
+  int goalY;
+
+  @Label("Has Key")
+  boolean hasKey;
+
+  @Label("Has Axe")
+  boolean hasAxe;
+
+  @Label("Path Found")
+  boolean found;
+
+  @Label("First Epsilon")
+  double firstEpsilon;
+
+  @Label("Bound")
+  double bound;
+
+  @Label("Rounds")
+  int numRounds;
+
+  @Label("Nodes Expanded")
+  int nodesExpanded;
+}
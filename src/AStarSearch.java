@@ -16,6 +16,13 @@ public class AStarSearch {
   private Map<Coordinate, Integer> fScore;
 
   private boolean searchFinished;
+  private int nodesExpanded;
+
+  // Stops the search early, null to always search to the end
+  private MoveDeadline deadline;
+  private boolean complete;
+  // Where the found path ends, the goal unless the search was cut short
+  private Coordinate pathEnd;
 
   private final int INFINITY_COST = 9999999;
 
@@ -40,6 +47,27 @@ public class AStarSearch {
     this.fScore = new HashMap<>();
 
     this.searchFinished = false;
+    this.pathEnd = goal;
+  }
+
+  /**
+   * Lets the search be cut short once the move's deadline has passed, in which
+   * case returnPath gives the way to the expanded tile nearest the goal.
+   *
+   * @param deadline
+   *          deadline of the move being planned, or null for none
+   */
+  public void setDeadline(MoveDeadline deadline) {
+    this.deadline = deadline;
+  }
+
+  /**
+   * Indicates if the last search ran to the end rather than being cut short
+   *
+   * @return boolean value of if the search is complete
+   */
+  public boolean isComplete() {
+    return complete;
   }
 
   /**
@@ -70,34 +98,43 @@ public class AStarSearch {
    *          allows player to pass through trees and look beyond if we have axe
    */
   public void search(boolean hasKey, boolean hasAxe) {
+    AStarSearchEvent event = new AStarSearchEvent();
+    event.begin();
+
     sortViaFScore fss = new sortViaFScore();
     PriorityQueue<Coordinate> openSet = new PriorityQueue<>(10, fss);
 
     Set<Coordinate> closedSet = new HashSet<>();
 
-    // initially set every grid to infinity cost
-    int y = State.MAX_SIZE;
-    while (y >= -State.MAX_SIZE) {
-      int x = -State.MAX_SIZE;
-      while (x <= State.MAX_SIZE) {
-        gScore.put(new Coordinate(x, y), INFINITY_COST);
-        fScore.put(new Coordinate(x, y), INFINITY_COST);
-        ++x;
-      }
-      --y;
-    }
-
+    // every tile not scored yet costs infinity, see getGScore
     gScore.put(start, 0);
 
     fScore.put(start, getManhattanDistance(start, goal));
     openSet.add(start); // add start to priority queue
+    Coordinate closestTile = start;
 
     while (!openSet.isEmpty()) {
       Coordinate currTile = openSet.remove();
+      ++nodesExpanded;
 
       // Check if current tile is the goal tile
       if (currTile.equals(goal)) {
         searchFinished = true;
+        complete = true;
+        commitEvent(event, hasKey, hasAxe, true);
+        return;
+      }
+
+      if (getManhattanDistance(currTile, goal) < getManhattanDistance(closestTile, goal)) {
+        closestTile = currTile;
+      }
+      // Out of time, head for the nearest tile so far once there is one to head for
+      if (deadline != null && nodesExpanded % MoveDeadline.CHECK_INTERVAL == 0 && closestTile != start
+          && deadline.isExpired()) {
+        deadline.cutShort();
+        pathEnd = closestTile;
+        searchFinished = true;
+        commitEvent(event, hasKey, hasAxe, false);
         return;
       }
 
@@ -137,7 +174,7 @@ public class AStarSearch {
         int tentative_gScore = gScore.get(currTile) + 1;
 
         // ignore if not a shorter path
-        if (tentative_gScore >= gScore.get(neighbour)) {
+        if (tentative_gScore >= getGScore(neighbour)) {
           continue;
         }
 
@@ -153,6 +190,47 @@ public class AStarSearch {
 
     // Failed search, no path
     searchFinished = true;
+    complete = true;
+    commitEvent(event, hasKey, hasAxe, false);
+  }
+
+  /**
+   * Records a finished search with the flight recorder, if it is recording.
+   *
+   * @param event
+   *          event begun when the search started
+   * @param hasKey
+   *          whether the search could pass doors
+   * @param hasAxe
+   *          whether the search could pass trees
+   * @param found
+   *          whether a path to the goal was found
+   */
+  private void commitEvent(AStarSearchEvent event, boolean hasKey, boolean hasAxe, boolean found) {
+    if (event.shouldCommit()) {
+      event.startX = start.getX();
+      event.startY = start.getY();
+      event.goalX = goal.getX();
+      event.goalY = goal.getY();
+      event.hasKey = hasKey;
+      event.hasAxe = hasAxe;
+      event.found = found;
+      event.nodesExpanded = nodesExpanded;
+      event.commit();
+    }
+  }
+
+  /**
+   * Returns the cost of the best path found so far to a tile. Scores are only
+   * stored once a path is found, rather than setting every tile of the map to
+   * infinity before each search.
+   *
+   * @param tile
+   *          tile that we are looking at
+   * @return cost of the path, or infinity if there is none yet
+   */
+  private int getGScore(Coordinate tile) {
+    return gScore.getOrDefault(tile, INFINITY_COST);
   }
 
   /**
@@ -171,16 +249,26 @@ public class AStarSearch {
     return absDistance;
   }
 
+  /**
+   * Returns the number of nodes the last search expanded
+   *
+   * @return number of nodes expanded
+   */
+  public int getNodesExpanded() {
+    return nodesExpanded;
+  }
+
   /**
    * Returns the found path that is the shortest distance we found between the two
-   * points
+   * points, or if the search was cut short the path to the tile found nearest
+   * the goal
    * 
    * @return returns found path as a linked list from one node to another
    */
   public LinkedList<Coordinate> returnPath() {
     LinkedList<Coordinate> sequence = new LinkedList<>();
 
-    for (Coordinate u = goal; origin.get(u) != null; u = origin.get(u)) {
+    for (Coordinate u = pathEnd; origin.get(u) != null; u = origin.get(u)) {
       sequence.add(u);
     }
 
@@ -0,0 +1,37 @@
+import jdk.jfr.*;
+
+/**
+ * AStarSearchEvent is the Java Flight Recorder event of one
+ * AStarSearch.search, so a recording shows which searches a slow game spent
+ * its time in.
+ *
+ * @author Yufan Zou
+ */
+@Name("treasurehunt.AStarSearch")
+@Label("A* Search")
+@Category({ "Treasure Hunt", "Planner" })
+public class AStarSearchEvent extends Event {
+  @Label("Start X")
+  int startX;
+
+  @Label("Start Y")
+  int startY;
+
+  @Label("Goal X")
+  int goalX;
+
+  @Label("Goal Y")
+  int goalY;
+
+  @Label("Has Key")
+  boolean hasKey;
+
+  @Label("Has Axe")
+  boolean hasAxe;
+
+  @Label("Path Found")
+  boolean found;
+
+  @Label("Nodes Expanded")
+  int nodesExpanded;
+}
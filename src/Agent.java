@@ -40,23 +40,95 @@ Briefly describe how your program works, including any algorithms and data struc
 */
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.io.*;
-import java.net.*;
 
 public class Agent {
 
   //Class variables
   private MoveGenerator moveGeneratorr;
 
+  // Plans ahead while we wait for the next view, null if we don't
+  private ExecutorService planner;
+  private Future<MoveGenerator> speculation;
+  private int num_speculations;
+  private int num_committed;
+
   public Agent() {
     //Initialise our move maker which will make our moves for us
     moveGeneratorr = new MoveGenerator();
   }
 
+  public Agent( boolean speculate ) {
+    this();
+    if( speculate ) {
+       planner = Executors.newSingleThreadExecutor( r -> {
+          Thread t = new Thread( r, "speculative-planner" );
+          t.setDaemon( true );
+          return t;
+       });
+    }
+  }
+
   public char get_action( char view[][] ) {
     return moveGeneratorr.makeMove(view);
    }
 
+  public char get_action( char view[][], int changed_cells ) {
+    if( speculation != null ) { // keep what was planned ahead if it planned for this view
+       try {
+          MoveGenerator ahead = speculation.get();
+          if( ahead != null ) {
+             num_speculations++;
+             if( moveGeneratorr.commitSpeculation( ahead, view )) {
+                num_committed++;
+             }
+          }
+       }
+       catch( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+       }
+       catch( ExecutionException e ) {} // plan again from here instead
+       speculation = null;
+    }
+    return moveGeneratorr.makeMove(view, changed_cells);
+   }
+
+  // Call once the action is on its way, so planning ahead overlaps the engine's turn
+  public void action_sent() {
+    if(( planner != null )&&( moveGeneratorr.canSpeculate() )) {
+       speculation = planner.submit( moveGeneratorr::speculate );
+    }
+   }
+
+  public int getNumSpeculations() {
+    return num_speculations;
+  }
+
+  public int getNumCommitted() {
+    return num_committed;
+  }
+
+  public char[] get_actions( char view[][], int changed_cells, int max_actions ) {
+    return moveGeneratorr.makeMoves(view, changed_cells, max_actions);
+   }
+
+  public void actions_applied( int num_applied ) {
+    moveGeneratorr.movesApplied(num_applied);
+   }
+
+  public DecisionMetrics getDecisionMetrics() {
+    return moveGeneratorr.getMetrics();
+  }
+
+  public MoveDeadline getMoveDeadline() {
+    return moveGeneratorr.getDeadline();
+  }
+
+  public PlannerPortfolio getPortfolio() {
+    return moveGeneratorr.getPortfolio();
+  }
+
   void print_view( char view[][] )
    {
     int i,j;
@@ -79,27 +151,65 @@ public class Agent {
 
    public static void main( String[] args )
    {
-      InputStream in  = null;
-      OutputStream out= null;
-      Socket socket   = null;
-      Agent  agent    = new Agent();
+      ViewChannel channel = null;
+      Agent  agent;
       char   view[][] = new char[5][5];
       char   action   = 'F';
-      int port;
-      int ch;
-      int i,j;
+      TraceWriter trace = null;
+      String traceName = null;
+      char   actions[];
+      long start;
+      int port = 0;
+      int max_batch = 1;
+      boolean use_delta = false;
+      boolean speculate = false;
+      int map_index = -1;
+      int applied;
+      int k;
+
+      for( k=0; k < args.length; k++ ) {
+         if( args[k].equals("-d") ) { // ask for views as deltas
+            use_delta = true;
+         }
+         else if( args[k].equals("-s") ) { // plan ahead while the engine takes its turn
+            speculate = true;
+         }
+         else if( k+1 < args.length ) {
+            if( args[k].equals("-p") ) {
+               port = Integer.parseInt( args[++k] );
+            }
+            else if( args[k].equals("-t") ) {
+               traceName = args[++k];
+            }
+            else if( args[k].equals("-b") ) { // send up to this many actions per turn
+               max_batch = Integer.parseInt( args[++k] );
+            }
+            else if( args[k].equals("-m") ) { // map to ask a StepServer -c for
+               map_index = Integer.parseInt( args[++k] );
+            }
+         }
+      }
 
-      if( args.length < 2 ) {
-         System.out.println("Usage: java Agent -p <port>\n");
+      // traces hold one view per action, which batches skip
+      if(( port == 0 )||( map_index > 255 )||( max_batch < 1 )||( max_batch > ViewChannel.MAX_BATCH )
+         ||(( max_batch > 1 )&&(( traceName != null )||( speculate )))) {
+         System.out.println("Usage: java Agent -p <port> [-t <trace> | -b <maxbatch>] [-d] [-s] [-m <mapindex>]\n");
          System.exit(-1);
       }
+      agent = new Agent( speculate );
 
-      port = Integer.parseInt( args[1] );
+      if( traceName != null ) {
+         try { // the agent cannot see the map, so its traces carry no map hash
+            trace = new TraceWriter( new FileOutputStream( traceName ), 0 );
+         }
+         catch( IOException e ) {
+            System.out.println("Could not write trace: "+ traceName );
+            System.exit(-1);
+         }
+      }
 
       try { // open socket to Game Engine
-         socket = new Socket( "localhost", port );
-         in  = socket.getInputStream();
-         out = socket.getOutputStream();
+         channel = ViewChannel.connect( "localhost", port );
       }
       catch( IOException e ) {
          System.out.println("Could not bind to port: "+port);
@@ -107,21 +217,44 @@ public class Agent {
       }
 
       try { // scan 5-by-5 wintow around current location
+         if( map_index >= 0 ) {
+            channel.writeAction( (char) map_index );
+         }
+         if( use_delta ) { // the first view is always whole, the rest are deltas
+            if( !channel.readView( view )) {
+               System.exit(-1);
+            }
+            channel.requestDelta();
+         }
+         if( max_batch > 1 ) {
+            if( !channel.readView( view )) {
+               System.exit(-1);
+            }
+            while( true ) {
+               actions = agent.get_actions( view, channel.getChangedCells(), max_batch );
+               channel.writeBatch( actions );
+               applied = channel.readBatchResult( view );
+               if( applied == -1 ) {
+                  System.exit(-1);
+               }
+               agent.actions_applied( applied );
+            }
+         }
          while( true ) {
-            for( i=0; i < 5; i++ ) {
-               for( j=0; j < 5; j++ ) {
-                  if( !(( i == 2 )&&( j == 2 ))) {
-                     ch = in.read();
-                     if( ch == -1 ) {
-                        System.exit(-1);
-                     }
-                     view[i][j] = (char) ch;
-                  }
+            if( !channel.readView( view )) {
+               if( trace != null ) {
+                  trace.close();
                }
+               System.exit(-1);
             }
             agent.print_view( view ); // COMMENT THIS OUT BEFORE SUBMISSION    
-            action = agent.get_action( view );
-            out.write( action );
+            start = System.nanoTime();
+            action = agent.get_action( view, channel.getChangedCells() );
+            if( trace != null ) {
+               trace.writeTurn( view, action, System.nanoTime() - start );
+            }
+            channel.writeAction( action );
+            agent.action_sent();
          }
       }
       catch( IOException e ) {
@@ -130,7 +263,7 @@ public class Agent {
       }
       finally {
          try {
-            socket.close();
+            channel.close();
          }
          catch( IOException e ) {}
       }
@@ -0,0 +1,494 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * BatchRunner class plays the agent against every map in one or more
+ * directories of .in files, in-process and silently, with one game per core at a
+ * time. Each game gets its own GameEngine and Agent. The moves, result, wall
+ * time and allocation of each game are written as CSV or JSON, and in regression
+ * mode the run fails if any game does worse than a stored baseline. Regression
+ * mode plays one game at a time, so that wall times are not skewed by games
+ * competing for cores. Allocation counts every thread of the process when games
+ * are played one at a time, so the planner's helper threads are included, and
+ * only the thread playing the game otherwise.
+ *
+ * Usage: java BatchRunner [-d dir]... [-f csv|json] [-o file] [-m maxmoves]
+ * [-t threads] [-b baseline.csv] [-x timeFactor] [-j metricsDir] [-r traceDir]
+ *
+ * With -j, each game's per-stage decision metrics are written to
+ * metricsDir/&lt;map&gt;.metrics.json, and if a move budget is set with
+ * -Dagent.moveBudgetMs=N its deadline counters to
+ * metricsDir/&lt;map&gt;.deadline.json, and if planner strategies are raced
+ * with -Dagent.portfolio=... their win statistics to
+ * metricsDir/&lt;map&gt;.portfolio.json. With -r, each game is recorded to
+ * traceDir/&lt;map&gt;.trace for TraceReplayer. The agent plans with the
+ * stages set by -Dagent.stages=..., so two planners can be compared by writing
+ * one's results with -o and checking the other's against them with -b.
+ *
+ * @author Yufan Zou
+ */
+public class BatchRunner {
+  final static int DEFAULT_MAX_MOVES = 10000;
+
+  // How much slower than the baseline a game may be before regression mode fails
+  final static double DEFAULT_TIME_FACTOR = 1.5;
+
+  /**
+   * Outcome of playing one map.
+   */
+  public static class GameResult {
+    private final String map;
+    private final boolean won;
+    private final int moves;
+    private final long wallNanos;
+    private final long maxMoveNanos;
+    private final long allocatedBytes;
+
+    /**
+     * GameResult class constructor.
+     *
+     * @param map
+     *          name of the map file
+     * @param won
+     *          whether the treasure was brought home
+     * @param moves
+     *          number of moves made
+     * @param wallNanos
+     *          wall time of the whole game
+     * @param maxMoveNanos
+     *          wall time of the slowest single move
+     * @param allocatedBytes
+     *          bytes allocated while playing the game, -1 if unknown
+     */
+    public GameResult(String map, boolean won, int moves, long wallNanos, long maxMoveNanos, long allocatedBytes) {
+      this.map = map;
+      this.won = won;
+      this.moves = moves;
+      this.wallNanos = wallNanos;
+      this.maxMoveNanos = maxMoveNanos;
+      this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Returns the name of the map file
+     *
+     * @return returns the map file name
+     */
+    public String getMap() {
+      return map;
+    }
+
+    /**
+     * Indicates if the treasure was brought home
+     *
+     * @return boolean value of if the game was won
+     */
+    public boolean isWon() {
+      return won;
+    }
+
+    /**
+     * Returns the number of moves made
+     *
+     * @return int of number of moves
+     */
+    public int getMoves() {
+      return moves;
+    }
+
+    /**
+     * Returns the wall time of the whole game
+     *
+     * @return returns the time in milliseconds
+     */
+    public double getWallMillis() {
+      return wallNanos / 1e6;
+    }
+
+    /**
+     * Returns the average wall time of one move
+     *
+     * @return returns the time in milliseconds
+     */
+    public double getMillisPerMove() {
+      return moves == 0 ? 0 : wallNanos / 1e6 / moves;
+    }
+
+    /**
+     * Returns the wall time of the slowest move
+     *
+     * @return returns the time in milliseconds
+     */
+    public double getMaxMoveMillis() {
+      return maxMoveNanos / 1e6;
+    }
+
+    /**
+     * Returns the bytes allocated while playing
+     *
+     * @return number of bytes, or -1 if unknown
+     */
+    public long getAllocatedBytes() {
+      return allocatedBytes;
+    }
+  }
+
+  /**
+   * Plays one map to the end (or to the move limit) with a fresh engine and
+   * agent on the calling thread.
+   *
+   * @param mapFile
+   *          the map to play
+   * @param maxMoves
+   *          number of moves after which the game counts as lost
+   * @param metricsDir
+   *          directory to write the decision metrics to, or null to not record
+   *          them
+   * @param traceDir
+   *          directory to write the game trace to, or null to not record it
+   * @param allThreads
+   *          whether to count what every thread allocates while the game is
+   *          played, right only if no other game is played at the same time;
+   *          otherwise just the calling thread's allocation is counted
+   * @return returns the outcome of the game
+   * @throws IOException
+   *           if the map cannot be read or the metrics or trace cannot be
+   *           written
+   */
+  public static GameResult play(File mapFile, int maxMoves, File metricsDir, File traceDir, boolean allThreads)
+      throws IOException {
+    GameEngine engine = new GameEngine();
+    char[][] rows = GameEngine.readMap(mapFile.getPath());
+    engine.reset(rows);
+    char[][] view = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+    TraceWriter trace = traceDir == null ? null
+        : new TraceWriter(new FileOutputStream(new File(traceDir, mapFile.getName() + ".trace")),
+            TraceWriter.hashMap(rows));
+
+    Map<Long, Long> startThreadBytes = allThreads ? ThreadUsage.getAllThreadsAllocatedBytes() : null;
+    long startBytes = ThreadUsage.getAllocatedBytes();
+    long start = System.nanoTime();
+    long maxMoveNanos = 0;
+
+    Agent agent = new Agent();
+    agent.getDecisionMetrics().setEnabled(metricsDir != null);
+    try {
+      while (!engine.isOver() && engine.getNumMoves() < maxMoves) {
+        long moveStart = System.nanoTime();
+        engine.observe(view);
+        char action = agent.get_action(view);
+        long moveNanos = System.nanoTime() - moveStart;
+        maxMoveNanos = Math.max(maxMoveNanos, moveNanos);
+        if (trace != null) {
+          trace.writeTurn(view, action, moveNanos);
+        }
+        engine.apply(action);
+      }
+    } finally {
+      if (trace != null) {
+        trace.close();
+      }
+    }
+
+    long wallNanos = System.nanoTime() - start;
+    long allocatedBytes;
+    if (allThreads) {
+      allocatedBytes = ThreadUsage.getAllocatedBytesSince(startThreadBytes);
+    } else {
+      long endBytes = ThreadUsage.getAllocatedBytes();
+      allocatedBytes = startBytes < 0 || endBytes < 0 ? -1 : endBytes - startBytes;
+    }
+
+    if (metricsDir != null) {
+      try (PrintWriter out = new PrintWriter(new FileWriter(new File(metricsDir, mapFile.getName() + ".metrics.json")))) {
+        out.println(agent.getDecisionMetrics().toJson());
+      }
+      if (agent.getMoveDeadline().hasBudget()) {
+        try (PrintWriter out = new PrintWriter(
+            new FileWriter(new File(metricsDir, mapFile.getName() + ".deadline.json")))) {
+          out.println(agent.getMoveDeadline().toJson());
+        }
+      }
+      if (agent.getPortfolio() != null) {
+        try (PrintWriter out = new PrintWriter(
+            new FileWriter(new File(metricsDir, mapFile.getName() + ".portfolio.json")))) {
+          out.println(agent.getPortfolio().toJson());
+        }
+      }
+    }
+
+    return new GameResult(mapFile.getName(), engine.isWon(), engine.getNumMoves(), wallNanos, maxMoveNanos,
+        allocatedBytes);
+  }
+
+  /**
+   * Plays every map concurrently and returns the outcomes sorted by map name.
+   * With one thread, each game's allocation counts every thread of the process.
+   *
+   * @param mapFiles
+   *          the maps to play
+   * @param maxMoves
+   *          number of moves after which a game counts as lost
+   * @param numThreads
+   *          number of games played at once
+   * @param metricsDir
+   *          directory to write the decision metrics to, or null to not record
+   *          them
+   * @param traceDir
+   *          directory to write the game traces to, or null to not record them
+   * @return returns the outcome of each game
+   * @throws IOException
+   *           if a map cannot be read
+   * @throws InterruptedException
+   *           if interrupted while waiting for the games
+   */
+  public static List<GameResult> playAll(List<File> mapFiles, int maxMoves, int numThreads, File metricsDir,
+      File traceDir) throws IOException, InterruptedException {
+    ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+    List<Future<GameResult>> futures = new ArrayList<>();
+
+    try {
+      for (File mapFile : mapFiles) {
+        futures.add(pool.submit(() -> play(mapFile, maxMoves, metricsDir, traceDir, numThreads == 1)));
+      }
+
+      List<GameResult> results = new ArrayList<>();
+      for (Future<GameResult> future : futures) {
+        try {
+          results.add(future.get());
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
+          }
+          throw new IllegalStateException(e.getCause());
+        }
+      }
+
+      results.sort(Comparator.comparing(GameResult::getMap));
+      return results;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Finds the .in map files in the given directories.
+   *
+   * @param directories
+   *          directories to look in
+   * @return returns the map files sorted by path
+   * @throws IOException
+   *           if a directory cannot be listed
+   */
+  public static List<File> findMaps(List<String> directories) throws IOException {
+    List<File> mapFiles = new ArrayList<>();
+
+    for (String directory : directories) {
+      File[] files = new File(directory).listFiles((dir, name) -> name.endsWith(".in"));
+      if (files == null) {
+        throw new IOException("Cannot list directory: " + directory);
+      }
+      mapFiles.addAll(Arrays.asList(files));
+    }
+
+    mapFiles.sort(Comparator.comparing(File::getPath));
+    return mapFiles;
+  }
+
+  /**
+   * Writes the outcomes as CSV with a header line.
+   *
+   * @param results
+   *          outcome of each game
+   * @param out
+   *          where to write
+   */
+  public static void writeCsv(List<GameResult> results, PrintWriter out) {
+    out.println("map,won,moves,wall_ms,ms_per_move,max_move_ms,allocated_bytes");
+    for (GameResult r : results) {
+      out.printf(Locale.ROOT, "%s,%b,%d,%.3f,%.4f,%.3f,%d%n", r.getMap(), r.isWon(), r.getMoves(), r.getWallMillis(),
+          r.getMillisPerMove(), r.getMaxMoveMillis(), r.getAllocatedBytes());
+    }
+    out.flush();
+  }
+
+  /**
+   * Writes the outcomes as a JSON array with one object per game.
+   *
+   * @param results
+   *          outcome of each game
+   * @param out
+   *          where to write
+   */
+  public static void writeJson(List<GameResult> results, PrintWriter out) {
+    out.println("[");
+    for (int i = 0; i < results.size(); ++i) {
+      GameResult r = results.get(i);
+      out.printf(Locale.ROOT,
+          "  {\"map\": \"%s\", \"won\": %b, \"moves\": %d, \"wall_ms\": %.3f, \"ms_per_move\": %.4f, "
+              + "\"max_move_ms\": %.3f, \"allocated_bytes\": %d}%s%n",
+          r.getMap().replace("\\", "\\\\").replace("\"", "\\\""), r.isWon(), r.getMoves(), r.getWallMillis(),
+          r.getMillisPerMove(), r.getMaxMoveMillis(), r.getAllocatedBytes(), i + 1 < results.size() ? "," : "");
+    }
+    out.println("]");
+    out.flush();
+  }
+
+  /**
+   * Compares the outcomes against a baseline written earlier with writeCsv. A
+   * game regresses if it was won and now is not, takes more moves, or takes more
+   * than timeFactor times the baseline wall time. Wall times only compare if
+   * both runs played one game at a time.
+   *
+   * @param results
+   *          outcome of each game
+   * @param baselineFile
+   *          CSV file of baseline outcomes
+   * @param timeFactor
+   *          allowed slowdown of the wall time
+   * @return returns one message per regression, empty if there are none
+   * @throws IOException
+   *           if the baseline cannot be read
+   */
+  public static List<String> checkBaseline(List<GameResult> results, File baselineFile, double timeFactor)
+      throws IOException {
+    Map<String, String[]> baseline = new HashMap<>();
+    try (BufferedReader in = new BufferedReader(new FileReader(baselineFile))) {
+      String line = in.readLine(); // header
+      while ((line = in.readLine()) != null) {
+        String[] fields = line.split(",");
+        if (fields.length >= 4) {
+          baseline.put(fields[0], fields);
+        }
+      }
+    }
+
+    List<String> regressions = new ArrayList<>();
+    for (GameResult r : results) {
+      String[] fields = baseline.get(r.getMap());
+      if (fields == null) {
+        continue;
+      }
+
+      boolean baseWon = Boolean.parseBoolean(fields[1]);
+      int baseMoves = Integer.parseInt(fields[2]);
+      double baseWallMillis = Double.parseDouble(fields[3]);
+
+      if (baseWon && !r.isWon()) {
+        regressions.add(r.getMap() + ": no longer won");
+      } else if (r.getMoves() > baseMoves) {
+        regressions.add(r.getMap() + ": " + r.getMoves() + " moves, baseline " + baseMoves);
+      }
+      if (r.getWallMillis() > baseWallMillis * timeFactor) {
+        regressions.add(String.format(Locale.ROOT, "%s: %.1f ms, baseline %.1f ms", r.getMap(), r.getWallMillis(),
+            baseWallMillis));
+      }
+    }
+
+    return regressions;
+  }
+
+  private static void printUsage() {
+    System.out.println("Usage: java BatchRunner [-d dir]... [-f csv|json] [-o file] [-m maxmoves] [-t threads]"
+        + " [-b baseline.csv] [-x timeFactor] [-j metricsDir] [-r traceDir]");
+    System.exit(-1);
+  }
+
+  public static void main(String[] args) {
+    List<String> directories = new ArrayList<>();
+    String format = "csv";
+    String outName = null;
+    String baselineName = null;
+    File metricsDir = null;
+    File traceDir = null;
+    int maxMoves = DEFAULT_MAX_MOVES;
+    int numThreads = Runtime.getRuntime().availableProcessors();
+    double timeFactor = DEFAULT_TIME_FACTOR;
+
+    try {
+      for (int k = 0; k < args.length; k += 2) {
+        if (k + 1 >= args.length) {
+          printUsage();
+        }
+        String value = args[k + 1];
+        switch (args[k]) {
+          case "-d":
+            directories.add(value);
+            break;
+          case "-f":
+            format = value;
+            break;
+          case "-o":
+            outName = value;
+            break;
+          case "-m":
+            maxMoves = Integer.parseInt(value);
+            break;
+          case "-t":
+            numThreads = Integer.parseInt(value);
+            break;
+          case "-b":
+            baselineName = value;
+            break;
+          case "-x":
+            timeFactor = Double.parseDouble(value);
+            break;
+          case "-j":
+            metricsDir = new File(value);
+            break;
+          case "-r":
+            traceDir = new File(value);
+            break;
+          default:
+            printUsage();
+        }
+      }
+    } catch (NumberFormatException e) {
+      printUsage();
+    }
+    if (directories.isEmpty()) {
+      directories.add("maps");
+    }
+    if (!format.equals("csv") && !format.equals("json")) {
+      printUsage();
+    }
+
+    // Games played side by side slow each other down, which would make the
+    // wall time check fail at random
+    if (baselineName != null) {
+      numThreads = 1;
+    }
+
+    try {
+      List<GameResult> results = playAll(findMaps(directories), maxMoves, Math.max(1, numThreads),
+          metricsDir, traceDir);
+
+      PrintWriter out = outName == null ? new PrintWriter(System.out) : new PrintWriter(new FileWriter(outName));
+      if (format.equals("json")) {
+        writeJson(results, out);
+      } else {
+        writeCsv(results, out);
+      }
+      if (outName != null) {
+        out.close();
+      }
+
+      if (baselineName != null) {
+        List<String> regressions = checkBaseline(results, new File(baselineName), timeFactor);
+        for (String regression : regressions) {
+          System.err.println("REGRESSION " + regression);
+        }
+        if (!regressions.isEmpty()) {
+          System.exit(1);
+        }
+      }
+    } catch (IOException e) {
+      System.err.println(e.getMessage());
+      System.exit(-1);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      System.exit(-1);
+    }
+  }
+}
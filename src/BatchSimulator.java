@@ -0,0 +1,598 @@
+import java.util.*;
+
+/**
+ * BatchSimulator class plays many games of the treasure hunt side by side,
+ * stepping all of them at once, for tuning strategies over thousands of games.
+ * It follows the same rules as GameEngine, but keeps the games as a structure of
+ * arrays: each player's position, direction, tools and flags sit in one
+ * primitive array per field, indexed by game. The maps are shared, read-only
+ * base arrays; each game keeps only the tiles it has changed (trees chopped,
+ * doors opened, tools picked up, stones placed) in a small hash table of its
+ * own. Observations of every game are written to one contiguous buffer.
+ *
+ * @author Yufan Zou
+ */
+public class BatchSimulator {
+  // Bytes of observation per game, the view without the player's own tile
+  final static int VIEW_BYTES = GameEngine.VIEW_SIZE * GameEngine.VIEW_SIZE - 1;
+
+  // Flags of each game
+  private final static int HAVE_AXE = 1;
+  private final static int HAVE_KEY = 2;
+  private final static int HAVE_TREASURE = 4;
+  private final static int HAVE_RAFT = 8;
+  private final static int ON_RAFT = 16;
+  private final static int OFF_MAP = 32;
+  private final static int WON = 64;
+  private final static int LOST = 128;
+
+  private final static int INITIAL_OVERLAY_SIZE = 16;
+
+  private final int numGames;
+
+  // Base maps, all rows of all maps laid end to end
+  private final char[] baseTiles;
+  private final int[] rowStart;
+  private final int[] rowLength;
+  private final int[] mapFirstRow;
+  private final int[] mapNumRows;
+  private final int[] mapStartRow, mapStartCol, mapStartDirn;
+
+  // State of each game
+  private final int[] map;
+  private final int[] row, col, dirn;
+  private final int[] flags;
+  private final int[] numStones;
+  private final int[] numDynamites;
+  private final int[] numMoves;
+
+  // Tiles each game has changed, open addressing on the base tile index
+  private final int[][] overlayKeys;
+  private final char[][] overlayTiles;
+  private final int[] overlaySize;
+  // One bit per hashed key in each overlay, so most tiles skip the table
+  private final long[] overlayFilter;
+
+  /**
+   * BatchSimulator class constructor. Game i plays map i modulo the number of
+   * maps, and every game starts reset.
+   *
+   * @param maps
+   *          rows of each map, including the player's starting arrow
+   * @param numGames
+   *          number of games to play side by side
+   * @throws IllegalArgumentException
+   *           if a map has no player on it
+   */
+  public BatchSimulator(List<char[][]> maps, int numGames) {
+    this.numGames = numGames;
+
+    int totalRows = 0;
+    int totalTiles = 0;
+    for (char[][] rows : maps) {
+      totalRows += rows.length;
+      for (char[] oneRow : rows) {
+        totalTiles += oneRow.length;
+      }
+    }
+
+    baseTiles = new char[totalTiles];
+    rowStart = new int[totalRows];
+    rowLength = new int[totalRows];
+    mapFirstRow = new int[maps.size()];
+    mapNumRows = new int[maps.size()];
+    mapStartRow = new int[maps.size()];
+    mapStartCol = new int[maps.size()];
+    mapStartDirn = new int[maps.size()];
+
+    int nextRow = 0;
+    int nextTile = 0;
+    for (int m = 0; m < maps.size(); ++m) {
+      char[][] rows = maps.get(m);
+      mapFirstRow[m] = nextRow;
+      mapNumRows[m] = rows.length;
+      mapStartDirn[m] = -1;
+
+      for (int r = 0; r < rows.length; ++r, ++nextRow) {
+        rowStart[nextRow] = nextTile;
+        rowLength[nextRow] = rows[r].length;
+        for (int c = 0; c < rows[r].length; ++c) {
+          int startDirn = getArrowDirection(rows[r][c]);
+          if (startDirn != -1) {
+            mapStartRow[m] = r;
+            mapStartCol[m] = c;
+            mapStartDirn[m] = startDirn;
+          }
+          baseTiles[nextTile++] = rows[r][c];
+        }
+      }
+
+      if (mapStartDirn[m] == -1) {
+        throw new IllegalArgumentException("Map " + m + " has no starting position");
+      }
+    }
+
+    map = new int[numGames];
+    row = new int[numGames];
+    col = new int[numGames];
+    dirn = new int[numGames];
+    flags = new int[numGames];
+    numStones = new int[numGames];
+    numDynamites = new int[numGames];
+    numMoves = new int[numGames];
+    overlayKeys = new int[numGames][];
+    overlayTiles = new char[numGames][];
+    overlaySize = new int[numGames];
+    overlayFilter = new long[numGames];
+
+    for (int g = 0; g < numGames; ++g) {
+      map[g] = g % maps.size();
+      overlayKeys[g] = new int[INITIAL_OVERLAY_SIZE];
+      overlayTiles[g] = new char[INITIAL_OVERLAY_SIZE];
+      reset(g);
+    }
+  }
+
+  /**
+   * Starts one game again from the beginning of its map.
+   *
+   * @param g
+   *          index of the game
+   */
+  public void reset(int g) {
+    int m = map[g];
+    row[g] = mapStartRow[m];
+    col[g] = mapStartCol[m];
+    dirn[g] = mapStartDirn[m];
+    flags[g] = 0;
+    numStones[g] = 0;
+    numDynamites[g] = 0;
+    numMoves[g] = 0;
+    Arrays.fill(overlayKeys[g], -1);
+    overlaySize[g] = 0;
+    overlayFilter[g] = 0;
+  }
+
+  /**
+   * Starts every game that is over again.
+   *
+   * @return returns the number of games restarted
+   */
+  public int resetFinished() {
+    int numReset = 0;
+    for (int g = 0; g < numGames; ++g) {
+      if ((flags[g] & (WON | LOST)) != 0) {
+        reset(g);
+        ++numReset;
+      }
+    }
+    return numReset;
+  }
+
+  /**
+   * Writes the view of every game into one buffer, game g's VIEW_BYTES bytes
+   * starting at g * VIEW_BYTES, in the order ViewChannel sends them: the 5*5
+   * view turned so the player faces up, in row order, without the centre. Tiles
+   * off the map are '.'.
+   *
+   * @param views
+   *          buffer of at least numGames * VIEW_BYTES bytes
+   */
+  public void observe(byte[] views) {
+    for (int g = 0; g < numGames; ++g) {
+      int n = g * VIEW_BYTES;
+      int firstRow = mapFirstRow[map[g]];
+      int nrows = mapNumRows[map[g]];
+
+      // Map steps taken by one view row (down) and one view column (right)
+      int rowDown = 0, colDown = 0, rowRight = 0, colRight = 0;
+      switch (dirn[g]) {
+        case GameEngine.NORTH:
+          rowDown = 1;
+          colRight = 1;
+          break;
+        case GameEngine.SOUTH:
+          rowDown = -1;
+          colRight = -1;
+          break;
+        case GameEngine.EAST:
+          colDown = -1;
+          rowRight = 1;
+          break;
+        case GameEngine.WEST:
+          colDown = 1;
+          rowRight = -1;
+          break;
+      }
+
+      for (int i = -2; i <= 2; i++) {
+        for (int j = -2; j <= 2; j++) {
+          if (i == 0 && j == 0) {
+            continue;
+          }
+          int r = row[g] + i * rowDown + j * rowRight;
+          int c = col[g] + i * colDown + j * colRight;
+          if (r >= 0 && r < nrows && c >= 0 && c < rowLength[firstRow + r]) {
+            views[n++] = (byte) getTile(g, rowStart[firstRow + r] + c);
+          } else {
+            views[n++] = (byte) '.';
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Applies one action to every game that is not over, counting it as a move
+   * whether or not it had any effect.
+   *
+   * @param actions
+   *          action char of each game (L, R, F, C, U or B, either case)
+   * @param changed
+   *          buffer to record whether each action changed anything, or null
+   */
+  public void step(byte[] actions, boolean[] changed) {
+    for (int g = 0; g < numGames; ++g) {
+      if ((flags[g] & (WON | LOST)) != 0) {
+        if (changed != null) {
+          changed[g] = false;
+        }
+        continue;
+      }
+      ++numMoves[g];
+      boolean result = apply(g, (char) (actions[g] & 0xFF));
+      if (changed != null) {
+        changed[g] = result;
+      }
+    }
+  }
+
+  /**
+   * Applies one action of one game, as GameEngine.apply does.
+   *
+   * @param g
+   *          index of the game
+   * @param action
+   *          the action char
+   * @return boolean value of whether the action changed anything
+   */
+  private boolean apply(int g, char action) {
+    if (action == 'L' || action == 'l') {
+      dirn[g] = (dirn[g] + 1) % 4;
+      return true;
+    } else if (action == 'R' || action == 'r') {
+      dirn[g] = (dirn[g] + 3) % 4;
+      return true;
+    }
+
+    int newRow = row[g], newCol = col[g];
+    switch (dirn[g]) {
+      case GameEngine.NORTH:
+        --newRow;
+        break;
+      case GameEngine.SOUTH:
+        ++newRow;
+        break;
+      case GameEngine.EAST:
+        ++newCol;
+        break;
+      case GameEngine.WEST:
+        --newCol;
+        break;
+    }
+
+    int firstRow = mapFirstRow[map[g]];
+    if (newRow < 0 || newRow >= mapNumRows[map[g]] || newCol < 0 || newCol >= rowLength[firstRow + newRow]) {
+      if (action == 'F' || action == 'f') {
+        if ((flags[g] & OFF_MAP) == 0) {
+          setTile(g, row[g], col[g], '~');
+          flags[g] |= OFF_MAP;
+        }
+        row[g] = newRow;
+        col[g] = newCol;
+        flags[g] |= LOST;
+        return true;
+      }
+      return false;
+    }
+
+    char ch = getTile(g, newRow, newCol);
+
+    switch (action) {
+      case 'F':
+      case 'f':
+        return moveForward(g, ch, newRow, newCol);
+
+      case 'C':
+      case 'c': // chop
+        if (ch == 'T' && (flags[g] & HAVE_AXE) != 0) {
+          setTile(g, newRow, newCol, ' ');
+          flags[g] |= HAVE_RAFT;
+          return true;
+        }
+        break;
+
+      case 'U':
+      case 'u': // unlock
+        if (ch == '-' && (flags[g] & HAVE_KEY) != 0) {
+          setTile(g, newRow, newCol, ' ');
+          return true;
+        }
+        break;
+
+      case 'B':
+      case 'b': // blast
+        if (numDynamites[g] > 0 && (ch == '*' || ch == 'T' || ch == '-')) {
+          setTile(g, newRow, newCol, ' ');
+          --numDynamites[g];
+          return true;
+        }
+        break;
+    }
+
+    return false;
+  }
+
+  /**
+   * Moves the player of one game onto the tile in front, as GameEngine does.
+   *
+   * @param g
+   *          index of the game
+   * @param ch
+   *          the tile in front of the player
+   * @param newRow
+   *          row of that tile
+   * @param newCol
+   *          column of that tile
+   * @return boolean value of whether the player moved
+   */
+  private boolean moveForward(int g, char ch, int newRow, int newCol) {
+    // can't move into an obstacle
+    if (ch == '*' || ch == 'T' || ch == '-') {
+      return false;
+    }
+    boolean offMap = (flags[g] & OFF_MAP) != 0;
+    if (!offMap && getTile(g, row[g], col[g]) != 'O') {
+      setTile(g, row[g], col[g], ' ');
+    }
+
+    switch (ch) {
+      case '~':
+        if ((flags[g] & ON_RAFT) != 0) {
+          if (!offMap) {
+            setTile(g, row[g], col[g], '~');
+          }
+        } else if (numStones[g] > 0) {
+          --numStones[g];
+          if (!offMap) {
+            setTile(g, newRow, newCol, 'O');
+          }
+        } else if ((flags[g] & HAVE_RAFT) != 0) {
+          flags[g] |= ON_RAFT;
+        } else {
+          flags[g] |= LOST;
+        }
+        break;
+      case ' ':
+      case 'a':
+      case 'k':
+      case '$':
+      case 'd':
+      case 'O':
+        if ((flags[g] & ON_RAFT) != 0 && !offMap) {
+          setTile(g, row[g], col[g], '~');
+          flags[g] &= ~(ON_RAFT | HAVE_RAFT);
+        }
+        break;
+    }
+
+    row[g] = newRow;
+    col[g] = newCol;
+    switch (ch) {
+      case 'a':
+        flags[g] |= HAVE_AXE;
+        break;
+      case 'k':
+        flags[g] |= HAVE_KEY;
+        break;
+      case '$':
+        flags[g] |= HAVE_TREASURE;
+        break;
+      case 'd':
+        ++numDynamites[g];
+        break;
+      case 'o':
+        ++numStones[g];
+        break;
+    }
+    int m = map[g];
+    if ((flags[g] & HAVE_TREASURE) != 0 && newRow == mapStartRow[m] && newCol == mapStartCol[m]) {
+      flags[g] |= WON;
+    }
+    if (!offMap && getTile(g, newRow, newCol) != 'O') {
+      setTile(g, newRow, newCol, ' ');
+    }
+    flags[g] &= ~OFF_MAP;
+    return true;
+  }
+
+  /**
+   * Returns a tile of one game's map, from its overlay if it changed it.
+   *
+   * @param g
+   *          index of the game
+   * @param r
+   *          row of the tile
+   * @param c
+   *          column of the tile
+   * @return the tile char
+   */
+  private char getTile(int g, int r, int c) {
+    return getTile(g, rowStart[mapFirstRow[map[g]] + r] + c);
+  }
+
+  /**
+   * Returns a tile of one game's map by its index in the base tiles.
+   *
+   * @param g
+   *          index of the game
+   * @param key
+   *          index of the tile in the base tiles
+   * @return the tile char
+   */
+  private char getTile(int g, int key) {
+    int hash = mix(key);
+
+    if ((overlayFilter[g] & 1L << (hash >>> 26)) != 0) {
+      int[] keys = overlayKeys[g];
+      int mask = keys.length - 1;
+      for (int slot = hash & mask; keys[slot] != -1; slot = (slot + 1) & mask) {
+        if (keys[slot] == key) {
+          return overlayTiles[g][slot];
+        }
+      }
+    }
+
+    return baseTiles[key];
+  }
+
+  /**
+   * Changes a tile of one game's map in its overlay.
+   *
+   * @param g
+   *          index of the game
+   * @param r
+   *          row of the tile
+   * @param c
+   *          column of the tile
+   * @param tile
+   *          the new tile char
+   */
+  private void setTile(int g, int r, int c, char tile) {
+    int key = rowStart[mapFirstRow[map[g]] + r] + c;
+    int[] keys = overlayKeys[g];
+    int mask = keys.length - 1;
+    int hash = mix(key);
+
+    int slot = hash & mask;
+    while (keys[slot] != -1 && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    if (keys[slot] == key) {
+      overlayTiles[g][slot] = tile;
+      return;
+    }
+    if (tile == baseTiles[key]) {
+      return; // unchanged from the base map, nothing to remember
+    }
+
+    keys[slot] = key;
+    overlayTiles[g][slot] = tile;
+    overlayFilter[g] |= 1L << (hash >>> 26);
+    if (++overlaySize[g] * 2 > keys.length) {
+      growOverlay(g);
+    }
+  }
+
+  /**
+   * Doubles the size of one game's overlay table.
+   *
+   * @param g
+   *          index of the game
+   */
+  private void growOverlay(int g) {
+    int[] oldKeys = overlayKeys[g];
+    char[] oldTiles = overlayTiles[g];
+    int[] keys = new int[oldKeys.length * 2];
+    char[] tiles = new char[keys.length];
+    Arrays.fill(keys, -1);
+    int mask = keys.length - 1;
+
+    for (int i = 0; i < oldKeys.length; ++i) {
+      if (oldKeys[i] != -1) {
+        int slot = mix(oldKeys[i]) & mask;
+        while (keys[slot] != -1) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        tiles[slot] = oldTiles[i];
+      }
+    }
+
+    overlayKeys[g] = keys;
+    overlayTiles[g] = tiles;
+  }
+
+  private static int mix(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private static int getArrowDirection(char tile) {
+    switch (tile) {
+      case '^':
+        return GameEngine.NORTH;
+      case '>':
+        return GameEngine.EAST;
+      case 'v':
+        return GameEngine.SOUTH;
+      case '<':
+        return GameEngine.WEST;
+      default:
+        return -1;
+    }
+  }
+
+  /**
+   * Returns the number of games played side by side
+   *
+   * @return number of games
+   */
+  public int getNumGames() {
+    return numGames;
+  }
+
+  /**
+   * Indicates if a game has been won
+   *
+   * @param g
+   *          index of the game
+   * @return boolean value of if the game is won
+   */
+  public boolean isWon(int g) {
+    return (flags[g] & WON) != 0;
+  }
+
+  /**
+   * Indicates if a game has been lost
+   *
+   * @param g
+   *          index of the game
+   * @return boolean value of if the game is lost
+   */
+  public boolean isLost(int g) {
+    return (flags[g] & LOST) != 0;
+  }
+
+  /**
+   * Indicates if a game has finished either way
+   *
+   * @param g
+   *          index of the game
+   * @return boolean value of if the game is over
+   */
+  public boolean isOver(int g) {
+    return (flags[g] & (WON | LOST)) != 0;
+  }
+
+  /**
+   * Returns the number of actions applied to a game since it was reset
+   *
+   * @param g
+   *          index of the game
+   * @return number of moves made
+   */
+  public int getNumMoves(int g) {
+    return numMoves[g];
+  }
+}
@@ -71,7 +71,7 @@ public class Coordinate {
       return true;
     }
 
-    if (o.getClass() != this.getClass()) {
+    if (o == null || o.getClass() != this.getClass()) {
       return false;
     }
 
@@ -0,0 +1,33 @@
+import jdk.jfr.*;
+
+/**
+ * EngineApplyEvent is the Java Flight Recorder event of one action applied by
+ * GameEngine.apply, which Step runs every turn.
+ *
+ * @author Yufan Zou
+ */
+@Name("treasurehunt.EngineApply")
+@Label("Engine Apply")
+@Category({ "Treasure Hunt", "Engine" })
+public class EngineApplyEvent extends Event {
+  @Label("Action")
+  char action;
+
+  @Label("Row")
+  int row;
+
+  @Label("Column")
+  int col;
+
+  @Label("Move Number")
+  int moveNumber;
+
+  @Label("Changed Anything")
+  boolean applied;
+
+  @Label("Game Won")
+  boolean won;
+
+  @Label("Game Lost")
+  boolean lost;
+}
@@ -0,0 +1,36 @@
+import jdk.jfr.*;
+
+/**
+ * FloodFillEvent is the Java Flight Recorder event of one
+ * FloodFillSearch.canReach.
+ *
+ * @author Yufan Zou
+ */
+@Name("treasurehunt.FloodFill")
+@Label("Flood Fill")
+@Category({ "Treasure Hunt", "Planner" })
+public class FloodFillEvent extends Event {
+  @Label("Start X")
+  int startX;
+
+  @Label("Start Y")
+  int startY;
+
+  @Label("Goal X")
+  int goalX;
+
+  @Label("Goal Y")
+  int goalY;
+
+  @Label("Has Key")
+  boolean hasKey;
+
+  @Label("Has Axe")
+  boolean hasAxe;
+
+  @Label("Reachable")
+  boolean found;
+
+  @Label("Nodes Expanded")
+  int nodesExpanded;
+}
@@ -11,6 +11,9 @@ import java.util.*;
 public class FloodFillSearch {
   private Coordinate start, goal;
   private Map<Coordinate, Character> map;
+  private int nodesExpanded;
+  // Tiles the last fill reached
+  private Set<Coordinate> isConnected;
 
   /**
    * FloodFill class constructor.
@@ -41,8 +44,11 @@ public class FloodFillSearch {
    * @return boolean value of whether or not the end point is reachable
    */
   public boolean canReach(boolean hasKey, boolean hasAxe) {
+    FloodFillEvent event = new FloodFillEvent();
+    event.begin();
+
     Queue<Coordinate> q = new ArrayDeque<>();
-    Set<Coordinate> isConnected = new HashSet<>();
+    isConnected = new HashSet<>();
 
     q.add(start);
 
@@ -62,6 +68,7 @@ public class FloodFillSearch {
 
         // Set as done
         isConnected.add(first);
+        ++nodesExpanded;
 
         // add nodes from up, down, left, right
         int i = 0;
@@ -92,6 +99,42 @@ public class FloodFillSearch {
       }
     }
 
-    return isConnected.contains(goal);
+    boolean found = isConnected.contains(goal);
+
+    if (event.shouldCommit()) {
+      event.startX = start.getX();
+      event.startY = start.getY();
+      event.goalX = goal.getX();
+      event.goalY = goal.getY();
+      event.hasKey = hasKey;
+      event.hasAxe = hasAxe;
+      event.found = found;
+      event.nodesExpanded = nodesExpanded;
+      event.commit();
+    }
+
+    return found;
+  }
+
+  /**
+   * Tests whether a tile was reached by the last fill. The fill reaches every
+   * tile it can from the start whatever the goal, so this answers canReach for
+   * any other goal with the same start and tools.
+   *
+   * @param tile
+   *          tile that we want to reach
+   * @return boolean value of whether or not the tile is reachable
+   */
+  public boolean reaches(Coordinate tile) {
+    return isConnected != null && isConnected.contains(tile);
+  }
+
+  /**
+   * Returns the number of nodes the last search expanded
+   *
+   * @return number of nodes expanded
+   */
+  public int getNodesExpanded() {
+    return nodesExpanded;
   }
 }
@@ -0,0 +1,414 @@
+import java.util.*;
+
+/**
+ * FrontierTour class groups the exploration frontier into clusters and plans a
+ * tour through them, so that exploration sweeps through each area once rather
+ * than zig-zagging towards whichever single tile looks best right now. The
+ * clusters are grouped again around the nearest frontier tiles on every call,
+ * which is cheap, but the distance field from each cluster's representative
+ * tile is kept from one call to the next and brought up to date with just the
+ * tiles that changed, so only new representatives are searched from.
+ *
+ * @author Yufan Zou
+ */
+public class FrontierTour {
+  // Frontier tiles this close to a cluster's seed tile join that cluster
+  final static int CLUSTER_RADIUS = 3 * State.VIEW_RADIUS;
+
+  // Only the nearest clusters are toured, the rest are picked up in later tours
+  final static int MAX_CLUSTERS = 16;
+
+  private final State state;
+
+  // Representative tile of each cluster in the order we plan to visit them
+  private List<Coordinate> tour;
+
+  // Distance field rooted at each representative tile of the last call
+  private Map<Coordinate, HomeDistanceField> fields;
+
+  // State.getNumTileChanges and State.getNumStonesPlanned when the fields were
+  // last brought up to date
+  private int numTileChanges;
+  private int numStonesPlanned;
+
+  // Nodes expanded by the searches of the last getTile
+  private int nodesExpanded;
+
+  // Skips building new distance fields once passed, null for none
+  private MoveDeadline deadline;
+
+  // Builds the new distance fields side by side, null to build them one after
+  // another
+  private SubgoalEvaluator evaluator;
+
+  /**
+   * FrontierTour class constructor.
+   *
+   * @param state
+   *          internal state holding the map and its unknown count field.
+   */
+  public FrontierTour(State state) {
+    this.state = state;
+    this.tour = new ArrayList<>();
+    this.fields = new HashMap<>();
+  }
+
+  /**
+   * Copies another tour onto a copy of its state. The distance fields are left
+   * behind, as they read the other state's map, and are built again when needed.
+   *
+   * @param state
+   *          copy of the state the other tour was kept for
+   * @param other
+   *          the tour to copy
+   */
+  public FrontierTour(State state, FrontierTour other) {
+    this.state = state;
+    this.tour = new ArrayList<>(other.tour);
+    this.fields = new HashMap<>();
+    this.numTileChanges = state.getNumTileChanges();
+    this.numStonesPlanned = state.getNumStonesPlanned();
+    this.nodesExpanded = other.nodesExpanded;
+    this.deadline = other.deadline;
+    this.evaluator = other.evaluator;
+  }
+
+  /**
+   * Lets getTile save time once the move's deadline has passed, by estimating
+   * the distances from clusters it has no distance field for yet instead of
+   * building one. The tour built from the estimates is repaired by later calls.
+   *
+   * @param deadline
+   *          deadline of the move being planned, or null for none
+   */
+  public void setDeadline(MoveDeadline deadline) {
+    this.deadline = deadline;
+  }
+
+  /**
+   * Lets getTile build the distance fields of new clusters side by side. The
+   * distances are the same either way.
+   *
+   * @param evaluator
+   *          evaluator to build them on, or null to build them one after another
+   */
+  public void setEvaluator(SubgoalEvaluator evaluator) {
+    this.evaluator = evaluator;
+  }
+
+  /**
+   * Works out the next tile to explore. The frontier is regrouped into clusters,
+   * the tour kept from the last call is repaired by dropping consumed clusters and
+   * inserting new ones where they are cheapest, and the best tile of the first
+   * cluster on the tour is returned.
+   *
+   * @param hasKey
+   *          boolean value of if we current have key
+   * @param hasAxe
+   *          boolean value of if we current have axe
+   * @return returns the tile to explore next, or the player position if there is
+   *         nothing left to reveal
+   */
+  public Coordinate getTile(boolean hasKey, boolean hasAxe) {
+    Coordinate start = state.getPlayerCoordinate();
+    InformationGainSeek seek = new InformationGainSeek(state, start);
+    seek.getTile(hasKey, hasAxe);
+    nodesExpanded = seek.getNodesExpanded();
+
+    List<Coordinate> frontier = seek.getFrontier();
+    if (frontier.isEmpty()) {
+      tour.clear();
+      return start;
+    }
+
+    // Group the frontier, which comes nearest first, around seed tiles
+    List<Coordinate> seeds = new ArrayList<>();
+    List<List<Coordinate>> clusters = new ArrayList<>();
+    Map<Coordinate, Integer> clusterOf = new HashMap<>();
+    for (Coordinate tile : frontier) {
+      int cluster = -1;
+      for (int i = 0; i < seeds.size() && cluster == -1; ++i) {
+        if (getChebyshevDistance(seeds.get(i), tile) <= CLUSTER_RADIUS) {
+          cluster = i;
+        }
+      }
+
+      if (cluster == -1) {
+        if (seeds.size() == MAX_CLUSTERS) {
+          continue;
+        }
+        cluster = seeds.size();
+        seeds.add(tile);
+        clusters.add(new ArrayList<>());
+      }
+
+      clusters.get(cluster).add(tile);
+      clusterOf.put(tile, cluster);
+    }
+
+    // Each cluster is represented by the tile that reveals the most
+    int numClusters = clusters.size();
+    Coordinate[] representatives = new Coordinate[numClusters];
+    for (int i = 0; i < numClusters; ++i) {
+      for (Coordinate tile : clusters.get(i)) {
+        if (representatives[i] == null || state.getUnknownCount(tile) > state.getUnknownCount(representatives[i])) {
+          representatives[i] = tile;
+        }
+      }
+    }
+
+    updateFields(representatives, hasKey, hasAxe);
+
+    // Travel distances between the player (index 0) and every representative,
+    // read off the field of the earlier of each pair
+    int[][] distance = new int[numClusters + 1][numClusters + 1];
+    for (int i = 0; i < numClusters; ++i) {
+      distance[0][i + 1] = seek.getDistance(representatives[i]);
+      distance[i + 1][0] = distance[0][i + 1];
+
+      HomeDistanceField field = fields.get(representatives[i]);
+      for (int j = i + 1; j < numClusters; ++j) {
+        if (field != null) {
+          distance[i + 1][j + 1] = field.getDistance(representatives[j], hasKey, hasAxe);
+        } else {
+          // Out of time, estimate as if there were nothing in the way
+          distance[i + 1][j + 1] = getManhattanDistance(representatives[i], representatives[j]);
+        }
+        distance[j + 1][i + 1] = distance[i + 1][j + 1];
+      }
+    }
+
+    // Keep the order of clusters that are still on the frontier
+    List<Integer> order = new ArrayList<>();
+    for (Coordinate tile : tour) {
+      Integer cluster = clusterOf.get(tile);
+      if (cluster != null && !order.contains(cluster + 1)) {
+        order.add(cluster + 1);
+      }
+    }
+
+    if (order.isEmpty()) {
+      buildNearestNeighbourTour(order, numClusters, distance);
+    } else {
+      for (int i = 1; i <= numClusters; ++i) {
+        if (!order.contains(i)) {
+          insertCheapest(order, i, distance);
+        }
+      }
+    }
+    improveTour(order, distance);
+
+    tour = new ArrayList<>();
+    for (int stop : order) {
+      tour.add(representatives[stop - 1]);
+    }
+
+    // Head for the tile in the first cluster with the most revealed tiles per move
+    Coordinate best = null;
+    int bestGain = 0;
+    int bestDistance = 1;
+    for (Coordinate tile : clusters.get(order.get(0) - 1)) {
+      int gain = state.getUnknownCount(tile);
+      int tileDistance = seek.getDistance(tile);
+      if (best == null || gain * bestDistance > bestGain * tileDistance) {
+        best = tile;
+        bestGain = gain;
+        bestDistance = tileDistance;
+      }
+    }
+
+    return best;
+  }
+
+  /**
+   * Returns the number of nodes the searches of the last getTile expanded
+   *
+   * @return number of nodes expanded
+   */
+  public int getNodesExpanded() {
+    return nodesExpanded;
+  }
+
+  /**
+   * Makes sure every representative but the last has a distance field that is up
+   * to date, which is all the distances between them need. Fields of tiles that
+   * are no longer representatives are dropped, the others are told of the tiles
+   * changed since the last call, and new ones are built, unless the move's
+   * deadline has passed.
+   *
+   * @param representatives
+   *          representative tile of each cluster
+   * @param hasKey
+   *          boolean value of if we current have key
+   * @param hasAxe
+   *          boolean value of if we current have axe
+   */
+  private void updateFields(Coordinate[] representatives, boolean hasKey, boolean hasAxe) {
+    fields.keySet().retainAll(Arrays.asList(representatives));
+
+    // A planned stone changes the map without counting as a tile change, so
+    // the fields cannot catch up with it and are built again
+    if (state.getNumStonesPlanned() != numStonesPlanned) {
+      fields.clear();
+    }
+
+    int nodesBefore = 0;
+    for (HomeDistanceField field : fields.values()) {
+      nodesBefore += field.getNodesExpanded();
+      for (Coordinate tile : state.getTilesChangedSince(numTileChanges)) {
+        field.tileChanged(tile);
+      }
+    }
+    numTileChanges = state.getNumTileChanges();
+    numStonesPlanned = state.getNumStonesPlanned();
+
+    Map<Coordinate, HomeDistanceField> newFields = new LinkedHashMap<>();
+    for (int i = 0; i < representatives.length - 1; ++i) {
+      if (!fields.containsKey(representatives[i])) {
+        newFields.put(representatives[i], new HomeDistanceField(state.getMap(), representatives[i]));
+      }
+    }
+
+    boolean together = evaluator != null && (deadline == null || !deadline.isExpired());
+    if (together) {
+      evaluator.buildAll(new ArrayList<>(newFields.values()), hasKey, hasAxe);
+    }
+    for (Map.Entry<Coordinate, HomeDistanceField> entry : newFields.entrySet()) {
+      if (!together && deadline != null && deadline.isExpired()) {
+        deadline.cutShort();
+        break;
+      }
+      entry.getValue().rebuildIfNeeded(hasKey, hasAxe);
+      fields.put(entry.getKey(), entry.getValue());
+    }
+
+    int nodesAfter = 0;
+    for (HomeDistanceField field : fields.values()) {
+      field.rebuildIfNeeded(hasKey, hasAxe);
+      nodesAfter += field.getNodesExpanded();
+    }
+    nodesExpanded += nodesAfter - nodesBefore;
+  }
+
+  /**
+   * Builds a tour from scratch by always visiting the nearest unvisited cluster
+   * next, starting from the player.
+   *
+   * @param order
+   *          list to be filled with the cluster indices in visiting order
+   * @param numClusters
+   *          number of clusters to visit
+   * @param distance
+   *          travel distances where index 0 is the player
+   */
+  private static void buildNearestNeighbourTour(List<Integer> order, int numClusters, int[][] distance) {
+    boolean[] visited = new boolean[numClusters + 1];
+    int curr = 0;
+
+    while (order.size() < numClusters) {
+      int next = -1;
+      for (int i = 1; i <= numClusters; ++i) {
+        if (!visited[i] && (next == -1 || distance[curr][i] < distance[curr][next])) {
+          next = i;
+        }
+      }
+
+      visited[next] = true;
+      order.add(next);
+      curr = next;
+    }
+  }
+
+  /**
+   * Inserts a cluster into the tour at the position that adds the fewest moves.
+   *
+   * @param order
+   *          cluster indices in visiting order
+   * @param cluster
+   *          index of the cluster to insert
+   * @param distance
+   *          travel distances where index 0 is the player
+   */
+  private static void insertCheapest(List<Integer> order, int cluster, int[][] distance) {
+    int bestPosition = 0;
+    int bestCost = Integer.MAX_VALUE;
+
+    for (int position = 0; position <= order.size(); ++position) {
+      int prev = position == 0 ? 0 : order.get(position - 1);
+      int cost = distance[prev][cluster];
+      if (position < order.size()) {
+        int next = order.get(position);
+        cost += distance[cluster][next] - distance[prev][next];
+      }
+
+      if (cost < bestCost) {
+        bestCost = cost;
+        bestPosition = position;
+      }
+    }
+
+    order.add(bestPosition, cluster);
+  }
+
+  /**
+   * Shortens the tour with 2-opt moves, reversing any stretch of the tour that
+   * makes it shorter, until no such stretch is left. The tour starts at the
+   * player and does not return.
+   *
+   * @param order
+   *          cluster indices in visiting order
+   * @param distance
+   *          travel distances where index 0 is the player
+   */
+  private static void improveTour(List<Integer> order, int[][] distance) {
+    boolean improved = true;
+
+    while (improved) {
+      improved = false;
+
+      for (int i = 0; i < order.size() - 1; ++i) {
+        int prev = i == 0 ? 0 : order.get(i - 1);
+
+        for (int j = i + 1; j < order.size(); ++j) {
+          int removed = distance[prev][order.get(i)];
+          int added = distance[prev][order.get(j)];
+          if (j + 1 < order.size()) {
+            removed += distance[order.get(j)][order.get(j + 1)];
+            added += distance[order.get(i)][order.get(j + 1)];
+          }
+
+          if (added < removed) {
+            Collections.reverse(order.subList(i, j + 1));
+            improved = true;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the Manhattan distance between the two points
+   *
+   * @param one
+   *          first point
+   * @param two
+   *          second point
+   * @return sum of the x and y differences
+   */
+  private static int getManhattanDistance(Coordinate one, Coordinate two) {
+    return Math.abs(one.getX() - two.getX()) + Math.abs(one.getY() - two.getY());
+  }
+
+  /**
+   * Returns the Chebyshev distance between the two points
+   *
+   * @param one
+   *          first point
+   * @param two
+   *          second point
+   * @return larger of the x and y differences
+   */
+  private static int getChebyshevDistance(Coordinate one, Coordinate two) {
+    return Math.max(Math.abs(one.getX() - two.getX()), Math.abs(one.getY() - two.getY()));
+  }
+}
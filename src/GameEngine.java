@@ -0,0 +1,470 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * GameEngine class runs one game of the treasure hunt at a time. It holds the
+ * map and everything the player carries, hands out the 5*5 view around the
+ * player and applies the player's actions, following the rules of the original
+ * Step engine. It does no console I/O and never exits the JVM, so many games can
+ * be played one after another (or side by side, one engine each) in one process.
+ *
+ * @author Yufan Zou
+ */
+public class GameEngine {
+  final static int EAST = 0;
+  final static int NORTH = 1;
+  final static int WEST = 2;
+  final static int SOUTH = 3;
+
+  // Width of the square view window given to the player
+  final static int VIEW_SIZE = 5;
+
+  private char[][] map;
+
+  private int nrows; // number of rows in environment
+  private int irow, icol; // initial row and column
+
+  // current row, column and direction of agent
+  private int row, col, dirn;
+
+  private boolean haveAxe;
+  private boolean haveKey;
+  private boolean haveTreasure;
+  private boolean haveRaft;
+  private boolean onRaft;
+  private boolean offMap;
+
+  private boolean gameWon;
+  private boolean gameLost;
+
+  private int numDynamitesHeld;
+  private int numStonesHeld;
+  private int numMoves;
+
+  /**
+   * Reads a map file, one row of the map per line, stopping at the first empty
+   * line.
+   *
+   * @param mapName
+   *          path of the map file
+   * @return returns the rows of the map
+   * @throws IOException
+   *           if the file cannot be read
+   */
+  public static char[][] readMap(String mapName) throws IOException {
+    List<char[]> rows = new ArrayList<>();
+
+    try (BufferedReader in = new BufferedReader(new FileReader(mapName))) {
+      String oneLine = in.readLine();
+      while (oneLine != null && oneLine.length() > 0) {
+        rows.add(oneLine.toCharArray());
+        oneLine = in.readLine();
+      }
+    }
+
+    return rows.toArray(new char[rows.size()][]);
+  }
+
+  /**
+   * Starts a new game on the given map. The map is copied, so the same rows can
+   * be used to reset any number of engines.
+   *
+   * @param rows
+   *          rows of the map, including the player's starting arrow
+   * @throws IllegalArgumentException
+   *           if the map has no player on it
+   */
+  public void reset(char[][] rows) {
+    boolean agentFound = false;
+
+    map = new char[rows.length][];
+    for (int r = 0; r < rows.length; ++r) {
+      map[r] = rows[r].clone();
+      for (int c = 0; c < map[r].length; ++c) {
+        boolean agentHere = true;
+        switch (map[r][c]) {
+          case '^':
+            dirn = NORTH;
+            break;
+          case '>':
+            dirn = EAST;
+            break;
+          case 'v':
+            dirn = SOUTH;
+            break;
+          case '<':
+            dirn = WEST;
+            break;
+          default:
+            agentHere = false;
+        }
+        if (agentHere) {
+          row = r;
+          col = c;
+          agentFound = true;
+        }
+      }
+    }
+
+    if (!agentFound) {
+      throw new IllegalArgumentException("Map has no starting position");
+    }
+
+    nrows = rows.length;
+    irow = row;
+    icol = col;
+
+    haveAxe = false;
+    haveKey = false;
+    haveTreasure = false;
+    haveRaft = false;
+    onRaft = false;
+    offMap = false;
+    gameWon = false;
+    gameLost = false;
+    numDynamitesHeld = 0;
+    numStonesHeld = 0;
+    numMoves = 0;
+  }
+
+  /**
+   * Fills the given buffer with the 5*5 view around the player, turned so that
+   * the player faces up. Tiles off the edge of the map are shown as '.'.
+   *
+   * @param view
+   *          5*5 buffer to fill, reused from turn to turn
+   */
+  public void observe(char[][] view) {
+    int r = 0, c = 0;
+
+    for (int i = -2; i <= 2; i++) {
+      for (int j = -2; j <= 2; j++) {
+        switch (dirn) {
+          case NORTH:
+            r = row + i;
+            c = col + j;
+            break;
+          case SOUTH:
+            r = row - i;
+            c = col - j;
+            break;
+          case EAST:
+            r = row + j;
+            c = col - i;
+            break;
+          case WEST:
+            r = row - j;
+            c = col + i;
+            break;
+        }
+        if (r >= 0 && r < nrows && c >= 0 && c < map[r].length) {
+          view[2 + i][2 + j] = map[r][c];
+        } else {
+          view[2 + i][2 + j] = '.';
+        }
+      }
+    }
+  }
+
+  /**
+   * Applies one action of the player and counts it as a move, whether or not it
+   * had any effect.
+   *
+   * @param action
+   *          the action char (L, R, F, C, U or B, either case)
+   * @return boolean value of whether the action changed anything
+   * @throws IllegalStateException
+   *           if the game is already over
+   */
+  public boolean apply(char action) {
+    if (isOver()) {
+      throw new IllegalStateException("Game is already over");
+    }
+
+    EngineApplyEvent event = new EngineApplyEvent();
+    event.begin();
+
+    ++numMoves;
+    boolean applied = applyAction(action);
+
+    if (event.shouldCommit()) {
+      event.action = action;
+      event.row = row;
+      event.col = col;
+      event.moveNumber = numMoves;
+      event.applied = applied;
+      event.won = gameWon;
+      event.lost = gameLost;
+      event.commit();
+    }
+
+    return applied;
+  }
+
+  /**
+   * Applies one action of the player to the map and inventory.
+   *
+   * @param action
+   *          the action char
+   * @return boolean value of whether the action changed anything
+   */
+  private boolean applyAction(char action) {
+    if (action == 'L' || action == 'l') {
+      dirn = (dirn + 1) % 4;
+      return true;
+    } else if (action == 'R' || action == 'r') {
+      dirn = (dirn + 3) % 4;
+      return true;
+    }
+
+    int dRow = 0, dCol = 0;
+    switch (dirn) {
+      case NORTH:
+        dRow = -1;
+        break;
+      case SOUTH:
+        dRow = 1;
+        break;
+      case EAST:
+        dCol = 1;
+        break;
+      case WEST:
+        dCol = -1;
+        break;
+    }
+    int newRow = row + dRow;
+    int newCol = col + dCol;
+
+    if (newRow < 0 || newRow >= nrows || newCol < 0 || newCol >= map[newRow].length) {
+      if (action == 'F' || action == 'f') {
+        if (!offMap) {
+          map[row][col] = '~';
+          offMap = true;
+        }
+        row = newRow;
+        col = newCol;
+        gameLost = true;
+        return true;
+      }
+      return false;
+    }
+
+    char ch = map[newRow][newCol];
+
+    switch (action) {
+      case 'F':
+      case 'f':
+        return moveForward(ch, newRow, newCol);
+
+      case 'C':
+      case 'c': // chop
+        if (ch == 'T' && haveAxe) {
+          map[newRow][newCol] = ' ';
+          haveRaft = true;
+          return true;
+        }
+        break;
+
+      case 'U':
+      case 'u': // unlock
+        if (ch == '-' && haveKey) {
+          map[newRow][newCol] = ' ';
+          return true;
+        }
+        break;
+
+      case 'B':
+      case 'b': // blast
+        if (numDynamitesHeld > 0 && (ch == '*' || ch == 'T' || ch == '-')) {
+          map[newRow][newCol] = ' ';
+          numDynamitesHeld--;
+          return true;
+        }
+        break;
+    }
+
+    return false;
+  }
+
+  /**
+   * Moves the player onto the tile in front, placing a stone or launching the
+   * raft on water and picking up whatever is there.
+   *
+   * @param ch
+   *          the tile in front of the player
+   * @param newRow
+   *          row of that tile
+   * @param newCol
+   *          column of that tile
+   * @return boolean value of whether the player moved
+   */
+  private boolean moveForward(char ch, int newRow, int newCol) {
+    // can't move into an obstacle
+    if (ch == '*' || ch == 'T' || ch == '-') {
+      return false;
+    }
+    if (!offMap && map[row][col] != 'O') {
+      map[row][col] = ' ';
+    }
+
+    switch (ch) {
+      case '~':
+        if (onRaft) {
+          if (!offMap) {
+            map[row][col] = '~';
+          }
+        } else if (numStonesHeld > 0) {
+          numStonesHeld--;
+          if (!offMap) {
+            map[newRow][newCol] = 'O';
+          }
+        } else if (haveRaft) {
+          onRaft = true;
+          if (!offMap && map[row][col] != 'O') {
+            map[row][col] = ' ';
+          }
+        } else {
+          gameLost = true;
+        }
+        break;
+      case ' ':
+      case 'a':
+      case 'k':
+      case '$':
+      case 'd':
+      case 'O':
+        if (onRaft && !offMap) {
+          map[row][col] = '~';
+          onRaft = false;
+          haveRaft = false;
+        }
+        break;
+    }
+
+    row = newRow;
+    col = newCol;
+    switch (ch) {
+      case 'a':
+        haveAxe = true;
+        break;
+      case 'k':
+        haveKey = true;
+        break;
+      case '$':
+        haveTreasure = true;
+        break;
+      case 'd':
+        numDynamitesHeld++;
+        break;
+      case 'o':
+        numStonesHeld++;
+        break;
+    }
+    if (haveTreasure && row == irow && col == icol) {
+      gameWon = true;
+    }
+    if (!offMap && map[row][col] != 'O') {
+      map[row][col] = ' ';
+    }
+    offMap = false;
+    return true;
+  }
+
+  /**
+   * Draws the whole map with the player's arrow on it.
+   *
+   * @return returns the map as text, one line per row
+   */
+  public String renderMap() {
+    StringBuilder sb = new StringBuilder();
+
+    for (int r = 0; r < nrows; r++) {
+      for (int c = 0; c < map[r].length; c++) {
+        char ch = map[r][c];
+        if (r == row && c == col) { // agent is here
+          switch (dirn) {
+            case NORTH:
+              ch = '^';
+              break;
+            case EAST:
+              ch = '>';
+              break;
+            case SOUTH:
+              ch = 'v';
+              break;
+            case WEST:
+              ch = '<';
+              break;
+          }
+        }
+        sb.append(ch);
+      }
+      sb.append('\n');
+    }
+
+    return sb.toString();
+  }
+
+  /**
+   * Indicates if the player has brought the treasure home
+   *
+   * @return boolean value of if the game is won
+   */
+  public boolean isWon() {
+    return gameWon;
+  }
+
+  /**
+   * Indicates if the player has drowned or walked off the map
+   *
+   * @return boolean value of if the game is lost
+   */
+  public boolean isLost() {
+    return gameLost;
+  }
+
+  /**
+   * Indicates if the game has finished either way
+   *
+   * @return boolean value of if the game is over
+   */
+  public boolean isOver() {
+    return gameWon || gameLost;
+  }
+
+  /**
+   * Returns the row of the map the player is on
+   *
+   * @return row of the player
+   */
+  public int getRow() {
+    return row;
+  }
+
+  /**
+   * Returns the column of the map the player is on
+   *
+   * @return column of the player
+   */
+  public int getCol() {
+    return col;
+  }
+
+  /**
+   * Returns the direction the player faces
+   *
+   * @return one of EAST, NORTH, WEST or SOUTH
+   */
+  public int getDirection() {
+    return dirn;
+  }
+
+  /**
+   * Returns the number of actions applied since the last reset
+   *
+   * @return int of number of moves made
+   */
+  public int getNumMoves() {
+    return numMoves;
+  }
+}
@@ -0,0 +1,145 @@
+import java.io.*;
+
+/**
+ * GameSession class plays one game between an engine and a player connected
+ * through a ViewChannel, following the player's requests for batches and delta
+ * encoded views, until the game is won, lost, runs out of moves or the player
+ * hangs up.
+ *
+ * @author Yufan Zou
+ */
+public class GameSession {
+  // Ways a session can end
+  final static int WON = 0;
+  final static int LOST = 1;
+  final static int OUT_OF_MOVES = 2;
+  final static int DISCONNECTED = 3;
+
+  private final ViewChannel channel;
+  private final GameEngine engine;
+  private final int maxMoves;
+
+  private TraceWriter trace;
+  private PrintStream log;
+
+  private final char[][] view = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+  private final char[] batch = new char[ViewChannel.MAX_BATCH];
+  private int numRoundTrips;
+
+  /**
+   * GameSession class constructor.
+   *
+   * @param channel
+   *          connection to the player
+   * @param engine
+   *          engine with the game already reset
+   * @param maxMoves
+   *          number of moves after which the game counts as lost
+   */
+  public GameSession(ViewChannel channel, GameEngine engine, int maxMoves) {
+    this.channel = channel;
+    this.engine = engine;
+    this.maxMoves = maxMoves;
+  }
+
+  /**
+   * Records every action applied, with the view the engine showed before it.
+   *
+   * @param trace
+   *          trace to write to, or null to not record
+   */
+  public void setTrace(TraceWriter trace) {
+    this.trace = trace;
+  }
+
+  /**
+   * Prints every action applied and the map after it.
+   *
+   * @param log
+   *          stream to print to, or null to print nothing
+   */
+  public void setLog(PrintStream log) {
+    this.log = log;
+  }
+
+  /**
+   * Plays the game to its end. The channel is left open.
+   *
+   * @return returns WON, LOST, OUT_OF_MOVES or DISCONNECTED
+   * @throws IOException
+   *           if the connection is lost part way through a message or the
+   *           trace cannot be written
+   */
+  public int run() throws IOException {
+    engine.observe(view);
+    channel.writeView(engine);
+
+    while (true) {
+      long start = System.nanoTime();
+      int ch = channel.readAction();
+      ++numRoundTrips;
+      if (ch == -1) {
+        return DISCONNECTED;
+      }
+      if (ViewChannel.isDeltaRequest(ch)) { // views as deltas from now on
+        channel.startDelta();
+        channel.writeView(engine);
+        continue;
+      }
+
+      boolean isBatch = ViewChannel.isBatchCount(ch);
+      int n = 1;
+      if (isBatch) { // several actions at once
+        n = ch;
+        channel.readBatch(batch, n);
+      } else {
+        batch[0] = (char) ch;
+      }
+
+      int applied = 0;
+      while (applied < n) {
+        char action = batch[applied];
+        if (trace != null) {
+          trace.writeTurn(view, action, applied == 0 ? System.nanoTime() - start : 0);
+        }
+        if (log != null) {
+          log.println("action = " + action);
+        }
+        boolean changed = engine.apply(action);
+        if (log != null) {
+          log.println();
+          log.print(engine.renderMap());
+          log.println();
+        }
+        if (engine.isWon()) {
+          return WON;
+        } else if (engine.isLost()) {
+          return LOST;
+        } else if (engine.getNumMoves() >= maxMoves) {
+          return OUT_OF_MOVES;
+        }
+        engine.observe(view);
+        if (!changed && isBatch) {
+          break; // stop the batch at the action that had no effect
+        }
+        ++applied;
+      }
+
+      if (isBatch) {
+        channel.writeBatchResult(applied, engine);
+      } else {
+        channel.writeView(engine);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of messages received from the player, each a single
+   * action, a batch or a request
+   *
+   * @return number of round trips
+   */
+  public int getNumRoundTrips() {
+    return numRoundTrips;
+  }
+}
@@ -0,0 +1,353 @@
+import java.util.*;
+
+/**
+ * HomeDistanceField class keeps, for every tile, the number of steps it takes
+ * to walk from it to the origin with the tools we have: a breadth-first distance
+ * field rooted at the origin. Tiles that become passable lower the distances
+ * around them straight away, so the field is always ready when the treasure is
+ * picked up. Tiles that stop being passable (which is rare) or a new tool make
+ * the field get rebuilt the next time it is asked for. FrontierTour keeps fields
+ * rooted at other tiles in the same way.
+ *
+ * @author Yufan Zou
+ */
+public class HomeDistanceField {
+  // Distance of a tile that cannot be walked home from
+  final static int UNREACHABLE = -1;
+
+  private final static int SIZE = 2 * State.MAX_SIZE + 1;
+
+  // How x and y change with a step in each direction, in the order of
+  // State.UP, RIGHT, DOWN and LEFT
+  private final static int[] DX = { 0, 1, 0, -1 };
+  private final static int[] DY = { 1, 0, -1, 0 };
+
+  private final Map<Coordinate, Character> map;
+
+  // Tile every distance is measured to
+  private final Coordinate root;
+
+  // Distance of each tile, indexed by getIndex
+  private int[] distance;
+  private boolean hasKey;
+  private boolean hasAxe;
+  private boolean needRebuild;
+
+  // Tiles given a distance so far
+  private int nodesExpanded;
+
+  /**
+   * HomeDistanceField class constructor, for when we have no tools.
+   *
+   * @param map
+   *          internal view of the map
+   */
+  public HomeDistanceField(Map<Coordinate, Character> map) {
+    this.map = map;
+    this.root = new Coordinate(0, 0);
+    this.distance = new int[SIZE * SIZE];
+    Arrays.fill(distance, UNREACHABLE);
+    this.needRebuild = false;
+  }
+
+  /**
+   * HomeDistanceField class constructor, for a field rooted at another tile of a
+   * map that has already been revealed. The field is built the first time it is
+   * asked for.
+   *
+   * @param map
+   *          internal view of the map
+   * @param root
+   *          tile the distances are measured to
+   */
+  public HomeDistanceField(Map<Coordinate, Character> map, Coordinate root) {
+    this.map = map;
+    this.root = root;
+    this.distance = new int[SIZE * SIZE];
+    this.needRebuild = true;
+  }
+
+  /**
+   * Copies another distance field onto a copy of its map.
+   *
+   * @param map
+   *          copy of the map the other field was built from
+   * @param other
+   *          the field to copy
+   */
+  public HomeDistanceField(Map<Coordinate, Character> map, HomeDistanceField other) {
+    this.map = map;
+    this.root = other.root;
+    this.distance = other.distance.clone();
+    this.hasKey = other.hasKey;
+    this.hasAxe = other.hasAxe;
+    this.needRebuild = other.needRebuild;
+    this.nodesExpanded = other.nodesExpanded;
+  }
+
+  /**
+   * Records that a tile on the map has changed. A tile that can now be walked
+   * on gets its distance from its neighbours, and the tiles it brings closer to
+   * the origin are lowered from there, in time that grows with the number of
+   * tiles lowered.
+   *
+   * @param tile
+   *          coordinate of the tile that changed
+   * @param oldValue
+   *          char representation of the tile before, or null if it was not set
+   * @param newValue
+   *          char representation of the tile now
+   */
+  public void tileChanged(Coordinate tile, Character oldValue, char newValue) {
+    if ((oldValue != null && oldValue == newValue) || needRebuild) {
+      return;
+    }
+
+    boolean wasPassable = oldValue != null && State.isTilePassable(oldValue, hasKey, hasAxe);
+    boolean isPassable = State.isTilePassable(newValue, hasKey, hasAxe);
+    int index = getIndex(tile.getX(), tile.getY());
+    if (index == -1 || wasPassable == isPassable) {
+      return;
+    }
+
+    if (!isPassable) {
+      needRebuild = true;
+      return;
+    }
+
+    lowerTo(tile, index);
+  }
+
+  /**
+   * Records that a tile on the map has changed, for when what it was before is
+   * not known. A passable tile is treated as if it had just become passable,
+   * which leaves the field as it is if it already was.
+   *
+   * @param tile
+   *          coordinate of the tile that changed
+   */
+  public void tileChanged(Coordinate tile) {
+    int index = getIndex(tile.getX(), tile.getY());
+    if (index == -1 || needRebuild) {
+      return;
+    }
+
+    if (!State.isTilePassable(getTile(index), hasKey, hasAxe)) {
+      needRebuild = distance[index] != UNREACHABLE;
+      return;
+    }
+
+    lowerTo(tile, index);
+  }
+
+  /**
+   * Returns the number of tiles the field has given a distance to since it was
+   * made, including those given again by rebuilds
+   *
+   * @return number of nodes expanded
+   */
+  public int getNodesExpanded() {
+    return nodesExpanded;
+  }
+
+  /**
+   * Gives a passable tile its distance from its neighbours, and lowers the tiles
+   * it brings closer to the root from there.
+   *
+   * @param tile
+   *          coordinate of the tile
+   * @param index
+   *          index of the tile
+   */
+  private void lowerTo(Coordinate tile, int index) {
+    int d = tile.equals(root) ? 0 : UNREACHABLE;
+    for (int direction = 0; direction < 4; ++direction) {
+      int n = getIndex(tile.getX() + DX[direction], tile.getY() + DY[direction]);
+      if (n != -1 && distance[n] != UNREACHABLE && (d == UNREACHABLE || distance[n] + 1 < d)) {
+        d = distance[n] + 1;
+      }
+    }
+    if (d != UNREACHABLE) {
+      distance[index] = d;
+      lowerFrom(index);
+    }
+  }
+
+  /**
+   * Returns the number of steps to walk from a tile to the origin, doors and
+   * trees counting as one step each if we can get through them.
+   *
+   * @param tile
+   *          tile that we are looking at
+   * @param hasKey
+   *          boolean of if we have key
+   * @param hasAxe
+   *          boolean of if we have axe
+   * @return number of steps, or UNREACHABLE if the origin cannot be walked to
+   */
+  public int getDistance(Coordinate tile, boolean hasKey, boolean hasAxe) {
+    rebuildIfNeeded(hasKey, hasAxe);
+
+    int index = getIndex(tile.getX(), tile.getY());
+    return index == -1 ? UNREACHABLE : distance[index];
+  }
+
+  /**
+   * Finds a shortest way home by walking down the field, one step closer each
+   * time, with no search. Where two steps are as good, going straight on is
+   * preferred so the path needs fewer turns.
+   *
+   * @param start
+   *          tile we are starting from
+   * @param direction
+   *          direction we are facing
+   * @param hasKey
+   *          boolean of if we have key
+   * @param hasAxe
+   *          boolean of if we have axe
+   * @return returns the path from the origin back to (but not including) the
+   *         start, empty if the origin cannot be walked to
+   */
+  public LinkedList<Coordinate> getPathHome(Coordinate start, int direction, boolean hasKey, boolean hasAxe) {
+    LinkedList<Coordinate> path = new LinkedList<>();
+    int d = getDistance(start, hasKey, hasAxe);
+    int x = start.getX();
+    int y = start.getY();
+
+    while (d > 0) {
+      int best = -1;
+      for (int k = 0; k < 4 && (best == -1 || best != direction); ++k) {
+        int next = k == 0 ? direction : order(direction, k);
+        if (getDistance(x, y, next, 1) != d - 1) {
+          continue;
+        }
+        // Of the turns, take one we could go straight on from
+        if (best == -1 || (getDistance(x, y, best, 2) != d - 2 && getDistance(x, y, next, 2) == d - 2)) {
+          best = next;
+        }
+      }
+      x += DX[best];
+      y += DY[best];
+      direction = best;
+      path.addFirst(new Coordinate(x, y));
+      --d;
+    }
+
+    return path;
+  }
+
+  /**
+   * Returns the distance of the tile some steps away in a direction
+   *
+   * @param x
+   *          x coordinate of the tile we are on
+   * @param y
+   *          y coordinate of the tile we are on
+   * @param direction
+   *          direction to step in
+   * @param numSteps
+   *          number of steps
+   * @return distance of that tile, UNREACHABLE if it is off the board
+   */
+  private int getDistance(int x, int y, int direction, int numSteps) {
+    int n = getIndex(x + numSteps * DX[direction], y + numSteps * DY[direction]);
+    return n == -1 ? UNREACHABLE : distance[n];
+  }
+
+  /**
+   * Returns the k-th of the other directions than the one we face, in the order
+   * of State.UP, RIGHT, DOWN and LEFT
+   *
+   * @param direction
+   *          direction we are facing
+   * @param k
+   *          1, 2 or 3
+   * @return returns the direction
+   */
+  private static int order(int direction, int k) {
+    return k - 1 < direction ? k - 1 : k;
+  }
+
+  /**
+   * Lowers the distances of the tiles around one that has just been lowered,
+   * and of the tiles around those, for as long as they come closer to the root.
+   *
+   * @param index
+   *          index of the tile that was lowered
+   */
+  private void lowerFrom(int index) {
+    ArrayDeque<Integer> queue = new ArrayDeque<>();
+    queue.add(index);
+
+    while (!queue.isEmpty()) {
+      int i = queue.remove();
+      ++nodesExpanded;
+      int x = i / SIZE - State.MAX_SIZE;
+      int y = i % SIZE - State.MAX_SIZE;
+      for (int direction = 0; direction < 4; ++direction) {
+        int n = getIndex(x + DX[direction], y + DY[direction]);
+        if (n != -1 && (distance[n] == UNREACHABLE || distance[n] > distance[i] + 1)
+            && State.isTilePassable(getTile(n), hasKey, hasAxe)) {
+          distance[n] = distance[i] + 1;
+          queue.add(n);
+        }
+      }
+    }
+  }
+
+  /**
+   * Works the whole field out again from the root if a tile stopped being
+   * passable or the tools are not the ones it was worked out for. Asking for a
+   * distance does this first.
+   *
+   * @param hasKey
+   *          boolean of if we have key
+   * @param hasAxe
+   *          boolean of if we have axe
+   */
+  public void rebuildIfNeeded(boolean hasKey, boolean hasAxe) {
+    if (!needRebuild && hasKey == this.hasKey && hasAxe == this.hasAxe) {
+      return;
+    }
+
+    this.hasKey = hasKey;
+    this.hasAxe = hasAxe;
+    needRebuild = false;
+    Arrays.fill(distance, UNREACHABLE);
+    int start = getIndex(root.getX(), root.getY());
+    if (start != -1 && State.isTilePassable(getTile(start), hasKey, hasAxe)) {
+      distance[start] = 0;
+      lowerFrom(start);
+    }
+  }
+
+  /**
+   * Returns the tile at an index.
+   *
+   * @param index
+   *          index of the tile
+   * @return char representation of the tile, unknown if it is not set
+   */
+  private char getTile(int index) {
+    Character tile = map.get(new Coordinate(index / SIZE - State.MAX_SIZE, index % SIZE - State.MAX_SIZE));
+    return tile == null ? State.COORDINATE_UNKNOWN : tile;
+  }
+
+  /**
+   * Returns the index of a coordinate on the board.
+   *
+   * @param x
+   *          x coordinate
+   * @param y
+   *          y coordinate
+   * @return index of the coordinate, or -1 if it is off the board
+   */
+  private static int getIndex(int x, int y) {
+    x += State.MAX_SIZE;
+    y += State.MAX_SIZE;
+    if (x < 0 || y < 0 || x >= SIZE || y >= SIZE) {
+      return -1;
+    }
+    return x * SIZE + y;
+  }
+}
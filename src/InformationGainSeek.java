@@ -0,0 +1,167 @@
+import java.util.*;
+
+/**
+ * InformationGainSeek class picks the next tile to explore by how many unknown
+ * tiles standing on it would reveal per move it takes to get there.
+ *
+ * @author Yufan Zou
+ */
+public class InformationGainSeek {
+  private final Coordinate start;
+  private final State state;
+  private final Map<Coordinate, Character> map;
+
+  // Moves from the start to each tile, -1 if it cannot be reached, indexed by
+  // [x + MAX_SIZE][y + MAX_SIZE]
+  private int[][] distance;
+  private List<Coordinate> frontier;
+  private Coordinate best;
+  private int nodesExpanded;
+
+  /**
+   * InformationGainSeek class constructor.
+   *
+   * @param state
+   *          internal state holding the map and its unknown count field.
+   * @param start
+   *          position that the travel cost is measured from.
+   */
+  public InformationGainSeek(State state, Coordinate start) {
+    this.state = state;
+    this.map = state.getMap();
+    this.start = start;
+  }
+
+  /**
+   * getTile performs a single breadth first search from the start position over
+   * the tiles we can pass and returns the reachable tile with the most revealed
+   * tiles per move of travel. Ties go to the closer tile.
+   *
+   * @param hasKey
+   *          boolean value of if we current have key
+   * @param hasAxe
+   *          boolean value of if we current have axe
+   * @return returns the best tile to explore, or the start position if there is
+   *         nothing left to reveal
+   */
+  public Coordinate getTile(boolean hasKey, boolean hasAxe) {
+    search(hasKey, hasAxe);
+    return best;
+  }
+
+  /**
+   * Returns the reachable tiles that would reveal at least one unknown tile, in
+   * order of increasing distance from the start. Only valid after getTile.
+   *
+   * @return returns the frontier tiles as a List
+   */
+  public List<Coordinate> getFrontier() {
+    return frontier;
+  }
+
+  /**
+   * Returns the number of moves needed to get from the start to the given tile.
+   * Only valid after getTile.
+   *
+   * @param tile
+   *          the tile that we want to reach
+   * @return number of moves, or -1 if the tile cannot be reached
+   */
+  public int getDistance(Coordinate tile) {
+    int x = tile.getX() + State.MAX_SIZE;
+    int y = tile.getY() + State.MAX_SIZE;
+
+    if (x < 0 || y < 0 || x >= distance.length || y >= distance.length) {
+      return -1;
+    }
+
+    return distance[x][y];
+  }
+
+  /**
+   * Returns the number of nodes the last search expanded
+   *
+   * @return number of nodes expanded
+   */
+  public int getNodesExpanded() {
+    return nodesExpanded;
+  }
+
+  /**
+   * Breadth first search that fills in the distance field and frontier and keeps
+   * track of the best tile to explore.
+   *
+   * @param hasKey
+   *          boolean value of if we current have key
+   * @param hasAxe
+   *          boolean value of if we current have axe
+   */
+  private void search(boolean hasKey, boolean hasAxe) {
+    int size = 2 * State.MAX_SIZE + 1;
+    distance = new int[size][size];
+    for (int[] column : distance) {
+      Arrays.fill(column, -1);
+    }
+    frontier = new ArrayList<>();
+
+    Queue<Coordinate> q = new ArrayDeque<>();
+    q.add(start);
+    distance[start.getX() + State.MAX_SIZE][start.getY() + State.MAX_SIZE] = 0;
+
+    best = start;
+    int bestGain = 0;
+    int bestDistance = 1;
+
+    while (!q.isEmpty()) {
+      Coordinate curr = q.remove();
+      ++nodesExpanded;
+      int currDistance = distance[curr.getX() + State.MAX_SIZE][curr.getY() + State.MAX_SIZE];
+
+      // Revealed tiles per move, compared without dividing
+      int gain = state.getUnknownCount(curr);
+      if (currDistance > 0 && gain > 0) {
+        frontier.add(curr);
+      }
+      if (currDistance > 0 && gain * bestDistance > bestGain * currDistance) {
+        best = curr;
+        bestGain = gain;
+        bestDistance = currDistance;
+      }
+
+      // add nodes from up, down, left, right
+      for (int i = 0; i < 4; i++) {
+        int neighbourX = curr.getX();
+        int neighbourY = curr.getY();
+
+        if (i == 0) {
+          // right tile
+          neighbourX++;
+        } else if (i == 1) {
+          // left tile
+          neighbourX--;
+        } else if (i == 2) {
+          // up tile
+          neighbourY++;
+        } else if (i == 3) {
+          // down tile
+          neighbourY--;
+        }
+
+        int indexX = neighbourX + State.MAX_SIZE;
+        int indexY = neighbourY + State.MAX_SIZE;
+        if (indexX < 0 || indexY < 0 || indexX >= size || indexY >= size || distance[indexX][indexY] != -1) {
+          continue;
+        }
+
+        Coordinate neighbour = new Coordinate(neighbourX, neighbourY);
+        Character tile = map.get(neighbour);
+        if (tile == null || !State.isTilePassable(tile, hasKey, hasAxe)) {
+          continue;
+        }
+
+        distance[indexX][indexY] = currDistance + 1;
+        q.add(neighbour);
+      }
+    }
+  }
+}
@@ -0,0 +1,783 @@
+import java.util.*;
+
+/**
+ * IslandGraph class keeps an abstract view of the board where every island of
+ * land we can walk around freely is a node, and the doors, trees and water that
+ * separate islands are edges labelled with what we need to get across them.
+ * Islands are kept up to date as tiles are revealed, and edges are worked out
+ * again only when a tile that matters to them has changed: a door, tree or
+ * water tile, land next to one, or land joining two islands. The player
+ * walking and turning, or picking up a stone, leaves the edges as they are.
+ *
+ * @author Yufan Zou
+ */
+public class IslandGraph {
+  // What we need to get across an edge
+  final static int GATE_DOOR = 0;
+  final static int GATE_TREE = 1;
+  final static int GATE_WATER = 2;
+
+  // Most states findStoneRoute looks at before giving up, and most ways onto
+  // one island it tries from each
+  final static int MAX_ROUTE_STATES = 500;
+  final static int MAX_LANDINGS = 4;
+
+
+  private final static int SIZE = 2 * State.MAX_SIZE + 1;
+
+  private final Map<Coordinate, Character> map;
+
+  // Union-find over tiles, indexed by getIndex; -1 for tiles that are not land
+  private int[] parent;
+  private boolean needRebuild;
+
+  private List<Edge> edges;
+  private boolean edgesChanged;
+
+  /**
+   * An edge between two islands that crosses a run of tiles of one gate type.
+   */
+  public static class Edge {
+    private final int from;
+    private final int to;
+    private final int gate;
+    private final int numTiles;
+
+    /**
+     * Edge class constructor.
+     *
+     * @param from
+     *          island the edge starts from
+     * @param to
+     *          island the edge ends at
+     * @param gate
+     *          type of tile being crossed
+     * @param numTiles
+     *          number of gate tiles crossed
+     */
+    Edge(int from, int to, int gate, int numTiles) {
+      this.from = from;
+      this.to = to;
+      this.gate = gate;
+      this.numTiles = numTiles;
+    }
+
+    /**
+     * Gets the island the edge starts from
+     *
+     * @return returns island id as an int
+     */
+    public int getFrom() {
+      return from;
+    }
+
+    /**
+     * Gets the island the edge ends at
+     *
+     * @return returns island id as an int
+     */
+    public int getTo() {
+      return to;
+    }
+
+    /**
+     * Gets the type of tile crossed, one of GATE_DOOR, GATE_TREE or GATE_WATER
+     *
+     * @return returns gate type as an int
+     */
+    public int getGate() {
+      return gate;
+    }
+
+    /**
+     * Gets the number of gate tiles crossed, which is the number of stepping
+     * stones needed for water
+     *
+     * @return returns number of tiles as an int
+     */
+    public int getNumTiles() {
+      return numTiles;
+    }
+  }
+
+  /**
+   * IslandGraph class constructor.
+   *
+   * @param map
+   *          internal view of the map
+   */
+  public IslandGraph(Map<Coordinate, Character> map) {
+    this.map = map;
+    this.parent = new int[SIZE * SIZE];
+    Arrays.fill(parent, -1);
+    this.needRebuild = false;
+    this.edges = new ArrayList<>();
+    this.edgesChanged = true;
+  }
+
+  /**
+   * Copies another island graph onto a copy of its map.
+   *
+   * @param map
+   *          copy of the map the other graph was built from
+   * @param other
+   *          the graph to copy
+   */
+  public IslandGraph(Map<Coordinate, Character> map, IslandGraph other) {
+    this.map = map;
+    this.parent = other.parent.clone();
+    this.needRebuild = other.needRebuild;
+    this.edges = new ArrayList<>(other.edges);
+    this.edgesChanged = other.edgesChanged;
+  }
+
+  /**
+   * Records that a tile on the map has changed. New land is merged with the
+   * islands around it straight away; land disappearing (which is rare) makes the
+   * islands get rebuilt the next time they are asked for.
+   *
+   * @param tile
+   *          coordinate of the tile that changed
+   * @param oldValue
+   *          char representation of the tile before, or null if it was not set
+   * @param newValue
+   *          char representation of the tile now
+   */
+  public void tileChanged(Coordinate tile, Character oldValue, char newValue) {
+    boolean wasLand = oldValue != null && isLand(oldValue);
+    int oldGate = oldValue == null ? -1 : getGate(oldValue);
+    if (wasLand == isLand(newValue) && oldGate == getGate(newValue)) {
+      return;
+    }
+
+    boolean merged = false;
+    if (wasLand && !isLand(newValue)) {
+      needRebuild = true;
+    } else if (!wasLand && isLand(newValue) && !needRebuild) {
+      merged = addLand(tile);
+    }
+
+    if (merged || oldGate != -1 || getGate(newValue) != -1 || isNextToGate(tile)) {
+      edgesChanged = true;
+    }
+  }
+
+  /**
+   * Returns the island that a tile belongs to.
+   *
+   * @param tile
+   *          tile that we are looking at
+   * @return island id, or -1 if the tile is not land
+   */
+  public int getIsland(Coordinate tile) {
+    rebuildIfNeeded();
+
+    int index = getIndex(tile.getX(), tile.getY());
+    if (index == -1 || parent[index] == -1) {
+      return -1;
+    }
+
+    return find(index);
+  }
+
+  /**
+   * Returns every edge between islands, in both directions.
+   *
+   * @return returns the edges as a List
+   */
+  public List<Edge> getEdges() {
+    rebuildIfNeeded();
+
+    if (edgesChanged) {
+      List<Integer> landTiles = new ArrayList<>();
+      for (int i = 0; i < parent.length; ++i) {
+        if (parent[i] != -1) {
+          landTiles.add(i);
+        }
+      }
+
+      edges = new ArrayList<>();
+      for (int gate = GATE_DOOR; gate <= GATE_WATER; ++gate) {
+        addEdgesThrough(gate, landTiles);
+      }
+      edgesChanged = false;
+    }
+
+    return edges;
+  }
+
+  /**
+   * Finds a way from the island of one tile to the island of another over land,
+   * doors and trees with the tools we have. Doors need the key and trees need
+   * the axe.
+   *
+   * @param start
+   *          tile we are starting from
+   * @param goal
+   *          tile we want to get to
+   * @param hasKey
+   *          boolean of if we have key
+   * @param hasAxe
+   *          boolean of if we have axe
+   * @return returns the edges to cross in order, an empty list if both tiles are
+   *         on the same island, or null if the goal cannot be reached
+   */
+  public List<Edge> findRoute(Coordinate start, Coordinate goal, boolean hasKey, boolean hasAxe) {
+    int startIsland = getIsland(start);
+    int goalIsland = getIsland(goal);
+    if (startIsland == -1 || goalIsland == -1) {
+      return null;
+    }
+
+    Map<Integer, List<Edge>> adjacent = new HashMap<>();
+    for (Edge edge : getEdges()) {
+      adjacent.computeIfAbsent(edge.getFrom(), k -> new ArrayList<>()).add(edge);
+    }
+
+    // Breadth first search over islands, remembering the edge into each one
+    Map<Integer, Edge> via = new HashMap<>();
+    Set<Integer> visited = new HashSet<>();
+    Queue<Integer> q = new ArrayDeque<>();
+    visited.add(startIsland);
+    q.add(startIsland);
+
+    while (!q.isEmpty()) {
+      int island = q.remove();
+      if (island == goalIsland) {
+        LinkedList<Edge> route = new LinkedList<>();
+        for (int u = island; via.containsKey(u); u = via.get(u).getFrom()) {
+          route.addFirst(via.get(u));
+        }
+        return route;
+      }
+
+      for (Edge edge : adjacent.getOrDefault(island, Collections.emptyList())) {
+        boolean canCross = (edge.getGate() == GATE_DOOR && hasKey) || (edge.getGate() == GATE_TREE && hasAxe);
+        if (canCross && visited.add(edge.getTo())) {
+          via.put(edge.getTo(), edge);
+          q.add(edge.getTo());
+        }
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Plans which stepping stones to pick up on the way across the water to a
+   * goal we hold too few stones to reach. The search is over the land reached
+   * so far and the stones we would hold there. Each step crosses the water to
+   * one more island along a shortest way, placing a stone on every water tile,
+   * and picks up every stone on that island. Placed stones stay, so later
+   * crossings can start from them, which is why this works on tiles rather
+   * than on the edges between islands. The ways with the fewest crossings are
+   * looked at first.
+   *
+   * @param start
+   *          tile we are starting from
+   * @param goal
+   *          tile we want to get to
+   * @param hasKey
+   *          boolean of if we have key
+   * @param hasAxe
+   *          boolean of if we have axe
+   * @param numStones
+   *          number of stepping stones we have
+   * @param stones
+   *          tiles with a stepping stone on them
+   * @return returns the crossings to make in order, an empty list if the goal
+   *         can be walked to, or null if no way was found among the first
+   *         MAX_ROUTE_STATES looked at
+   */
+  public List<Crossing> findStoneRoute(Coordinate start, Coordinate goal, boolean hasKey, boolean hasAxe,
+      int numStones, Collection<Coordinate> stones) {
+    int startIndex = getIndex(start.getX(), start.getY());
+    int goalIndex = getIndex(goal.getX(), goal.getY());
+    if (startIndex == -1 || goalIndex == -1) {
+      return null;
+    }
+    rebuildIfNeeded();
+
+    Set<Coordinate> stoneSet = new HashSet<>(stones);
+    StoneRouteState first = new StoneRouteState(new BitSet(), numStones, null, null);
+    first.numStones += flood(first.land, startIndex, hasKey, hasAxe, stoneSet);
+
+    Map<BitSet, Integer> mostStones = new HashMap<>();
+    mostStones.put(first.land, first.numStones);
+    Queue<StoneRouteState> q = new ArrayDeque<>();
+    q.add(first);
+
+    while (!q.isEmpty() && mostStones.size() <= MAX_ROUTE_STATES) {
+      StoneRouteState curr = q.remove();
+      if (curr.land.get(goalIndex)) {
+        LinkedList<Crossing> route = new LinkedList<>();
+        for (StoneRouteState u = curr; u.crossing != null; u = u.previous) {
+          route.addFirst(u.crossing);
+        }
+        return route;
+      }
+
+      for (Crossing crossing : getCrossings(curr.land, curr.numStones)) {
+        StoneRouteState next = new StoneRouteState((BitSet) curr.land.clone(),
+            curr.numStones - crossing.stoneTiles.size(), curr, crossing);
+        for (Coordinate water : crossing.stoneTiles) {
+          next.land.set(getIndex(water.getX(), water.getY()));
+        }
+        next.numStones += flood(next.land, getIndex(crossing.landing.getX(), crossing.landing.getY()), hasKey,
+            hasAxe, stoneSet);
+
+        Integer most = mostStones.get(next.land);
+        if (most == null || most < next.numStones) {
+          mostStones.put(next.land, next.numStones);
+          q.add(next);
+        }
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * A way across the water onto an island that findStoneRoute plans.
+   */
+  public static class Crossing {
+    private final List<Coordinate> stoneTiles;
+    private final Coordinate landing;
+
+    /**
+     * Crossing class constructor.
+     *
+     * @param stoneTiles
+     *          water tiles to place stones on, in the order they are crossed
+     * @param landing
+     *          first tile of the island reached
+     */
+    Crossing(List<Coordinate> stoneTiles, Coordinate landing) {
+      this.stoneTiles = stoneTiles;
+      this.landing = landing;
+    }
+
+    /**
+     * Gets the water tiles to place stones on, in the order they are crossed
+     *
+     * @return returns the water tiles as a List
+     */
+    public List<Coordinate> getStoneTiles() {
+      return stoneTiles;
+    }
+
+    /**
+     * Gets the first tile of the island reached
+     *
+     * @return returns the landing tile
+     */
+    public Coordinate getLanding() {
+      return landing;
+    }
+  }
+
+  /**
+   * The land findStoneRoute has reached, the stones we would hold there and
+   * the crossing that got there from the state before.
+   */
+  private static class StoneRouteState {
+    private final BitSet land;
+    private int numStones;
+    private final StoneRouteState previous;
+    private final Crossing crossing;
+
+    private StoneRouteState(BitSet land, int numStones, StoneRouteState previous, Crossing crossing) {
+      this.land = land;
+      this.numStones = numStones;
+      this.previous = previous;
+      this.crossing = crossing;
+    }
+  }
+
+  /**
+   * Finds the cheapest ways across the water from the land reached to each
+   * island we have the stones for, with a breadth first search out over the
+   * water. Up to MAX_LANDINGS ways onto each island are kept, ending at
+   * different water tiles, since which tiles get stones decides what can be
+   * reached from them later.
+   *
+   * @param land
+   *          tiles reached so far
+   * @param numStones
+   *          number of stones we would hold
+   * @return returns the crossings
+   */
+  private List<Crossing> getCrossings(BitSet land, int numStones) {
+    Map<Integer, Integer> distance = new HashMap<>();
+    Map<Integer, Integer> from = new HashMap<>();
+    Queue<Integer> q = new ArrayDeque<>();
+    for (int i = land.nextSetBit(0); i >= 0; i = land.nextSetBit(i + 1)) {
+      distance.put(i, 0);
+      q.add(i);
+    }
+
+    // Ways onto each island as {last water tile, landing tile}; the search
+    // finds the cheapest first
+    Map<Integer, List<int[]>> ways = new LinkedHashMap<>();
+
+    while (!q.isEmpty()) {
+      int curr = q.remove();
+      int currDistance = distance.get(curr);
+
+      for (int neighbour : getNeighbours(curr)) {
+        if (land.get(neighbour)) {
+          continue;
+        }
+
+        if (getTile(neighbour) == '~') {
+          if (currDistance < numStones && !distance.containsKey(neighbour)) {
+            distance.put(neighbour, currDistance + 1);
+            from.put(neighbour, curr);
+            q.add(neighbour);
+          }
+        } else if (parent[neighbour] != -1 && currDistance > 0) {
+          List<int[]> onto = ways.computeIfAbsent(find(neighbour), k -> new ArrayList<>());
+          if (onto.size() < MAX_LANDINGS && distance.get(onto.isEmpty() ? curr : onto.get(0)[0]) == currDistance
+              && onto.stream().noneMatch(way -> way[0] == curr)) {
+            onto.add(new int[] { curr, neighbour });
+          }
+        }
+      }
+    }
+
+    List<Crossing> crossings = new ArrayList<>();
+    for (List<int[]> onto : ways.values()) {
+      for (int[] way : onto) {
+        LinkedList<Coordinate> stoneTiles = new LinkedList<>();
+        for (int u = way[0]; !land.get(u); u = from.get(u)) {
+          stoneTiles.addFirst(getCoordinate(u));
+        }
+        crossings.add(new Crossing(stoneTiles, getCoordinate(way[1])));
+      }
+    }
+
+    return crossings;
+  }
+
+  /**
+   * Adds the tiles that can be walked to from a tile with the tools we have to
+   * the land reached.
+   *
+   * @param land
+   *          tiles reached so far, added to
+   * @param index
+   *          index of the tile to walk from
+   * @param hasKey
+   *          boolean of if we have key
+   * @param hasAxe
+   *          boolean of if we have axe
+   * @param stones
+   *          tiles with a stepping stone on them
+   * @return returns the number of stones on the tiles added
+   */
+  private int flood(BitSet land, int index, boolean hasKey, boolean hasAxe, Set<Coordinate> stones) {
+    int numStones = 0;
+    Queue<Integer> q = new ArrayDeque<>();
+    land.set(index);
+    q.add(index);
+
+    while (!q.isEmpty()) {
+      int curr = q.remove();
+      if (stones.contains(getCoordinate(curr))) {
+        ++numStones;
+      }
+
+      for (int neighbour : getNeighbours(curr)) {
+        if (!land.get(neighbour) && State.isTilePassable(getTile(neighbour), hasKey, hasAxe)) {
+          land.set(neighbour);
+          q.add(neighbour);
+        }
+      }
+    }
+
+    return numStones;
+  }
+
+  /**
+   * Tests whether a tile can be walked on without any tools, which is what makes
+   * up an island.
+   *
+   * @param tile
+   *          char representation of the tile
+   * @return boolean value of whether the tile is land
+   */
+  static boolean isLand(char tile) {
+    return tile != State.COORDINATE_TEMPORARY_WATER && State.isTilePassable(tile, false, false);
+  }
+
+  /**
+   * Returns the gate type of a tile.
+   *
+   * @param tile
+   *          char representation of the tile
+   * @return gate type, or -1 if the tile is not a gate
+   */
+  private static int getGate(char tile) {
+    if (tile == '-') {
+      return GATE_DOOR;
+    } else if (tile == 'T') {
+      return GATE_TREE;
+    } else if (tile == '~' || tile == State.COORDINATE_TEMPORARY_WATER) {
+      return GATE_WATER;
+    }
+    return -1;
+  }
+
+  /**
+   * Adds the edges that cross one type of gate tile. Every island floods outwards
+   * through the gate tiles next to it at the same time; where two floods meet, or
+   * a flood reaches another island's shore, the two islands get an edge.
+   *
+   * @param gate
+   *          type of gate tile to cross
+   * @param landTiles
+   *          indices of every land tile
+   */
+  private void addEdgesThrough(int gate, List<Integer> landTiles) {
+    Map<Integer, Integer> label = new HashMap<>();
+    Map<Integer, Integer> distance = new HashMap<>();
+    Map<Long, Integer> numTiles = new HashMap<>();
+    Queue<Integer> q = new ArrayDeque<>();
+
+    // Start from gate tiles right next to land
+    for (int i : landTiles) {
+      for (int neighbour : getNeighbours(i)) {
+        if (!label.containsKey(neighbour) && getGate(getTile(neighbour)) == gate) {
+          label.put(neighbour, find(i));
+          distance.put(neighbour, 1);
+          q.add(neighbour);
+        }
+      }
+    }
+
+    while (!q.isEmpty()) {
+      int curr = q.remove();
+      int island = label.get(curr);
+
+      for (int neighbour : getNeighbours(curr)) {
+        if (parent[neighbour] != -1) {
+          // Reached the shore of an island
+          recordCrossing(numTiles, island, find(neighbour), distance.get(curr));
+        } else if (label.containsKey(neighbour)) {
+          // Met the flood from another island
+          recordCrossing(numTiles, island, label.get(neighbour), distance.get(curr) + distance.get(neighbour));
+        } else if (getGate(getTile(neighbour)) == gate) {
+          label.put(neighbour, island);
+          distance.put(neighbour, distance.get(curr) + 1);
+          q.add(neighbour);
+        }
+      }
+    }
+
+    for (Map.Entry<Long, Integer> e : numTiles.entrySet()) {
+      int from = (int) (e.getKey() >> 32);
+      int to = (int) (long) e.getKey();
+      edges.add(new Edge(from, to, gate, e.getValue()));
+      edges.add(new Edge(to, from, gate, e.getValue()));
+    }
+  }
+
+  /**
+   * Keeps the fewest gate tiles found so far between two islands.
+   *
+   * @param numTiles
+   *          fewest tiles so far, keyed by the pair of islands
+   * @param one
+   *          first island
+   * @param two
+   *          second island
+   * @param tiles
+   *          number of gate tiles of this crossing
+   */
+  private static void recordCrossing(Map<Long, Integer> numTiles, int one, int two, int tiles) {
+    if (one == two) {
+      return;
+    }
+
+    long key = ((long) Math.min(one, two) << 32) | Math.max(one, two);
+    if (!numTiles.containsKey(key) || numTiles.get(key) > tiles) {
+      numTiles.put(key, tiles);
+    }
+  }
+
+  /**
+   * Makes a new land tile its own island and merges it with any land next to it.
+   * A tile next to a single island just joins it, keeping that island's id.
+   *
+   * @param tile
+   *          coordinate of the new land tile
+   * @return boolean value of whether two islands were merged into one
+   */
+  private boolean addLand(Coordinate tile) {
+    int index = getIndex(tile.getX(), tile.getY());
+    if (index == -1) {
+      return false;
+    }
+
+    parent[index] = index;
+    int island = -1;
+    boolean merged = false;
+    for (int neighbour : getNeighbours(index)) {
+      if (parent[neighbour] != -1) {
+        int root = find(neighbour);
+        merged |= island != -1 && root != island;
+        union(neighbour, index);
+        island = find(index);
+      }
+    }
+
+    return merged;
+  }
+
+  /**
+   * Tests whether a tile has a door, tree or water tile next to it.
+   *
+   * @param tile
+   *          coordinate of the tile
+   * @return boolean value of whether a gate tile is next to it
+   */
+  private boolean isNextToGate(Coordinate tile) {
+    int index = getIndex(tile.getX(), tile.getY());
+    if (index == -1) {
+      return false;
+    }
+
+    for (int neighbour : getNeighbours(index)) {
+      if (getGate(getTile(neighbour)) != -1) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Works out every island again from the map if land has disappeared.
+   */
+  private void rebuildIfNeeded() {
+    if (!needRebuild) {
+      return;
+    }
+
+    needRebuild = false;
+    Arrays.fill(parent, -1);
+    for (Map.Entry<Coordinate, Character> e : map.entrySet()) {
+      if (isLand(e.getValue())) {
+        addLand(e.getKey());
+      }
+    }
+    edgesChanged = true;
+  }
+
+  /**
+   * Finds the island id of a land tile, flattening the tree as it goes.
+   *
+   * @param index
+   *          index of the land tile
+   * @return returns the island id
+   */
+  private int find(int index) {
+    int root = index;
+    while (parent[root] != root) {
+      root = parent[root];
+    }
+
+    while (parent[index] != root) {
+      int next = parent[index];
+      parent[index] = root;
+      index = next;
+    }
+
+    return root;
+  }
+
+  /**
+   * Merges the islands of two land tiles.
+   *
+   * @param one
+   *          index of the first land tile
+   * @param two
+   *          index of the second land tile
+   */
+  private void union(int one, int two) {
+    int rootOne = find(one);
+    int rootTwo = find(two);
+    if (rootOne != rootTwo) {
+      parent[rootTwo] = rootOne;
+    }
+  }
+
+  /**
+   * Returns the indices of the tiles up, down, left and right of a tile that are
+   * on the board.
+   *
+   * @param index
+   *          index of the tile in the middle
+   * @return returns the neighbouring indices
+   */
+  private static List<Integer> getNeighbours(int index) {
+    int x = index / SIZE;
+    int y = index % SIZE;
+    List<Integer> neighbours = new ArrayList<>(4);
+
+    if (x + 1 < SIZE) {
+      neighbours.add(index + SIZE);
+    }
+    if (x > 0) {
+      neighbours.add(index - SIZE);
+    }
+    if (y + 1 < SIZE) {
+      neighbours.add(index + 1);
+    }
+    if (y > 0) {
+      neighbours.add(index - 1);
+    }
+
+    return neighbours;
+  }
+
+  /**
+   * Returns the tile at an index.
+   *
+   * @param index
+   *          index of the tile
+   * @return char representation of the tile, unknown if it is not set
+   */
+  private char getTile(int index) {
+    Character tile = map.get(new Coordinate(index / SIZE - State.MAX_SIZE, index % SIZE - State.MAX_SIZE));
+    return tile == null ? State.COORDINATE_UNKNOWN : tile;
+  }
+
+  /**
+   * Returns the coordinate of an index.
+   *
+   * @param index
+   *          index of the tile
+   * @return returns the coordinate
+   */
+  private static Coordinate getCoordinate(int index) {
+    return new Coordinate(index / SIZE - State.MAX_SIZE, index % SIZE - State.MAX_SIZE);
+  }
+
+  /**
+   * Returns the index of a coordinate on the board.
+   *
+   * @param x
+   *          x coordinate
+   * @param y
+   *          y coordinate
+   * @return index of the coordinate, or -1 if it is off the board
+   */
+  private static int getIndex(int x, int y) {
+    x += State.MAX_SIZE;
+    y += State.MAX_SIZE;
+    if (x < 0 || y < 0 || x >= SIZE || y >= SIZE) {
+      return -1;
+    }
+    return x * SIZE + y;
+  }
+}
@@ -0,0 +1,642 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * MapGenerator class writes random maps in the same format Step reads, for
+ * testing the agent on maps much larger than the sample ones. The same seed
+ * always gives the same map.
+ *
+ * Maps are solvable by construction. Islands are grown from random centres with
+ * water between them and are visited as a chain from the start island to the
+ * treasure island. The axe and key lie on the start island where they can be
+ * reached without any tools, walls never cut off part of an island that matters,
+ * and every island holds enough stepping stones to bridge the narrowest water
+ * to the next island in the chain. Stones stay in place, so the way back is open
+ * too.
+ *
+ * The axe, key and treasure can be put on other islands of the chain instead,
+ * numbered from 0 for the start island. Islands up to and including the one
+ * the axe is on have no trees, and likewise doors for the key, so each tool can
+ * be reached before it is needed.
+ *
+ * Usage: java MapGenerator [-w width] [-h height] [-n islands] [-water d]
+ * [-trees d] [-doors d] [-walls d] [-stones n] [-axe i] [-key i] [-treasure i]
+ * [-seed s] [-o file]
+ *
+ * @author Yufan Zou
+ */
+public class MapGenerator {
+  private final int width;
+  private final int height;
+  private final Random random;
+
+  private int numIslands = 4;
+  private double waterDensity = 0.5;
+  private double treeDensity = 0.05;
+  private double doorDensity = 0.01;
+  private double wallDensity = 0.05;
+  private int extraStones = 0;
+  // Islands the axe, key and treasure are on, -1 for the last island
+  private int axeIsland = 0;
+  private int keyIsland = 0;
+  private int treasureIsland = -1;
+
+  private char[][] map;
+  // Island each tile belongs to, -1 for water, indexed by [row][col]
+  private int[][] island;
+
+  /**
+   * MapGenerator class constructor.
+   *
+   * @param width
+   *          number of columns
+   * @param height
+   *          number of rows
+   * @param seed
+   *          seed of the random numbers
+   */
+  public MapGenerator(int width, int height, long seed) {
+    if (width < 8 || height < 8) {
+      throw new IllegalArgumentException("Map must be at least 8x8");
+    }
+    this.width = width;
+    this.height = height;
+    this.random = new Random(seed);
+  }
+
+  /**
+   * Sets the number of islands, including the start and treasure islands.
+   *
+   * @param numIslands
+   *          number of islands, at least 1
+   */
+  public void setNumIslands(int numIslands) {
+    this.numIslands = Math.max(1, numIslands);
+  }
+
+  /**
+   * Sets the fraction of the map that is water.
+   *
+   * @param waterDensity
+   *          fraction between 0 and 1
+   */
+  public void setWaterDensity(double waterDensity) {
+    this.waterDensity = waterDensity;
+  }
+
+  /**
+   * Sets the fraction of land tiles that are trees.
+   *
+   * @param treeDensity
+   *          fraction between 0 and 1
+   */
+  public void setTreeDensity(double treeDensity) {
+    this.treeDensity = treeDensity;
+  }
+
+  /**
+   * Sets the fraction of land tiles that are doors.
+   *
+   * @param doorDensity
+   *          fraction between 0 and 1
+   */
+  public void setDoorDensity(double doorDensity) {
+    this.doorDensity = doorDensity;
+  }
+
+  /**
+   * Sets the fraction of land tiles that are walls.
+   *
+   * @param wallDensity
+   *          fraction between 0 and 1
+   */
+  public void setWallDensity(double wallDensity) {
+    this.wallDensity = wallDensity;
+  }
+
+  /**
+   * Sets how many stepping stones to scatter on top of the ones needed.
+   *
+   * @param extraStones
+   *          number of extra stones
+   */
+  public void setExtraStones(int extraStones) {
+    this.extraStones = Math.max(0, extraStones);
+  }
+
+  /**
+   * Sets which island of the chain the axe is on. Islands past the last one
+   * that could be grown mean the last one.
+   *
+   * @param axeIsland
+   *          island number, 0 for the start island
+   */
+  public void setAxeIsland(int axeIsland) {
+    this.axeIsland = Math.max(0, axeIsland);
+  }
+
+  /**
+   * Sets which island of the chain the key is on. Islands past the last one
+   * that could be grown mean the last one.
+   *
+   * @param keyIsland
+   *          island number, 0 for the start island
+   */
+  public void setKeyIsland(int keyIsland) {
+    this.keyIsland = Math.max(0, keyIsland);
+  }
+
+  /**
+   * Sets which island of the chain the treasure is on, the last one by default.
+   * Islands past the last one that could be grown mean the last one.
+   *
+   * @param treasureIsland
+   *          island number, 0 for the start island
+   */
+  public void setTreasureIsland(int treasureIsland) {
+    this.treasureIsland = Math.max(0, treasureIsland);
+  }
+
+  /**
+   * Generates a new map.
+   *
+   * @return returns the rows of the map
+   */
+  public char[][] generate() {
+    map = new char[height][width];
+    island = new int[height][width];
+    for (int r = 0; r < height; ++r) {
+      Arrays.fill(map[r], '~');
+      Arrays.fill(island[r], -1);
+    }
+
+    List<int[]> centres = growIslands();
+    int numGrown = centres.size();
+    int axeOn = Math.min(axeIsland, numGrown - 1);
+    int keyOn = Math.min(keyIsland, numGrown - 1);
+    int treasureOn = treasureIsland == -1 ? numGrown - 1 : Math.min(treasureIsland, numGrown - 1);
+
+    // Keep the start clear so the tools next to it can always be reached
+    int[] start = centres.get(0);
+    placeObstacles(centres, axeOn, keyOn);
+
+    // Tiles of each island that can be reached once we have the axe and key
+    List<List<int[]>> reachable = new ArrayList<>();
+    boolean[][] reached = new boolean[height][width];
+    for (int i = 0; i < numGrown; ++i) {
+      reachable.add(flood(centres.get(i), reached, true));
+    }
+
+    // Axe and key go where the start can reach with no tools at all, or
+    // anywhere on their own island, which has no trees or doors they would open
+    List<int[]> startArea = flood(start, new boolean[height][width], false);
+    placeItem('a', axeOn == 0 ? startArea : reachable.get(axeOn), start);
+    placeItem('k', keyOn == 0 ? startArea : reachable.get(keyOn), start);
+
+    // Enough stones on each island to cross to the next one
+    for (int i = 0; i + 1 < numGrown; ++i) {
+      int stonesNeeded = getCrossingWidth(reachable.get(i), i + 1, reached);
+      for (int s = 0; s < stonesNeeded; ++s) {
+        placeItem('o', reachable.get(i), start);
+      }
+    }
+    for (int s = 0; s < extraStones; ++s) {
+      placeItem('o', reachable.get(random.nextInt(numGrown)), start);
+    }
+
+    placeItem('$', reachable.get(treasureOn), start);
+    map[start[0]][start[1]] = "^>v<".charAt(random.nextInt(4));
+
+    return map;
+  }
+
+  /**
+   * Grows the islands from random centres until the land covers its share of
+   * the map. Islands never touch, not even at a corner.
+   *
+   * @return returns the centre of each island that could be placed, as
+   *         {row, col}
+   */
+  private List<int[]> growIslands() {
+    int landTiles = (int) ((width - 2) * (height - 2) * (1 - waterDensity));
+    int perIsland = Math.max(9, landTiles / numIslands);
+
+    List<int[]> centres = new ArrayList<>();
+    List<List<int[]>> frontiers = new ArrayList<>();
+    int[] sizes = new int[numIslands];
+
+    for (int i = 0; i < numIslands; ++i) {
+      for (int attempt = 0; attempt < 1000; ++attempt) {
+        int r = 2 + random.nextInt(height - 4);
+        int c = 2 + random.nextInt(width - 4);
+        if (canClaim(r, c, centres.size()) && isFarFromCentres(r, c, centres)) {
+          int[] centre = { r, c };
+          centres.add(centre);
+          frontiers.add(new ArrayList<>());
+          claim(r, c, centres.size() - 1, frontiers.get(centres.size() - 1));
+          sizes[centres.size() - 1] = 1;
+          break;
+        }
+      }
+    }
+    if (centres.isEmpty()) {
+      throw new IllegalStateException("Could not place any island");
+    }
+
+    // Grow the islands in turn, each from a random tile on its edge
+    boolean growing = true;
+    while (growing) {
+      growing = false;
+      for (int i = 0; i < centres.size(); ++i) {
+        List<int[]> frontier = frontiers.get(i);
+        while (sizes[i] < perIsland && !frontier.isEmpty()) {
+          int pick = random.nextInt(frontier.size());
+          int[] tile = frontier.get(pick);
+          frontier.set(pick, frontier.get(frontier.size() - 1));
+          frontier.remove(frontier.size() - 1);
+
+          if (canClaim(tile[0], tile[1], i)) {
+            claim(tile[0], tile[1], i, frontier);
+            ++sizes[i];
+            growing = true;
+            break;
+          }
+        }
+      }
+    }
+
+    return centres;
+  }
+
+  /**
+   * Tests if a water tile can become land of the given island, which it cannot
+   * if it is on the edge of the map or next to another island.
+   *
+   * @param r
+   *          row of the tile
+   * @param c
+   *          column of the tile
+   * @param owner
+   *          island that wants the tile
+   * @return boolean value of whether the tile can be claimed
+   */
+  private boolean canClaim(int r, int c, int owner) {
+    if (r < 1 || c < 1 || r >= height - 1 || c >= width - 1 || island[r][c] != -1) {
+      return false;
+    }
+
+    for (int dr = -1; dr <= 1; ++dr) {
+      for (int dc = -1; dc <= 1; ++dc) {
+        int other = island[r + dr][c + dc];
+        if (other != -1 && other != owner) {
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Tests that a new centre is not too close to the existing ones, so that each
+   * island gets room to grow.
+   *
+   * @param r
+   *          row of the new centre
+   * @param c
+   *          column of the new centre
+   * @param centres
+   *          centres placed so far
+   * @return boolean value of whether the centre is far enough away
+   */
+  private boolean isFarFromCentres(int r, int c, List<int[]> centres) {
+    int minDistance = Math.max(3, (int) Math.sqrt((double) width * height / numIslands) / 2);
+
+    for (int[] centre : centres) {
+      if (Math.abs(centre[0] - r) + Math.abs(centre[1] - c) < minDistance) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Turns a water tile into land of an island and adds its water neighbours to
+   * that island's frontier.
+   *
+   * @param r
+   *          row of the tile
+   * @param c
+   *          column of the tile
+   * @param owner
+   *          island the tile joins
+   * @param frontier
+   *          tiles the island may grow into next
+   */
+  private void claim(int r, int c, int owner, List<int[]> frontier) {
+    island[r][c] = owner;
+    map[r][c] = ' ';
+
+    int[][] neighbours = { { r + 1, c }, { r - 1, c }, { r, c + 1 }, { r, c - 1 } };
+    for (int[] n : neighbours) {
+      if (n[0] > 0 && n[1] > 0 && n[0] < height - 1 && n[1] < width - 1 && island[n[0]][n[1]] == -1) {
+        frontier.add(n);
+      }
+    }
+  }
+
+  /**
+   * Scatters trees, doors and walls over the land, leaving the tiles around each
+   * island's centre clear. Trees are left off the islands up to the axe's
+   * island, and doors off those up to the key's, unless that tool is on the
+   * start island.
+   *
+   * @param centres
+   *          centre of each island as {row, col}, the first being the start
+   * @param axeOn
+   *          island the axe is on
+   * @param keyOn
+   *          island the key is on
+   */
+  private void placeObstacles(List<int[]> centres, int axeOn, int keyOn) {
+    for (int r = 0; r < height; ++r) {
+      for (int c = 0; c < width; ++c) {
+        if (island[r][c] == -1) {
+          continue;
+        }
+        int[] centre = centres.get(island[r][c]);
+        if (Math.abs(r - centre[0]) <= 1 && Math.abs(c - centre[1]) <= 1) {
+          continue;
+        }
+
+        double roll = random.nextDouble();
+        if (roll < wallDensity) {
+          map[r][c] = '*';
+        } else if (roll < wallDensity + treeDensity) {
+          if (axeOn == 0 || island[r][c] > axeOn) {
+            map[r][c] = 'T';
+          }
+        } else if (roll < wallDensity + treeDensity + doorDensity) {
+          if (keyOn == 0 || island[r][c] > keyOn) {
+            map[r][c] = '-';
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Finds the land tiles connected to a starting tile without crossing water or
+   * walls.
+   *
+   * @param from
+   *          tile to start from as {row, col}
+   * @param reached
+   *          tiles found so far, updated with the new ones
+   * @param withTools
+   *          whether trees and doors can be passed
+   * @return returns the newly found tiles
+   */
+  private List<int[]> flood(int[] from, boolean[][] reached, boolean withTools) {
+    List<int[]> tiles = new ArrayList<>();
+    Deque<int[]> q = new ArrayDeque<>();
+
+    reached[from[0]][from[1]] = true;
+    q.add(from);
+
+    while (!q.isEmpty()) {
+      int[] tile = q.remove();
+      tiles.add(tile);
+
+      int[][] neighbours = { { tile[0] + 1, tile[1] }, { tile[0] - 1, tile[1] }, { tile[0], tile[1] + 1 },
+          { tile[0], tile[1] - 1 } };
+      for (int[] n : neighbours) {
+        if (n[0] < 0 || n[1] < 0 || n[0] >= height || n[1] >= width || reached[n[0]][n[1]]) {
+          continue;
+        }
+
+        char ch = map[n[0]][n[1]];
+        if (ch == ' ' || (withTools && (ch == 'T' || ch == '-'))) {
+          reached[n[0]][n[1]] = true;
+          q.add(n);
+        }
+      }
+    }
+
+    return tiles;
+  }
+
+  /**
+   * Works out the fewest water tiles that have to be crossed to get from one
+   * island to the next, walking freely over any reachable land on the way. Found
+   * with a 0-1 breadth first search.
+   *
+   * @param from
+   *          reachable tiles of the island we leave
+   * @param to
+   *          index of the island we want to get to
+   * @param reached
+   *          tiles of all islands that can be reached with the axe and key
+   * @return number of stepping stones needed
+   */
+  private int getCrossingWidth(List<int[]> from, int to, boolean[][] reached) {
+    int[][] distance = new int[height][width];
+    for (int[] row : distance) {
+      Arrays.fill(row, Integer.MAX_VALUE);
+    }
+
+    Deque<int[]> q = new ArrayDeque<>();
+    for (int[] tile : from) {
+      distance[tile[0]][tile[1]] = 0;
+      q.add(tile);
+    }
+
+    while (!q.isEmpty()) {
+      int[] tile = q.removeFirst();
+      int d = distance[tile[0]][tile[1]];
+      if (island[tile[0]][tile[1]] == to && reached[tile[0]][tile[1]]) {
+        return d;
+      }
+
+      int[][] neighbours = { { tile[0] + 1, tile[1] }, { tile[0] - 1, tile[1] }, { tile[0], tile[1] + 1 },
+          { tile[0], tile[1] - 1 } };
+      for (int[] n : neighbours) {
+        if (n[0] < 0 || n[1] < 0 || n[0] >= height || n[1] >= width) {
+          continue;
+        }
+
+        int step;
+        if (map[n[0]][n[1]] == '~') {
+          step = 1;
+        } else if (reached[n[0]][n[1]]) {
+          step = 0;
+        } else {
+          continue; // wall, or land cut off by walls
+        }
+
+        if (d + step < distance[n[0]][n[1]]) {
+          distance[n[0]][n[1]] = d + step;
+          if (step == 0) {
+            q.addFirst(n);
+          } else {
+            q.addLast(n);
+          }
+        }
+      }
+    }
+
+    throw new IllegalStateException("Island " + to + " cannot be reached");
+  }
+
+  /**
+   * Puts an item on a random open tile out of the given ones. If none is open,
+   * a tree or door is cleared for it.
+   *
+   * @param item
+   *          char of the item
+   * @param tiles
+   *          tiles the item may go on
+   * @param start
+   *          start position, which is never used
+   */
+  private void placeItem(char item, List<int[]> tiles, int[] start) {
+    int[] fallback = null;
+
+    for (int attempt = 0; attempt < 4 * tiles.size(); ++attempt) {
+      int[] tile = tiles.get(random.nextInt(tiles.size()));
+      if (tile[0] == start[0] && tile[1] == start[1]) {
+        continue;
+      }
+      if (map[tile[0]][tile[1]] == ' ') {
+        map[tile[0]][tile[1]] = item;
+        return;
+      }
+      if (map[tile[0]][tile[1]] == 'T' || map[tile[0]][tile[1]] == '-') {
+        fallback = tile;
+      }
+    }
+
+    if (fallback == null) {
+      throw new IllegalStateException("No room left for '" + item + "'");
+    }
+    map[fallback[0]][fallback[1]] = item;
+  }
+
+  /**
+   * Writes a map in the format Step reads.
+   *
+   * @param map
+   *          rows of the map
+   * @param fileName
+   *          file to write
+   * @throws IOException
+   *           if the file cannot be written
+   */
+  public static void writeMap(char[][] map, String fileName) throws IOException {
+    try (PrintWriter out = new PrintWriter(new FileWriter(fileName))) {
+      for (char[] row : map) {
+        out.println(row);
+      }
+    }
+  }
+
+  private static void printUsage() {
+    System.out.println("Usage: java MapGenerator [-w width] [-h height] [-n islands] [-water d] [-trees d]"
+        + " [-doors d] [-walls d] [-stones n] [-axe i] [-key i] [-treasure i] [-seed s] [-o file]");
+    System.exit(-1);
+  }
+
+  public static void main(String[] args) {
+    int width = 80;
+    int height = 40;
+    long seed = 0;
+    String outName = null;
+    Map<String, String> options = new HashMap<>();
+
+    for (int k = 0; k < args.length; k += 2) {
+      if (k + 1 >= args.length) {
+        printUsage();
+      }
+      options.put(args[k], args[k + 1]);
+    }
+
+    MapGenerator generator = null;
+    try {
+      for (Map.Entry<String, String> option : options.entrySet()) {
+        switch (option.getKey()) {
+          case "-w":
+            width = Integer.parseInt(option.getValue());
+            break;
+          case "-h":
+            height = Integer.parseInt(option.getValue());
+            break;
+          case "-seed":
+            seed = Long.parseLong(option.getValue());
+            break;
+          case "-o":
+            outName = option.getValue();
+            break;
+          case "-n":
+          case "-water":
+          case "-trees":
+          case "-doors":
+          case "-walls":
+          case "-stones":
+          case "-axe":
+          case "-key":
+          case "-treasure":
+            break;
+          default:
+            printUsage();
+        }
+      }
+
+      generator = new MapGenerator(width, height, seed);
+      if (options.containsKey("-n")) {
+        generator.setNumIslands(Integer.parseInt(options.get("-n")));
+      }
+      if (options.containsKey("-water")) {
+        generator.setWaterDensity(Double.parseDouble(options.get("-water")));
+      }
+      if (options.containsKey("-trees")) {
+        generator.setTreeDensity(Double.parseDouble(options.get("-trees")));
+      }
+      if (options.containsKey("-doors")) {
+        generator.setDoorDensity(Double.parseDouble(options.get("-doors")));
+      }
+      if (options.containsKey("-walls")) {
+        generator.setWallDensity(Double.parseDouble(options.get("-walls")));
+      }
+      if (options.containsKey("-stones")) {
+        generator.setExtraStones(Integer.parseInt(options.get("-stones")));
+      }
+      if (options.containsKey("-axe")) {
+        generator.setAxeIsland(Integer.parseInt(options.get("-axe")));
+      }
+      if (options.containsKey("-key")) {
+        generator.setKeyIsland(Integer.parseInt(options.get("-key")));
+      }
+      if (options.containsKey("-treasure")) {
+        generator.setTreasureIsland(Integer.parseInt(options.get("-treasure")));
+      }
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+      printUsage();
+    }
+
+    try {
+      char[][] map = generator.generate();
+      if (outName == null) {
+        for (char[] row : map) {
+          System.out.println(row);
+        }
+      } else {
+        writeMap(map, outName);
+      }
+    } catch (IOException | IllegalStateException e) {
+      System.out.println(e.getMessage());
+      System.exit(-1);
+    }
+  }
+}
@@ -0,0 +1,200 @@
+/**
+ * MoveDeadline class holds the time budget for deciding one move and counts how
+ * often it was kept. Planning starts the clock with start, searches poll
+ * isExpired and cut themselves short once it is, and end records whether the
+ * move was decided in time. A budget of 0 means no deadline, in which case
+ * isExpired is always false.
+ *
+ * @author Yufan Zou
+ */
+public class MoveDeadline {
+  // Searches only look at the clock once every this many nodes
+  final static int CHECK_INTERVAL = 256;
+
+  private long budgetNanos;
+  private long deadlineNanos;
+  private boolean running;
+
+  private long numMoves;
+  private long numMissed;
+  private long numCutShort;
+  private long numStalls;
+  private long maxNanos;
+  private long startNanos;
+
+  /**
+   * MoveDeadline class constructor.
+   *
+   * @param budgetNanos
+   *          time allowed for each move in nanoseconds, 0 for no deadline
+   */
+  public MoveDeadline(long budgetNanos) {
+    setBudget(budgetNanos);
+  }
+
+  /**
+   * Sets the time allowed for each move from the next start on.
+   *
+   * @param budgetNanos
+   *          time allowed in nanoseconds, 0 for no deadline
+   */
+  public void setBudget(long budgetNanos) {
+    if (budgetNanos < 0) {
+      throw new IllegalArgumentException("Move budget cannot be negative");
+    }
+    this.budgetNanos = budgetNanos;
+  }
+
+  /**
+   * Returns the time allowed for each move
+   *
+   * @return budget in nanoseconds, 0 if there is no deadline
+   */
+  public long getBudget() {
+    return budgetNanos;
+  }
+
+  /**
+   * Indicates if there is a deadline at all
+   *
+   * @return boolean value of if a budget is set
+   */
+  public boolean hasBudget() {
+    return budgetNanos > 0;
+  }
+
+  /**
+   * Starts the clock for one move.
+   */
+  public void start() {
+    startNanos = System.nanoTime();
+    deadlineNanos = startNanos + budgetNanos;
+    running = true;
+  }
+
+  /**
+   * Makes a deadline with the same budget that runs out at the same moment as
+   * this one, but keeps counters of its own, for a planner racing others on
+   * the same move.
+   *
+   * @return returns the copy
+   */
+  public MoveDeadline fork() {
+    MoveDeadline copy = new MoveDeadline(budgetNanos);
+    copy.startNanos = startNanos;
+    copy.deadlineNanos = deadlineNanos;
+    copy.running = running;
+    return copy;
+  }
+
+  /**
+   * Adds the searches cut short and stalling moves of a forked deadline to this
+   * one's.
+   *
+   * @param fork
+   *          deadline returned by fork
+   */
+  public void addCounts(MoveDeadline fork) {
+    numCutShort += fork.numCutShort;
+    numStalls += fork.numStalls;
+  }
+
+  /**
+   * Indicates if the move being decided has run out of time. Always false when
+   * there is no budget or the clock is not running.
+   *
+   * @return boolean value of if the deadline has passed
+   */
+  public boolean isExpired() {
+    return running && budgetNanos > 0 && System.nanoTime() - deadlineNanos >= 0;
+  }
+
+  /**
+   * Records that a search stopped early because the deadline passed. Searches
+   * run side by side by SubgoalEvaluator may call this at the same time.
+   */
+  public synchronized void cutShort() {
+    ++numCutShort;
+  }
+
+  /**
+   * Records that a move was only made to buy time for a search that will carry
+   * on next turn.
+   */
+  public void stall() {
+    ++numStalls;
+  }
+
+  /**
+   * Stops the clock and counts the move, as missed if it took longer than the
+   * budget.
+   */
+  public void end() {
+    if (!running) {
+      return;
+    }
+
+    long nanos = System.nanoTime() - startNanos;
+    ++numMoves;
+    if (budgetNanos > 0 && nanos > budgetNanos) {
+      ++numMissed;
+    }
+    maxNanos = Math.max(maxNanos, nanos);
+    running = false;
+  }
+
+  /**
+   * Returns the number of moves decided
+   *
+   * @return number of moves timed
+   */
+  public long getNumMoves() {
+    return numMoves;
+  }
+
+  /**
+   * Returns the number of moves that took longer than the budget
+   *
+   * @return number of deadline misses
+   */
+  public long getNumMissed() {
+    return numMissed;
+  }
+
+  /**
+   * Returns the number of searches stopped early by the deadline
+   *
+   * @return number of searches cut short
+   */
+  public long getNumCutShort() {
+    return numCutShort;
+  }
+
+  /**
+   * Returns the number of moves made only to buy time
+   *
+   * @return number of stalling moves
+   */
+  public long getNumStalls() {
+    return numStalls;
+  }
+
+  /**
+   * Returns the longest time taken to decide a move
+   *
+   * @return time in nanoseconds
+   */
+  public long getMaxNanos() {
+    return maxNanos;
+  }
+
+  /**
+   * Writes the budget and counters as a JSON object.
+   *
+   * @return returns the counters as JSON
+   */
+  public String toJson() {
+    return "{\"budget_nanos\": " + budgetNanos + ", \"moves\": " + numMoves + ", \"missed\": " + numMissed
+        + ", \"cut_short\": " + numCutShort + ", \"stalls\": " + numStalls + ", \"max_nanos\": " + maxNanos + "}";
+  }
+}
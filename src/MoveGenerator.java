@@ -15,26 +15,98 @@ import java.util.*;
  * @author Yufan Zou
  */
 public class MoveGenerator {
+  // Routes at least this long are planned with ARAStarSearch when there is a
+  // deadline, shorter ones are cheap enough to search for the shortest
+  final static int ANYTIME_MIN_DISTANCE = 80;
+
   private State state;
   private Queue<Character> currMoves;
+  private FrontierTour frontierTour;
+  private DecisionMetrics metrics;
+  private MoveDeadline deadline;
+  // Runs the stone search's candidates side by side, null to run them in turn
+  private SubgoalEvaluator subgoals;
+  // Stages of the decision cascade, asked in order, and what they plan with
+  private List<PlannerStage> stages;
+  private final PlanningContext context = new Context();
+  // Strategy this generator plans with, and the strategies raced instead of
+  // planning alone, null if none
+  private PlannerStrategy strategy;
+  private PlannerPortfolio portfolio;
+
+  // Water crossing searches by goal, made since we last moved or the map last
+  // changed, so one cut short by the deadline carries on next turn
+  private Map<Coordinate, WaterCrossingSearch> crossings;
+  private Coordinate crossingsStart;
+  private int crossingsTileChanges;
+
+  // Flood fill from the player, kept until we move, the map changes or we get
+  // a new tool
+  private FloodFillSearch reachable;
+  private Coordinate reachableStart;
+  private int reachableTileChanges;
+  private boolean reachableKey;
+  private boolean reachableAxe;
+
+  // Number of moves handed out by the last makeMoves, not yet applied
+  private int batchSize;
+
+  // Whether the route being walked is checked against every view, set with
+  // -Dagent.planRepair=true
+  private boolean planRepair;
+  // Whether a water crossing search the deadline cuts short turns the player on
+  // the spot and carries on next turn, set with -Dagent.stallSearches=true;
+  // otherwise it runs on to the end past the deadline
+  private boolean stallSearches;
+  // Route being walked, if the plan is one route on foot: where it ends, how
+  // many steps from its start each of its tiles is, and whether it only goes to
+  // see the unknown tiles around its end; null if there is none
+  private Coordinate planGoal;
+  private Map<Coordinate, Integer> planTiles;
+  private boolean planExplores;
+  // Frontier tile last handed to a stage, null if none this decision
+  private Coordinate frontierTile;
+
+  // View a speculative copy planned for, null on the real generator
+  private char[][] expectedView;
 
   private boolean needKey;
   private boolean needAxe;
   private boolean needStone;
   private boolean needRaft;
 
-  boolean canGetResource;
-  boolean canGetKey;
-  boolean canGetAxe;
-  boolean canGetStone;
-  boolean canReachArea;
+  // Set by a stage that wants the cascade to start again
+  private boolean replanning;
 
   /**
-   * MoveMaker class constructor
+   * MoveMaker class constructor, planning with the stages set by -Dagent.stages
    */
   public MoveGenerator() {
+    this(PlannerStages.fromConfig());
+  }
+
+  /**
+   * MoveMaker class constructor
+   *
+   * @param stages
+   *          stages of the decision cascade, in the order to ask them
+   */
+  public MoveGenerator(List<PlannerStage> stages) {
+    this.stages = new ArrayList<>(stages);
     this.state = new State();
     this.currMoves = new LinkedList<>();
+    this.frontierTour = new FrontierTour(state);
+    this.metrics = new DecisionMetrics(Boolean.getBoolean("agent.metrics"));
+    this.deadline = new MoveDeadline(Long.getLong("agent.moveBudgetMs", 0) * 1000000);
+    this.frontierTour.setDeadline(deadline);
+    this.crossings = new HashMap<>();
+    this.subgoals = SubgoalEvaluator.NUM_THREADS > 0 ? new SubgoalEvaluator() : null;
+    this.frontierTour.setEvaluator(subgoals);
+    this.planRepair = Boolean.getBoolean("agent.planRepair");
+    this.stallSearches = Boolean.getBoolean("agent.stallSearches");
+    this.strategy = PlannerStrategy.CASCADE;
+    String portfolioNames = System.getProperty("agent.portfolio");
+    this.portfolio = portfolioNames == null ? null : new PlannerPortfolio(PlannerStrategy.parse(portfolioNames));
 
     this.needKey = false;
     this.needAxe = false;
@@ -44,271 +116,555 @@ public class MoveGenerator {
   }
 
   /**
-   * Attempts to find the tool that we need to cross a point if we do not have it
-   * currently.
-   * 
-   * @param toolCoordinates
-   *          an ArrayList of where the tools are located
-   * @param isToolAttainable
-   *          if we can access the location of the tool
-   */
-  public void findTool(List<Coordinate> toolCoordinates, boolean isToolAttainable) {
-    char TOOL = ' ';
-    if (toolCoordinates.equals(state.getKeyCoordinates())) {
-      canGetKey = false;
-      TOOL = 'k';
-    } else if (toolCoordinates.equals(state.getAxeCoordinates())) {
-      canGetAxe = false;
-      TOOL = 'a';
-    } else if (toolCoordinates.equals(state.getSSCoordinates())) {
-      canGetStone = false;
-      TOOL = 'o';
-    }
-
-    for (Coordinate location : toolCoordinates) {
-      // Sanity check
-      if (state.getMap().get(location) == null || state.getMap().get(location) != TOOL) {
-        continue;
-      }
-
-      FloodFillSearch newFloodFill = new FloodFillSearch(state.getMap(), state.getPlayerCoordinate(), location);
-      if (newFloodFill.canReach(state.haveKey(), state.haveAxe())) {
-        // Do A* traversal to location
-        AStarToGoal(state.getPlayerCoordinate(), location, state.getDirection(), state.haveKey(), state.haveAxe());
-        if (toolCoordinates.equals(state.getKeyCoordinates())) {
-          canGetKey = true;
-        } else if (toolCoordinates.equals(state.getAxeCoordinates())) {
-          canGetAxe = true;
-        } else if (toolCoordinates.equals(state.getSSCoordinates())) {
-          canGetStone = true;
-        } else if (toolCoordinates.equals(state.getSSCoordinates()))
-          break;
-      }
-    }
+   * Copies another move generator, giving the copy a state of its own so it can
+   * plan ahead and be thrown away. The decision metrics are shared.
+   *
+   * @param other
+   *          the move generator to copy
+   */
+  private MoveGenerator(MoveGenerator other) {
+    this.state = new State(other.state);
+    this.currMoves = new LinkedList<>(other.currMoves);
+    this.frontierTour = new FrontierTour(state, other.frontierTour);
+    this.metrics = other.metrics;
+    this.deadline = other.deadline;
+    this.subgoals = other.subgoals;
+    this.stages = other.stages;
+    this.strategy = other.strategy;
+    this.crossings = new HashMap<>();
+    this.batchSize = other.batchSize;
+    this.planRepair = other.planRepair;
+    this.stallSearches = other.stallSearches;
+    this.planGoal = other.planGoal;
+    this.planTiles = other.planTiles;
+    this.planExplores = other.planExplores;
+
+    this.needKey = other.needKey;
+    this.needAxe = other.needAxe;
+    this.needStone = other.needStone;
+    this.needRaft = other.needRaft;
+  }
 
+  /**
+   * Key decision making class where it will return one move per loop to determine
+   * what action to make
+   * 
+   * @param view
+   *          view of the agent given by the agent class.
+   * @return returns a char value of the chosen move
+   */
+  public char makeMove(char view[][]) {
+    return makeMove(view, ViewDelta.ALL_CHANGED);
   }
 
   /**
-   * Reachability test on the tool that we need given the coordinates.
+   * Decides like makeMove(view), given which cells of the view changed since
+   * the last one so only those need to be taken in.
    * 
-   * @param toolCoordinates
-   *          list of locations in internal that tool is located
-   */
-  public void floodFillToGetTool(List<Coordinate> toolCoordinates) {
-    for (Coordinate location : toolCoordinates) {
-      FloodFillSearch newFloodFill = new FloodFillSearch(state.getMap(), state.getPlayerCoordinate(), location);
-
-      if (newFloodFill.canReach(state.haveKey(), state.haveAxe())) {
-        needKey = true;
-
-        if (toolCoordinates.equals(state.getKeyCoordinates())) {
-          needKey = true;
-        } else if (toolCoordinates.equals(state.getAxeCoordinates())) {
-          needAxe = true;
-        } else if (toolCoordinates.equals(state.getSSCoordinates())) {
-          needStone = true;
-        }
+   * @param view
+   *          view of the agent given by the agent class.
+   * @param changedCells
+   *          ViewDelta mask of the cells that changed
+   * @return returns a char value of the chosen move
+   */
+  public char makeMove(char view[][], int changedCells) {
+    deadline.start();
+    state.updateViaDelta(view, changedCells);
+    checkPlan();
+    planMoves();
+
+    char move = currMoves.isEmpty() ? 0 : takeMove();
+    deadline.end();
+    return move;
+  }
 
-        canGetResource = true;
+  /**
+   * Decides like makeMove, but hands out up to maxMoves of the planned moves at
+   * once so they can be sent to the engine as one batch, which only answers with
+   * the view after the last of them. A batch therefore only goes on past a move
+   * if the view after that move would show no unknown tiles, so nothing is
+   * missed by skipping it. The moves stay planned until movesApplied reports how
+   * many of them the engine carried out.
+   *
+   * @param view
+   *          view of the agent given by the agent class.
+   * @param changedCells
+   *          ViewDelta mask of the cells that changed since the last view
+   * @param maxMoves
+   *          largest number of moves to hand out
+   * @return returns the moves to make, or a single 0 if there is nothing to do
+   */
+  public char[] makeMoves(char view[][], int changedCells, int maxMoves) {
+    deadline.start();
+    state.updateViaDelta(view, changedCells);
+    checkPlan();
+    planMoves();
+    deadline.end();
+
+    if (currMoves.isEmpty()) {
+      batchSize = 1;
+      return new char[] { 0 };
+    }
+
+    char[] batch = new char[Math.min(maxMoves, currMoves.size())];
+    Coordinate tile = state.getPlayerCoordinate();
+    int direction = state.getDirection();
+    batchSize = 0;
+
+    for (char move : currMoves) {
+      if (batchSize == batch.length || (batchSize > 0 && state.getUnknownCount(tile) > 0)) {
         break;
       }
+      batch[batchSize++] = move;
+
+      if (move == 'L') {
+        direction = (direction + 3) % 4;
+      } else if (move == 'R') {
+        direction = (direction + 1) % 4;
+      } else if (move == 'F') {
+        tile = state.getFrontTile(tile, direction);
+      }
     }
+
+    return batchSize == batch.length ? batch : Arrays.copyOf(batch, batchSize);
   }
 
   /**
-   * Attempt to use the stepping stone to jump over water locations
-   * 
-   * @param toolCoordinates
-   *          list of locations in internal that tool is located
-   */
-  public void useSteppingStoneTo(List<Coordinate> toolCoordinates) {
-    canReachArea = false;
-    for (Coordinate location : toolCoordinates) {
-      if (testWithStone(location)) {
-        canReachArea = true;
-        break;
-      }
+   * Advances the internal state by the moves of the last batch that the engine
+   * carried out. If the engine stopped early the move it stopped at had no
+   * effect, so the rest of the plan is dropped and the next view replans.
+   *
+   * @param numApplied
+   *          number of moves of the last batch carried out, from the start
+   */
+  public void movesApplied(int numApplied) {
+    for (int i = 0; i < numApplied && !currMoves.isEmpty(); ++i) {
+      takeMove();
     }
+    if (numApplied < batchSize) {
+      currMoves.clear();
+    }
+    batchSize = 0;
   }
 
   /**
-   * Key decision making class where it will return one move per loop to determine
-   * what action to make
-   * 
+   * Indicates if speculate has anything to plan ahead for
+   *
+   * @return boolean value of if the planned moves have run out and the next view
+   *         can be predicted
+   */
+  public boolean canSpeculate() {
+    return currMoves.isEmpty() && state.getUnknownCount(state.getPlayerCoordinate()) == 0;
+  }
+
+  /**
+   * Plans ahead, on a copy of this generator, for the view we expect after the
+   * moves made so far. This is worth doing once the planned moves run out, and
+   * only if the next view cannot show anything we have not seen. It only reads
+   * this generator, so it can run while we wait for the next view as long as
+   * nothing else touches this generator until it has finished.
+   *
+   * @return returns the copy holding the new plan, or null if there is nothing
+   *         to plan ahead for
+   */
+  public MoveGenerator speculate() {
+    if (!canSpeculate()) {
+      return null;
+    }
+
+    MoveGenerator speculation = new MoveGenerator(this);
+    speculation.expectedView = state.getExpectedView();
+    speculation.state.updateViaView(speculation.expectedView);
+    speculation.planMoves();
+    return speculation;
+  }
+
+  /**
+   * Takes over the state and plan of a copy made by speculate if the view it
+   * planned for is the view that arrived, in which case the next makeMove with
+   * that view goes straight to the planned moves, just as if it had planned them
+   * itself. Otherwise this generator is left as it was and the copy should be
+   * thrown away.
+   *
+   * @param speculation
+   *          copy returned by speculate
    * @param view
    *          view of the agent given by the agent class.
-   * @return returns a char value of the chosen move
+   * @return boolean value of whether the copy was taken over
    */
-  public char makeMove(char view[][]) {
-    state.updateViaView(view);
+  public boolean commitSpeculation(MoveGenerator speculation, char view[][]) {
+    if (speculation.currMoves.isEmpty()) {
+      return false;
+    }
+    for (int i = 0; i < 5; ++i) {
+      for (int j = 0; j < 5; ++j) {
+        if ((i != 2 || j != 2) && view[i][j] != speculation.expectedView[i][j]) {
+          return false;
+        }
+      }
+    }
 
-    // if no pending moves, try to decide what to do next
-    while (currMoves.isEmpty() == true) {
+    adopt(speculation);
+    return true;
+  }
 
-      // got treasure, go back to origin point
-      // A* traversal to (0,0)
-      if (state.haveTreasure()) {
-        AStarToGoal(state.getPlayerCoordinate(), new Coordinate(0, 0), state.getDirection(), state.haveKey(),
-            state.haveAxe());
-        break;
+  /**
+   * Makes a copy of this generator that plans with the given strategy, for
+   * PlannerPortfolio to race against copies planning with other strategies.
+   * The copy has a deadline and metrics of its own, so it can plan on another
+   * thread while this generator waits.
+   *
+   * @param strategy
+   *          strategy the copy plans with
+   * @param keepCrossings
+   *          whether the copy carries on the water crossing searches this
+   *          generator has, which only one copy at a time may do
+   * @return returns the copy
+   */
+  MoveGenerator fork(PlannerStrategy strategy, boolean keepCrossings) {
+    MoveGenerator copy = new MoveGenerator(this);
+    copy.strategy = strategy;
+    copy.stages = strategy.getStages();
+    copy.metrics = new DecisionMetrics(metrics.isEnabled());
+    copy.deadline = deadline.fork();
+    copy.frontierTour.setDeadline(copy.deadline);
+    if (keepCrossings) {
+      copy.crossings.putAll(crossings);
+      copy.crossingsStart = crossingsStart;
+      copy.crossingsTileChanges = crossingsTileChanges;
+      for (WaterCrossingSearch s : copy.crossings.values()) {
+        s.setDeadline(copy.deadline);
       }
+    }
+    return copy;
+  }
 
-      // We don't have treasure but it can be seen
-      if (state.treasureLocated() == true) {
-        FloodFillSearch newFloodFill = new FloodFillSearch(state.getMap(), state.getPlayerCoordinate(),
-            state.getTreasureCoordinate());
+  /**
+   * Indicates if the last plan made any moves
+   *
+   * @return boolean value of if moves are planned
+   */
+  boolean hasPlan() {
+    return !currMoves.isEmpty();
+  }
 
-        // We can reach treasure
-        if (newFloodFill.canReach(state.haveKey(), state.haveAxe())) {
-          AStarToGoal(state.getPlayerCoordinate(), state.getTreasureCoordinate(), state.getDirection(), state.haveKey(),
-              state.haveAxe());
-          break;
-        } else {
-          if (!state.haveKey() && newFloodFill.canReach(true, state.haveAxe())) {
-            needKey = true;
-          }
-          if (!state.haveAxe() && newFloodFill.canReach(state.haveKey(), true)) {
-            needAxe = true;
-          }
-          if (!state.haveKey() && !state.haveAxe() && newFloodFill.canReach(true, true)) {
-            needKey = true;
-            needAxe = true;
-          }
-        }
-      }
-      
-      // check if we need key and can get key
-      if (needKey && !state.getKeyCoordinates().isEmpty()) {
-        findTool(state.getKeyCoordinates(), canGetKey);
-        if (canGetKey)
-          break;
-      }
-      // check if we need axe and can get axe
-      if (needAxe && !state.getAxeCoordinates().isEmpty()) {
-        findTool(state.getAxeCoordinates(), canGetAxe);
-        if (canGetAxe)
-          break;
-      }
-      // check if we need stone and can get stone
-      if (needStone && !state.getSSCoordinates().isEmpty()) {
-        findTool(state.getSSCoordinates(), canGetStone);
-        if (canGetStone)
-          break;
-      }
-      
-      // explore to get to new area
-      SpiralSeek s = new SpiralSeek(state.getMap(), state.getPlayerCoordinate());
-      Coordinate newHiddenTile = s.getTile(state.haveKey(), state.haveAxe());
+  /**
+   * Indicates if a copy made by fork finished its plan before the deadline,
+   * with no search cut short and no move made only to buy time
+   *
+   * @return boolean value of if the plan was finished in time
+   */
+  boolean isPlanInTime() {
+    return hasPlan() && deadline.getNumCutShort() == 0 && deadline.getNumStalls() == 0;
+  }
 
-      if (!newHiddenTile.equals(state.getPlayerCoordinate())) {
-        AStarToGoal(state.getPlayerCoordinate(), newHiddenTile, state.getDirection(), state.haveKey(), state.haveAxe());
-        break;
+  /**
+   * Returns the strategy this generator plans with
+   *
+   * @return the strategy
+   */
+  PlannerStrategy getStrategy() {
+    return strategy;
+  }
+
+  /**
+   * Takes over the state and plan of a copy of this generator. A copy made by
+   * fork hands its deadline counters over too, and its searches are moved back
+   * onto this generator's deadline.
+   *
+   * @param other
+   *          the copy to take over
+   */
+  private void adopt(MoveGenerator other) {
+    state = other.state;
+    currMoves = other.currMoves;
+    frontierTour = other.frontierTour;
+    batchSize = other.batchSize;
+    crossings = other.crossings;
+    crossingsStart = other.crossingsStart;
+    crossingsTileChanges = other.crossingsTileChanges;
+    reachable = other.reachable;
+    reachableStart = other.reachableStart;
+    reachableTileChanges = other.reachableTileChanges;
+    reachableKey = other.reachableKey;
+    reachableAxe = other.reachableAxe;
+    planGoal = other.planGoal;
+    planTiles = other.planTiles;
+    planExplores = other.planExplores;
+
+    needKey = other.needKey;
+    needAxe = other.needAxe;
+    needStone = other.needStone;
+    needRaft = other.needRaft;
+
+    if (other.deadline != deadline) {
+      deadline.addCounts(other.deadline);
+      frontierTour.setDeadline(deadline);
+      for (WaterCrossingSearch s : crossings.values()) {
+        s.setDeadline(deadline);
       }
+    }
+  }
 
-      canGetResource = false;
+  /**
+   * Runs the stages of the decision cascade if no moves are pending, queueing the moves of
+   * whatever it decides to do. With a portfolio, the strategies race to plan
+   * instead and the winner's plan is taken.
+   */
+  void planMoves() {
+    if (portfolio != null && currMoves.isEmpty()) {
+      adopt(portfolio.race(this));
+      return;
+    }
 
-      if (!needKey && !state.haveKey() && !state.getKeyCoordinates().isEmpty()) {
-        // perform flood fill algorithm to get key
-        floodFillToGetTool(state.getKeyCoordinates());
-      }
+    if (currMoves.isEmpty()) {
+      planGoal = null;
+      frontierTile = null;
+    }
 
-      if (!needAxe && !state.haveAxe() && !state.getAxeCoordinates().isEmpty()) {
-        // perform flood fill algorithm to get axe
-        floodFillToGetTool(state.getAxeCoordinates());
+    // if no pending moves, ask the stages in turn until one ends the cascade,
+    // starting again if one asks to
+    cascade:
+    while (currMoves.isEmpty()) {
+      replanning = false;
+      for (PlannerStage stage : stages) {
+        if (stage.plan(context)) {
+          break cascade;
+        }
+        if (replanning) {
+          continue cascade;
+        }
       }
+      break;
+    }
+    metrics.end();
+  }
 
-      if (!state.getSSCoordinates().isEmpty()) {
-        // perform flood fill algorithm to get stepping stone
-        floodFillToGetTool(state.getSSCoordinates());
+  /**
+   * Checks the route being walked against the tiles the last view changed, in
+   * time that grows with the number of changed tiles, not the length of the
+   * route. The rest of a route that a changed tile now blocks is planned again
+   * from the player, and so is a route that a newly seen tile could make
+   * shorter, keeping the new one only if it is. An exploring route is dropped
+   * once the unknown tiles around its end have all been seen, so the next tile
+   * to explore is chosen instead of walking on. Does nothing unless
+   * -Dagent.planRepair=true.
+   */
+  private void checkPlan() {
+    if (planGoal == null) {
+      return;
+    }
+    Coordinate player = state.getPlayerCoordinate();
+    Integer at = planTiles.get(player);
+    if (currMoves.isEmpty() || at == null) {
+      planGoal = null;
+      return;
+    }
+
+    metrics.begin(DecisionMetrics.PLAN_REPAIR);
+    if (planExplores && state.getUnknownCount(planGoal) == 0) {
+      currMoves.clear();
+      planGoal = null;
+      metrics.end();
+      return;
+    }
+
+    // Steps left to walk, which a tile off the route can only cut if going by
+    // it could be shorter
+    int remaining = planTiles.size() - 1 - at;
+    boolean blocked = false;
+    boolean shortcut = false;
+    for (Coordinate tile : state.getChangedTiles()) {
+      if (!State.isTilePassable(state.getMap().get(tile), state.haveKey(), state.haveAxe())) {
+        Integer step = planTiles.get(tile);
+        blocked |= step != null && step > at;
+      } else if (!planTiles.containsKey(tile) && distance(player, tile) + distance(tile, planGoal) < remaining) {
+        shortcut = true;
       }
+    }
 
-      if (!state.getTreeCoordinates().isEmpty()) {
-        // perform flood fill algorithm to get to tree
-        floodFillToGetTool(state.getTreeCoordinates());
+    if (blocked || shortcut) {
+      Queue<Character> oldMoves = currMoves;
+      Coordinate goal = planGoal;
+      currMoves = new LinkedList<>();
+      LinkedList<Coordinate> path = AStarToGoal(player, goal, state.getDirection(), state.haveKey(), state.haveAxe());
+      if (blocked || (!currMoves.isEmpty() && currMoves.size() < oldMoves.size())) {
+        planGoal = null;
+        if (!currMoves.isEmpty()) {
+          trackRoute(path, planExplores);
+        }
+      } else {
+        currMoves = oldMoves;
       }
+    }
+    metrics.end();
+  }
 
-      if (canGetResource)
-        continue;
+  /**
+   * Remembers the route just planned as the plan, for checkPlan.
+   *
+   * @param path
+   *          the route, from its end back to its start
+   * @param explores
+   *          whether the route only goes to see the unknown tiles around its
+   *          end
+   */
+  private void trackRoute(LinkedList<Coordinate> path, boolean explores) {
+    planGoal = path.getFirst();
+    planExplores = explores;
+    planTiles = new HashMap<>();
+    int step = 0;
+    for (Iterator<Coordinate> it = path.descendingIterator(); it.hasNext();) {
+      planTiles.put(it.next(), step++);
+    }
+  }
 
-      // Stage 7: Need to use our stepping stones to get to a new unreachable area
-      // Note at this stage we have all resources that are reachable to us
-      // So any tools we still see on the map are guaranteed to be unreachable
-      // (without using stepping stones)
+  /**
+   * Returns the number of steps between two tiles if nothing were in the way
+   *
+   * @param a
+   *          one tile
+   * @param b
+   *          the other tile
+   * @return Manhattan distance between the tiles
+   */
+  private static int distance(Coordinate a, Coordinate b) {
+    return Math.abs(a.getX() - b.getX()) + Math.abs(a.getY() - b.getY());
+  }
 
-      // Try to get to the area near treasure
-      if (state.treasureLocated()) {
-        if (testWithStone(state.getTreasureCoordinate()))
-          break;
+  /**
+   * Takes the next pending move off the queue and advances the internal state by
+   * it.
+   *
+   * @return returns a char value of the move
+   */
+  private char takeMove() {
+    char moveToMake = currMoves.remove();
+    char nextTile = state.getMap().get(state.getFrontTile(state.getPlayerCoordinate()));
+
+    if (moveToMake == 'F') {
+      if (nextTile == 'a') {
+        needAxe = false;
+      } else if (nextTile == 'k') {
+        needKey = false;
       }
+    }
 
-      // Try to get to the area near another stepping stone
-      if (!state.getSSCoordinates().isEmpty()) {
-        useSteppingStoneTo(state.getSSCoordinates());
-        if (canReachArea) {
-          break;
-        }
+    state.updateViaMove(moveToMake);
+    return moveToMake;
+  }
 
-      }
+  /**
+   * Returns the deadline each move is planned against, with its counters. The
+   * budget comes from -Dagent.moveBudgetMs=N and defaults to no deadline. Once
+   * the deadline passes, searches hand back the best they have so far: routes
+   * stop at the tile nearest their goal, exploration estimates the distances it
+   * has not searched, and a water crossing search turns the player on the spot
+   * and carries on next turn.
+   *
+   * @return returns the move deadline of this agent
+   */
+  public MoveDeadline getDeadline() {
+    return deadline;
+  }
 
-      // Try to get to the area near another key (don't prefer if we already have key)
-      if (!state.getKeyCoordinates().isEmpty() && !state.haveKey()) {
-        useSteppingStoneTo(state.getKeyCoordinates());
-        if (canReachArea) {
-          break;
-        }
-      }
+  /**
+   * Returns the per-stage decision metrics, which are only recorded when
+   * enabled (with -Dagent.metrics=true or DecisionMetrics.setEnabled).
+   * 
+   * @return returns the decision metrics of this agent
+   */
+  public DecisionMetrics getMetrics() {
+    return metrics;
+  }
 
-      // Try to get to the area near another axe (don't prefer if we already have axe)
-      if (!state.getAxeCoordinates().isEmpty() && !state.haveAxe()) {
-        useSteppingStoneTo(state.getAxeCoordinates());
-        if (canReachArea)
-          break;
-      }
+  /**
+   * Returns the portfolio of planner strategies raced on each move, set with
+   * -Dagent.portfolio=cascade,explore_first,crossing_first.
+   * 
+   * @return returns the portfolio, or null if this agent plans alone
+   */
+  public PlannerPortfolio getPortfolio() {
+    return portfolio;
+  }
 
-      // Try to get to the area near another space
-      if (!state.getSpaceCoordinates().isEmpty()) {
-        boolean canReachArea = false;
-        for (Coordinate location : state.getSpaceCoordinates()) {
-          // Ensure this blank space is not reachable from our current player location
-          FloodFillSearch newFloodFill = new FloodFillSearch(state.getMap(), state.getPlayerCoordinate(), location);
-
-          if (!newFloodFill.canReach(state.haveKey(), state.haveAxe())) {
-            if (testWithStone(location)) {
-              canReachArea = true;
-              break;
-            }
-          }
-        }
+  /**
+   * Tests with a flood fill whether the player can walk to a tile with the tools
+   * we have. One fill from the player answers this for every tile, so it is kept
+   * until we move, the map changes or we get a new tool.
+   * 
+   * @param location
+   *          the tile that we want to reach
+   * @return boolean value of whether or not the tile is reachable
+   */
+  private boolean canReachTile(Coordinate location) {
+    if (reachable == null || !state.getPlayerCoordinate().equals(reachableStart)
+        || state.getNumTileChanges() != reachableTileChanges || state.haveKey() != reachableKey
+        || state.haveAxe() != reachableAxe) {
+      reachable = new FloodFillSearch(state.getMap(), state.getPlayerCoordinate(), location);
+      reachable.canReach(state.haveKey(), state.haveAxe());
+      metrics.addNodes(reachable.getNodesExpanded());
+
+      reachableStart = state.getPlayerCoordinate();
+      reachableTileChanges = state.getNumTileChanges();
+      reachableKey = state.haveKey();
+      reachableAxe = state.haveAxe();
+    }
 
-        if (canReachArea) {
-          break;
-        }
-      }
+    return reachable.reaches(location);
+  }
 
-      AStarToGoal(state.getPlayerCoordinate(), new Coordinate(0, 0), state.getDirection(), state.haveKey(),
-          state.haveAxe());
+  /**
+   * Tests on the island graph whether the goal could be reached from the player
+   * by land, doors and trees with the given tools.
+   * 
+   * @param goal
+   *          the goal point that we want to reach
+   * @param hasKey
+   *          boolean of if we have key
+   * @param hasAxe
+   *          boolean of if we have axe
+   * @return boolean value of whether or not the goal is reachable
+   */
+  private boolean canReachIsland(Coordinate goal, boolean hasKey, boolean hasAxe) {
+    return state.getIslandGraph().findRoute(state.getPlayerCoordinate(), goal, hasKey, hasAxe) != null;
+  }
 
-      break;
+  /**
+   * Plans on the island graph which stepping stones to pick up on the way
+   * across the water to a goal, and makes the first crossing of the plan,
+   * placing stones just where the plan does.
+   * 
+   * @param goal
+   *          the goal point that we want to reach
+   * @return boolean value of whether moves were planned, false too if the plan
+   *         crosses straight to the goal
+   */
+  private boolean crossForStones(Coordinate goal) {
+    List<IslandGraph.Crossing> route = state.getIslandGraph().findStoneRoute(state.getPlayerCoordinate(), goal,
+        state.haveKey(), state.haveAxe(), state.getNumSteppingStones(), state.getSSCoordinates());
+    if (route == null || route.size() < 2 || route.get(0).getStoneTiles().size() > state.getNumSteppingStones()) {
+      return false;
     }
-    
-    // try to get to another area
-    if (!currMoves.isEmpty()) {
-      char moveToMake = currMoves.remove();
-      char nextTile = state.getMap().get(state.getFrontTile(state.getPlayerCoordinate()));
-
-      if (moveToMake == 'F') {
-        if (nextTile == 'a') {
-          needAxe = false;
-        } else if (nextTile == 'k') {
-          needKey = false;
-        }
-      }
 
-      state.updateViaMove(moveToMake);
-      return moveToMake;
+    // Head for the stone nearest the landing on the island reached
+    IslandGraph graph = state.getIslandGraph();
+    Coordinate landing = route.get(0).getLanding();
+    Coordinate target = landing;
+    for (Coordinate stone : state.getSSCoordinates()) {
+      if (graph.getIsland(stone) == graph.getIsland(landing) && (target == landing
+          || distance(stone, landing) < distance(target, landing))) {
+        target = stone;
+      }
     }
 
-    return 0;
+    // Mark where the stones will be placed, which the kept flood fill knows nothing of
+    reachable = null;
+    for (Coordinate waterTile : route.get(0).getStoneTiles()) {
+      state.markStonePlanned(waterTile);
+    }
+    AStarToGoal(state.getPlayerCoordinate(), target, state.getDirection(), state.haveKey(), state.haveAxe());
+    return !currMoves.isEmpty();
   }
 
   /**
@@ -325,13 +681,62 @@ public class MoveGenerator {
    *          boolean of if we have key
    * @param hasAxe
    *          boolean of if we have axe
+   * @return returns the path planned, from its end back to the start
    */
-  private void AStarToGoal(Coordinate start, Coordinate goal, int curDirection, boolean hasKey, boolean hasAxe) {
+  private LinkedList<Coordinate> AStarToGoal(Coordinate start, Coordinate goal, int curDirection, boolean hasKey, boolean hasAxe) {
+    // With a deadline, take a quick near-shortest path on long routes and tighten it while time remains
+    int distance = Math.abs(start.getX() - goal.getX()) + Math.abs(start.getY() - goal.getY());
+    if (deadline.hasBudget() && distance >= ANYTIME_MIN_DISTANCE) {
+      ARAStarSearch a = new ARAStarSearch(state.getMap(), start, goal, ARAStarSearch.DEFAULT_EPSILON);
+      a.setDeadline(deadline);
+      a.search(hasKey, hasAxe);
+      metrics.addNodes(a.getNodesExpanded());
+      LinkedList<Coordinate> path = a.returnPath();
+      addPathMoves(path, start, curDirection);
+      return path;
+    }
+
     AStarSearch a = new AStarSearch(state.getMap(), start, goal);
+    a.setDeadline(deadline);
     a.search(hasKey, hasAxe);
+    metrics.addNodes(a.getNodesExpanded());
 
     // Get optimal path
     LinkedList<Coordinate> path = a.returnPath();
+    addPathMoves(path, start, curDirection);
+    return path;
+  }
+
+  /**
+   * Turns a path into the moves needed to walk it, chopping trees and unlocking
+   * doors along the way, and adds them to the move queue.
+   * 
+   * @param path
+   *          path from the goal back to (but not including) the start
+   * @param start
+   *          starting point
+   * @param curDirection
+   *          currently facing in what direction
+   */
+  private void addPathMoves(LinkedList<Coordinate> path, Coordinate start, int curDirection) {
+    currMoves.addAll(getPathMoves(path, start, curDirection));
+  }
+
+  /**
+   * Turns a path into the moves needed to walk it, chopping trees and unlocking
+   * doors along the way.
+   * 
+   * @param path
+   *          path from the goal back to (but not including) the start, which
+   *          the start is added to
+   * @param start
+   *          starting point
+   * @param curDirection
+   *          currently facing in what direction
+   * @return returns the moves in the order to make them
+   */
+  private LinkedList<Character> getPathMoves(LinkedList<Coordinate> path, Coordinate start, int curDirection) {
+    LinkedList<Character> moves = new LinkedList<>();
     path.addLast(start);
 
     // Reverse list
@@ -341,120 +746,349 @@ public class MoveGenerator {
 
       LinkedList<Character> alignMoves = getAlignmentMoves(curDirection, directionHeaded);
 
-      currMoves.addAll(alignMoves);
+      moves.addAll(alignMoves);
 
       curDirection = directionHeaded;
 
       char nextTile = state.getMap().get(state.getFrontTile(curr, curDirection));
       if (nextTile == 'T') {
-        currMoves.add('C');
+        moves.add('C');
       } else if (nextTile == '-') {
-        currMoves.add('U');
+        moves.add('U');
       }
 
-      currMoves.add('F');
+      moves.add('F');
     }
+
+    return moves;
   }
 
   /**
-   * If we cannot reach a point, we will attempt to reach it via using stepping
-   * stones, until we have exhausted our supplies.
+   * If we cannot reach a point, we will attempt to reach it across the water via
+   * stepping stones or a raft, placing as few of our stones as possible. A
+   * search the deadline cuts short is finished past the deadline, unless
+   * stalling is on, in which case the player turns on the spot instead.
    * 
    * @param goal
-   *          the goal point that we want to reach
+   *          the goal point that we want to reach, or null for the nearest point
+   *          that would reveal unknown tiles
    * @return boolean value of whether or not the point is reachable
    */
   private boolean testWithStone(Coordinate goal) {
-    boolean moveMade = false;
-    List<Coordinate[]> solutions = new ArrayList<>();
-
-    for (int i = 1; i <= state.getNumSteppingStones() && !moveMade; ++i) {
-      List<Coordinate[]> comboList = new ArrayList<>();
-      Coordinate[] arr = state.getWaterCoordinates().toArray(new Coordinate[state.getWaterCoordinates().size()]);
-      getAdjacentCombos(i, arr, comboList);
-
-      for (Coordinate[] group : comboList) {
-        // assume every water tile been placed stepping stone 
-        for (Coordinate waterTile : group) {
-          state.getMap().put(waterTile, State.COORDINATE_TEMPORARY_WATER);
-        }
-        // test if we can get to the goal
-        FloodFillSearch newFloodFill = new FloodFillSearch(state.getMap(), state.getPlayerCoordinate(), goal);
-        if (newFloodFill.canReach(state.haveKey(), state.haveAxe())) {
-          // Add to solution 
-          solutions.add(group);
-          moveMade = true;
-        }
+    WaterCrossingSearch s = getCrossing(goal, state.getMap());
 
-        for (Coordinate waterTile : group) {
-          state.getMap().put(waterTile, '~');
-        }
+    boolean found;
+    if (s.isComplete()) {
+      found = s.getNumStonesNeeded() != -1;
+    } else {
+      int nodesBefore = s.getNodesExpanded();
+      found = s.search(state.haveKey(), state.haveAxe(), state.getNumSteppingStones(), state.haveRaft(),
+          state.onRaft());
+      metrics.addNodes(s.getNodesExpanded() - nodesBefore);
+    }
+    if (!s.isComplete()) {
+      if (stallSearches) {
+        // Turning on the spot shows nothing new, so the search still holds next turn
+        deadline.stall();
+        currMoves.add('L');
+        return true;
       }
+      int nodesBefore = s.getNodesExpanded();
+      s.setDeadline(null);
+      found = s.search(state.haveKey(), state.haveAxe(), state.getNumSteppingStones(), state.haveRaft(),
+          state.onRaft());
+      s.setDeadline(deadline);
+      metrics.addNodes(s.getNodesExpanded() - nodesBefore);
+    }
+    if (!found) {
+      return false;
     }
 
-    if (!solutions.isEmpty()) {
-      int testPos = 0;
+    followCrossing(s);
+    return true;
+  }
 
-      List<Coordinate[]> treasureSolutions = new ArrayList<>();
-      
-      // check if can find a solution to get closer to treasure
-      if (state.treasureLocated()) {
-        int minCost = 999999;
+  /**
+   * Tries to cross the water to a goal on stepping stones alone, walking round
+   * trees and leaving any raft where it is. Unlike a raft, placed stones can be
+   * walked back over, so this never strands the player. The search is not kept
+   * if the deadline cuts it short.
+   * 
+   * @param goal
+   *          the goal point that we want to reach
+   * @return boolean value of whether moves were planned
+   */
+  private boolean crossOnStones(Coordinate goal) {
+    WaterCrossingSearch s = new WaterCrossingSearch(state.getMap(), state.getPlayerCoordinate(), goal);
+    s.setDeadline(deadline);
+    boolean found = s.search(state.haveKey(), false, state.getNumSteppingStones(), false, false);
+    metrics.addNodes(s.getNodesExpanded());
+    if (!found) {
+      return false;
+    }
 
-        for (int i = 0; i < solutions.size(); ++i) {
-          Coordinate[] group = solutions.get(i);
-          int totalCost = 0;
+    followCrossing(s);
+    return true;
+  }
 
-          for (Coordinate solution : group) {
-            int absX = Math.abs(solution.getX() - state.getTreasureCoordinate().getX());
-            int absY = Math.abs(solution.getY() - state.getTreasureCoordinate().getY());
-            totalCost = absX + absY; // Manhattan distance to treasure
+  /**
+   * Tries to cross the water to the first group of goals any of which can be
+   * reached. This picks the same group testWithStone on each goal in turn
+   * would, but searches the goals of a group side by side, a round of them at a
+   * time on a snapshot of the state. Of a round's goals that can be reached,
+   * the one needing the fewest stones wins, then the one needing the fewest
+   * moves, then the one that comes first, so the choice does not depend on
+   * which search finishes first. Searches the deadline cuts short are finished
+   * past it, unless stalling is on.
+   * 
+   * @param groups
+   *          groups of goals, in order of preference
+   * @return boolean value of whether moves were planned
+   */
+  private boolean crossToBestSubgoal(List<List<Coordinate>> groups) {
+    WorldSnapshot world = null;
+    for (List<Coordinate> group : groups) {
+      for (int first = 0; first < group.size(); first += SubgoalEvaluator.ROUND_SIZE) {
+        if (world == null) {
+          world = new WorldSnapshot(state);
+        }
 
-            if (solution.getX() == state.getTreasureCoordinate().getX()
-                || solution.getY() == state.getTreasureCoordinate().getY()) {
-              if (!treasureSolutions.contains(group))
-                treasureSolutions.add(group);
-            }
+        List<WaterCrossingSearch> round = new ArrayList<>();
+        int nodesBefore = 0;
+        for (Coordinate goal : group.subList(first, Math.min(group.size(), first + SubgoalEvaluator.ROUND_SIZE))) {
+          WaterCrossingSearch s = getCrossing(goal, world.getMap());
+          nodesBefore += s.getNodesExpanded();
+          round.add(s);
+        }
+        subgoals.searchAll(world, round);
+        if (!stallSearches) {
+          // Finish the searches the deadline cut short rather than stall
+          for (WaterCrossingSearch s : round) {
+            s.setDeadline(null);
+          }
+          subgoals.searchAll(world, round);
+          for (WaterCrossingSearch s : round) {
+            s.setDeadline(deadline);
           }
+        }
 
-          if (totalCost < minCost) {
-            minCost = totalCost;
-            testPos = i;
+        WaterCrossingSearch best = null;
+        int bestMoves = 0;
+        int nodesAfter = 0;
+        boolean cutShort = false;
+        for (WaterCrossingSearch s : round) {
+          nodesAfter += s.getNodesExpanded();
+          if (!s.isComplete()) {
+            cutShort = true;
+          } else if (s.getNumStonesNeeded() != -1) {
+            int moves = getPathMoves(s.returnPath(), world.getPlayerCoordinate(), world.getDirection()).size();
+            if (best == null || s.getNumStonesNeeded() < best.getNumStonesNeeded()
+                || (s.getNumStonesNeeded() == best.getNumStonesNeeded() && moves < bestMoves)) {
+              best = s;
+              bestMoves = moves;
+            }
           }
         }
+        metrics.addNodes(nodesAfter - nodesBefore);
+
+        if (cutShort) {
+          // Turning on the spot shows nothing new, so the searches still hold next turn
+          deadline.stall();
+          currMoves.add('L');
+          return true;
+        }
+        if (best != null) {
+          followCrossing(best);
+          return true;
+        }
       }
+    }
 
-      boolean madePlan = false;
-      
-      // find a solution to get stepping stone
-      if (treasureSolutions.isEmpty() && !state.getSSCoordinates().isEmpty()) {
-        testPos = bestWaterStone(solutions, state.getSSCoordinates());
-        madePlan = true;
+    return false;
+  }
+
+  /**
+   * Returns the water crossing search to a goal made since we last moved or the
+   * map last changed, making a new one if there is none.
+   * 
+   * @param goal
+   *          the goal point that we want to reach, or null for the nearest point
+   *          that would reveal unknown tiles
+   * @param map
+   *          map a new search will read, the internal map or a snapshot of it
+   * @return the search, which may not have been run yet
+   */
+  private WaterCrossingSearch getCrossing(Coordinate goal, Map<Coordinate, Character> map) {
+    if (!state.getPlayerCoordinate().equals(crossingsStart) || state.getNumTileChanges() != crossingsTileChanges) {
+      crossings.clear();
+      crossingsStart = state.getPlayerCoordinate();
+      crossingsTileChanges = state.getNumTileChanges();
+    }
+
+    WaterCrossingSearch s = crossings.get(goal);
+    if (s == null) {
+      s = new WaterCrossingSearch(map, state.getPlayerCoordinate(), goal);
+      // Stones placed towards the treasure or other stones can be reused to get there
+      if (state.treasureLocated()) {
+        s.addLaterTarget(state.getTreasureCoordinate(), true);
       }
-      
-      if (!madePlan) {
-        // find a solution to get key
-        if (!state.getKeyCoordinates().isEmpty()) {
-          testPos = bestWaterStone(solutions, state.getKeyCoordinates());
-          madePlan = true;
+      for (Coordinate stone : state.getSSCoordinates()) {
+        if (goal == null || !stone.equals(goal)) {
+          s.addLaterTarget(stone, false);
         }
-        // find a solution to get axe
-        if (!state.getAxeCoordinates().isEmpty()) {
-          testPos = bestWaterStone(solutions, state.getAxeCoordinates());
-          madePlan = true;
+      }
+      s.setDeadline(deadline);
+      crossings.put(goal, s);
+    }
+
+    return s;
+  }
+
+  /**
+   * Plans the moves of a water crossing search that found its goal, marking
+   * where its stones will be placed.
+   * 
+   * @param s
+   *          the finished search
+   */
+  private void followCrossing(WaterCrossingSearch s) {
+    // Mark where the stones will be placed, which the kept flood fill knows nothing of
+    reachable = null;
+    for (Coordinate waterTile : s.getStoneTiles()) {
+      state.markStonePlanned(waterTile);
+    }
+
+    addPathMoves(s.returnPath(), state.getPlayerCoordinate(), state.getDirection());
+  }
+
+  /**
+   * The planning context the stages are given, planning into this generator.
+   */
+  private class Context implements PlanningContext {
+    @Override
+    public StateView getState() {
+      // A new view each time, as adopt may have swapped in another state
+      return new StateView(state);
+    }
+
+    @Override
+    public void beginStage(int stage) {
+      metrics.begin(stage);
+    }
+
+    @Override
+    public boolean hasPlan() {
+      return !currMoves.isEmpty();
+    }
+
+    @Override
+    public void route(Coordinate goal) {
+      boolean wholePlan = currMoves.isEmpty();
+      LinkedList<Coordinate> path = AStarToGoal(state.getPlayerCoordinate(), goal, state.getDirection(),
+          state.haveKey(), state.haveAxe());
+      if (planRepair && wholePlan && !currMoves.isEmpty()) {
+        trackRoute(path, goal.equals(frontierTile));
+      }
+    }
+
+    @Override
+    public void routeHome() {
+      boolean wholePlan = currMoves.isEmpty();
+      LinkedList<Coordinate> path = state.getPathHome();
+      addPathMoves(path, state.getPlayerCoordinate(), state.getDirection());
+      if (planRepair && wholePlan && !currMoves.isEmpty()) {
+        trackRoute(path, false);
+      }
+    }
+
+    @Override
+    public int getHomeDistance(Coordinate tile) {
+      return state.getHomeDistance(tile);
+    }
+
+    @Override
+    public boolean crossWater(Coordinate goal) {
+      return testWithStone(goal);
+    }
+
+    @Override
+    public boolean crossOnStones(Coordinate goal) {
+      return MoveGenerator.this.crossOnStones(goal);
+    }
+
+    @Override
+    public boolean crossToAny(List<List<Coordinate>> groups) {
+      if (subgoals != null) {
+        return crossToBestSubgoal(groups);
+      }
+      for (List<Coordinate> group : groups) {
+        for (Coordinate goal : group) {
+          if (testWithStone(goal)) {
+            return true;
+          }
         }
+      }
+      return false;
+    }
 
+    @Override
+    public boolean canReachTile(Coordinate tile) {
+      return MoveGenerator.this.canReachTile(tile);
+    }
+
+    @Override
+    public boolean canReachIsland(Coordinate goal, boolean hasKey, boolean hasAxe) {
+      return MoveGenerator.this.canReachIsland(goal, hasKey, hasAxe);
+    }
+
+    @Override
+    public boolean crossForStones(Coordinate goal) {
+      return MoveGenerator.this.crossForStones(goal);
+    }
+
+    @Override
+    public Coordinate getFrontierTile() {
+      Coordinate tile = frontierTour.getTile(state.haveKey(), state.haveAxe());
+      metrics.addNodes(frontierTour.getNodesExpanded());
+      frontierTile = tile;
+      return tile;
+    }
+
+    @Override
+    public boolean needsTool(char tool) {
+      switch (tool) {
+        case 'k':
+          return needKey;
+        case 'a':
+          return needAxe;
+        case 'o':
+          return needStone;
+        default:
+          throw new IllegalArgumentException("Not a tool: " + tool);
       }
+    }
 
-      for (Coordinate waterTile : solutions.get(testPos)) {
-        state.getMap().put(waterTile, State.COORDINATE_TEMPORARY_WATER);
+    @Override
+    public void setNeedsTool(char tool, boolean need) {
+      switch (tool) {
+        case 'k':
+          needKey = need;
+          break;
+        case 'a':
+          needAxe = need;
+          break;
+        case 'o':
+          needStone = need;
+          break;
+        default:
+          throw new IllegalArgumentException("Not a tool: " + tool);
       }
     }
-    
-    // A* traversal to the goal
-    AStarToGoal(state.getPlayerCoordinate(), goal, state.getDirection(), state.haveKey(), state.haveAxe());
 
-    return moveMade;
+    @Override
+    public void replan() {
+      replanning = true;
+    }
   }
 
   /**
@@ -535,157 +1169,4 @@ public class MoveGenerator {
 
     return l;
   }
-
-  /**
-   * Helper method that will generate arrays from 1 to n lengths based on the
-   * adjacent point groups and will then store and return them in the given list.
-   * 
-   * @param n
-   *          max size of the subsets we want
-   * @param arr
-   *          contains the data we want to generate from
-   * @param list
-   *          to be filled with outputs and returned
-   */
-  private void getAdjacentCombos(int n, Coordinate[] arr, List<Coordinate[]> list) {
-    long numArrays = binomial(arr.length, n);
-
-    for (int i = 0; i < numArrays; i++) {
-      Coordinate[] current = new Coordinate[n];
-      for (int j = 0; j < n; j++) {
-        int period = (int) Math.pow(arr.length, n - j - 1);
-        int index = (i / period) % arr.length;
-        current[j] = arr[index];
-      }
-
-      if (acceptedPoints(Arrays.asList(current))) {
-        list.add(current);
-      }
-
-    }
-  }
-
-  /**
-   * Tests to see if in a group of points, all points are reachable from every
-   * other point in the group
-   * 
-   * @param group
-   *          List of points that are to be compared
-   * @return returns boolean value of whether or not everything is reachable
-   */
-  private static boolean acceptedPoints(List<Coordinate> group) {
-    BitSet notVisited = new BitSet(group.size());
-    notVisited.set(0, group.size());
-    connected(group, notVisited, 0);
-
-    if (notVisited.isEmpty()) {
-      return true;
-    } else {
-      return false;
-    }
-  }
-
-  /**
-   * Used alongside the acceptedPoints function to test if points are indeed
-   * connected to each other
-   * 
-   * @param points
-   *          group of points that we want to test
-   * @param notVisited
-   *          list of points that have yet to be visited stored as BitSet
-   * @param visit
-   *          the current point that we are testing reachability on
-   */
-  private static void connected(List<Coordinate> points, BitSet notVisited, int visit) {
-    notVisited.set(visit, false);
-    Coordinate curr = points.get(visit);
-
-    for (int i = 0; i < points.size(); i++) {
-      if (i != visit && notVisited.get(i)) {
-        Coordinate other = points.get(i);
-        boolean connected = false;
-        if (curr.getX() == other.getX()) {
-
-          if (curr.getY() - other.getY() >= -1 && curr.getY() - other.getY() <= 1) {
-            connected = true;
-          }
-        } else if (curr.getY() == other.getY()) {
-          if (curr.getX() - other.getX() >= -1 && curr.getX() - other.getX() <= 1) {
-            connected = true;
-          }
-        }
-
-        if (connected) {
-          connected(points, notVisited, i);
-        }
-      }
-    }
-  }
-
-  /**
-   * Calculates the binomial coefficient of the given parameters
-   * 
-   * @param n
-   *          number of possible outcomes
-   * @param k
-   *          unordered results
-   * @return returns the binomial coefficient
-   */
-  private static long binomial(int n, int k) {
-    if (k > n - k) {
-      k = n - k;
-    }
-
-    long b = 1;
-    int i = 1;
-    int m = n;
-
-    while (i <= k) {
-      b = b * m / i;
-      i++;
-      m--;
-    }
-
-    return b;
-  }
-
-  /**
-   * Takes in a list of possible points and calculates the optimal path to take
-   * over water to reach our goal position. It attempts to find the shortest
-   * distance to travel via the Manhattan distance by removing water tiles.
-   * 
-   * @param possiblePoints
-   *          list of water tiles that are to be tested
-   * @param acceptedPoints
-   *          list of points that we need to take into consideration when we are
-   *          calculating the movement
-   * @return returns the index value of the optimal solution but if none are
-   *         found, we just return the first index
-   */
-  private int bestWaterStone(List<Coordinate[]> possiblePoints, List<Coordinate> acceptedPoints) {
-    int testPos = 0; // default solution is 0
-
-    if (!acceptedPoints.isEmpty()) {
-      int minCost = 999999;
-
-      for (int i = 0; i < possiblePoints.size(); ++i) {
-        Coordinate[] group = possiblePoints.get(i);
-        int totalCost = 0;
-
-        for (Coordinate a : group) {
-          for (Coordinate b : acceptedPoints) {
-            totalCost += (Math.abs((int) a.getX() - (int) b.getX()) + Math.abs((int) a.getY() - (int) b.getY()));
-          }
-        }
-
-        // If cost is cheaper, replace it with new cost
-        if (totalCost < minCost) {
-          minCost = totalCost;
-          testPos = i;
-        }
-      }
-    }
-
-    return testPos;
-  }
 }
@@ -0,0 +1,160 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * PlannerPortfolio class races several planner strategies on the same move.
+ * Each strategy plans on a copy of the move generator, all copies starting from
+ * the same state and stopping at the same deadline, one thread each. Strategies
+ * are ranked by how often they have finished a plan in time, best first, ties
+ * keeping the order they were given in. The plan taken is that of the best
+ * ranked strategy that finished in time, or if none did, of the best ranked one
+ * that planned anything. The portfolio is set with
+ * -Dagent.portfolio=cascade,explore_first,crossing_first (off by default).
+ *
+ * @author Yufan Zou
+ */
+public class PlannerPortfolio {
+  private final List<PlannerStrategy> strategies;
+  private final List<PlannerStrategy> ranking;
+  private final ExecutorService executor;
+
+  // Per strategy, by ordinal: races entered, plans finished in time, plans
+  // taken and time spent planning
+  private final long[] numRaces = new long[PlannerStrategy.values().length];
+  private final long[] numInTime = new long[PlannerStrategy.values().length];
+  private final long[] numWins = new long[PlannerStrategy.values().length];
+  private final long[] nanos = new long[PlannerStrategy.values().length];
+
+  /**
+   * PlannerPortfolio class constructor.
+   *
+   * @param strategies
+   *          strategies to race, in order of preference until there are
+   *          statistics to go on
+   */
+  public PlannerPortfolio(List<PlannerStrategy> strategies) {
+    this.strategies = new ArrayList<>(strategies);
+    this.ranking = new ArrayList<>(strategies);
+    this.executor = Executors.newFixedThreadPool(strategies.size(), r -> {
+      Thread t = new Thread(r, "portfolio-planner");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  /**
+   * Plans the next moves with every strategy at once and returns the copy whose
+   * plan is taken, for the move generator to take over. The other copies are
+   * thrown away.
+   *
+   * @param moveGenerator
+   *          the move generator to plan for, which is only read while the
+   *          strategies plan
+   * @return returns the winning copy
+   */
+  public MoveGenerator race(MoveGenerator moveGenerator) {
+    List<Callable<MoveGenerator>> tasks = new ArrayList<>();
+    for (PlannerStrategy strategy : ranking) {
+      // Only the leader resumes the water crossings cut short last move, so no
+      // two threads carry on the same search
+      MoveGenerator copy = moveGenerator.fork(strategy, strategy == ranking.get(0));
+      tasks.add(() -> {
+        long startNanos = System.nanoTime();
+        copy.planMoves();
+        nanos[strategy.ordinal()] += System.nanoTime() - startNanos;
+        return copy;
+      });
+    }
+
+    List<MoveGenerator> copies = new ArrayList<>();
+    try {
+      for (Future<MoveGenerator> future : executor.invokeAll(tasks)) {
+        copies.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while planning", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Planner strategy failed", e.getCause());
+    }
+
+    MoveGenerator winner = null;
+    for (MoveGenerator copy : copies) {
+      int i = copy.getStrategy().ordinal();
+      ++numRaces[i];
+      if (copy.isPlanInTime()) {
+        ++numInTime[i];
+        if (winner == null || !winner.isPlanInTime()) {
+          winner = copy;
+        }
+      } else if (winner == null && copy.hasPlan()) {
+        winner = copy;
+      }
+      moveGenerator.getMetrics().add(copy.getMetrics());
+    }
+    if (winner == null) {
+      winner = copies.get(0);
+    }
+    ++numWins[winner.getStrategy().ordinal()];
+
+    ranking.sort((one, two) -> {
+      // compare in-time rates as fractions, without dividing
+      long a = numInTime[one.ordinal()] * numRaces[two.ordinal()];
+      long b = numInTime[two.ordinal()] * numRaces[one.ordinal()];
+      return a != b ? Long.compare(b, a) : Integer.compare(strategies.indexOf(one), strategies.indexOf(two));
+    });
+
+    return winner;
+  }
+
+  /**
+   * Returns the strategies in the order they are currently preferred
+   *
+   * @return ranking of the strategies, best first
+   */
+  public List<PlannerStrategy> getRanking() {
+    return Collections.unmodifiableList(ranking);
+  }
+
+  /**
+   * Returns how many times a strategy's plan was taken
+   *
+   * @param strategy
+   *          one of the strategies raced
+   * @return number of wins
+   */
+  public long getNumWins(PlannerStrategy strategy) {
+    return numWins[strategy.ordinal()];
+  }
+
+  /**
+   * Returns how many times a strategy finished a plan in time
+   *
+   * @param strategy
+   *          one of the strategies raced
+   * @return number of plans finished in time
+   */
+  public long getNumInTime(PlannerStrategy strategy) {
+    return numInTime[strategy.ordinal()];
+  }
+
+  /**
+   * Writes every strategy's statistics as a JSON object keyed by strategy name,
+   * in ranking order.
+   *
+   * @return returns the statistics as JSON
+   */
+  public String toJson() {
+    StringBuilder sb = new StringBuilder("{\n");
+
+    for (int k = 0; k < ranking.size(); ++k) {
+      int i = ranking.get(k).ordinal();
+      sb.append("  \"").append(ranking.get(k).name().toLowerCase()).append("\": {\"races\": ").append(numRaces[i])
+          .append(", \"in_time\": ").append(numInTime[i]).append(", \"wins\": ").append(numWins[i])
+          .append(", \"nanos\": ").append(nanos[i]).append('}');
+      sb.append(k + 1 < ranking.size() ? ",\n" : "\n");
+    }
+
+    return sb.append('}').toString();
+  }
+}
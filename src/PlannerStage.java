@@ -0,0 +1,22 @@
+/**
+ * PlannerStage is one stage of MoveGenerator's decision cascade, such as
+ * bringing the treasure home or exploring. Whenever the planned moves run out,
+ * the stages are asked in order until one ends the cascade. A stage reads the
+ * state and plans moves through the PlanningContext it is given. Stages hold
+ * no state of their own, so one stage object can serve any number of agents.
+ * The stages an agent plans with are set by -Dagent.stages, see PlannerStages.
+ *
+ * @author Yufan Zou
+ */
+public interface PlannerStage {
+  /**
+   * Decides what to do at this stage, if anything, queueing the moves through
+   * the context.
+   *
+   * @param context
+   *          the state to plan on and the searches to plan with
+   * @return boolean value of whether the cascade ends here, whether or not any
+   *         moves were planned; false to pass on to the next stage
+   */
+  boolean plan(PlanningContext context);
+}
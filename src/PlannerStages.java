@@ -0,0 +1,406 @@
+import java.util.*;
+
+/**
+ * PlannerStages class holds the built-in stages of MoveGenerator's decision
+ * cascade and looks stages up by name. The stages an agent plans with are set
+ * with -Dagent.stages=return_home,sail,reach_treasure,... in the order to ask
+ * them, and default to CASCADE. A name that is not one of the built-in stages
+ * is taken as the name of a class implementing PlannerStage with a no-argument
+ * constructor, so other planners can be swapped in without changing the agent.
+ *
+ * @author Yufan Zou
+ */
+public final class PlannerStages {
+  // The stages in the order the agent has always decided by
+  final static String CASCADE = "return_home,sail,reach_treasure,fetch_tool,explore,gather,cross_water,fallback_home";
+
+  private final static Map<String, PlannerStage> BUILT_IN = new LinkedHashMap<>();
+
+  static {
+    BUILT_IN.put("return_home", new ReturnHome());
+    BUILT_IN.put("sail", new Sail());
+    BUILT_IN.put("reach_treasure", new ReachTreasure());
+    BUILT_IN.put("fetch_tool", new FetchTool());
+    BUILT_IN.put("explore", new Explore());
+    BUILT_IN.put("gather", new Gather());
+    BUILT_IN.put("cross_on_stones", new CrossOnStones());
+    BUILT_IN.put("cross_water", new CrossWater());
+    BUILT_IN.put("fallback_home", new FallbackHome());
+  }
+
+  private PlannerStages() {
+  }
+
+  /**
+   * Reads a comma separated list of stage names, in either case.
+   *
+   * @param names
+   *          list of names, e.g. "return_home,explore,fallback_home"
+   * @return returns the stages in the order given
+   * @throws IllegalArgumentException
+   *           if a name is neither a built-in stage nor a PlannerStage class,
+   *           or the list is empty
+   */
+  public static List<PlannerStage> parse(String names) {
+    List<PlannerStage> stages = new ArrayList<>();
+
+    for (String name : names.split(",")) {
+      if (!name.trim().isEmpty()) {
+        stages.add(forName(name.trim()));
+      }
+    }
+    if (stages.isEmpty()) {
+      throw new IllegalArgumentException("No planner stages given");
+    }
+
+    return stages;
+  }
+
+  /**
+   * Returns the stages set with -Dagent.stages, or the cascade if none are set
+   *
+   * @return returns the configured stages
+   */
+  public static List<PlannerStage> fromConfig() {
+    return parse(System.getProperty("agent.stages", CASCADE));
+  }
+
+  /**
+   * Looks up a built-in stage, or makes one of a PlannerStage class.
+   *
+   * @param name
+   *          name of a built-in stage in either case, or a class name
+   * @return returns the stage
+   */
+  private static PlannerStage forName(String name) {
+    PlannerStage stage = BUILT_IN.get(name.toLowerCase());
+    if (stage != null) {
+      return stage;
+    }
+
+    try {
+      Object o = Class.forName(name).getDeclaredConstructor().newInstance();
+      if (o instanceof PlannerStage) {
+        return (PlannerStage) o;
+      }
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalArgumentException("Unknown planner stage " + name, e);
+    }
+    throw new IllegalArgumentException(name + " is not a PlannerStage");
+  }
+
+  /**
+   * Got the treasure: go back to the origin, over the water if need be.
+   */
+  static class ReturnHome implements PlannerStage {
+    @Override
+    public boolean plan(PlanningContext context) {
+      if (!context.getState().haveTreasure()) {
+        return false;
+      }
+
+      context.beginStage(DecisionMetrics.TREASURE_RETURN);
+      // Walk home if we can, which the distance field tells us with no search,
+      // otherwise the origin is across the water, e.g. we came over on a raft
+      if (context.getHomeDistance(context.getState().getPlayerCoordinate()) != HomeDistanceField.UNREACHABLE) {
+        context.routeHome();
+      } else {
+        context.crossWater(new Coordinate(0, 0));
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Sailing on a raft: keep going until we reach the treasure or land somewhere
+   * new.
+   */
+  static class Sail implements PlannerStage {
+    @Override
+    public boolean plan(PlanningContext context) {
+      StateView state = context.getState();
+      if (!state.onRaft()) {
+        return false;
+      }
+
+      context.beginStage(DecisionMetrics.STONE_SEARCH);
+      if (state.treasureLocated() && context.crossWater(state.getTreasureCoordinate())) {
+        return true;
+      }
+      if (!context.crossWater(null)) {
+        context.crossWater(new Coordinate(0, 0));
+      }
+      return true;
+    }
+  }
+
+  /**
+   * The treasure can be seen: walk to it, or work out which tools would get us
+   * there for fetch_tool to go after.
+   */
+  static class ReachTreasure implements PlannerStage {
+    @Override
+    public boolean plan(PlanningContext context) {
+      StateView state = context.getState();
+      if (!state.treasureLocated()) {
+        return false;
+      }
+
+      context.beginStage(DecisionMetrics.TREASURE_REACH);
+      Coordinate treasure = state.getTreasureCoordinate();
+      if (context.canReachTile(treasure)) {
+        context.route(treasure);
+        return true;
+      }
+
+      // Work out which tools would get us there on the island graph
+      if (!state.haveKey() && context.canReachIsland(treasure, true, state.haveAxe())) {
+        context.setNeedsTool('k', true);
+      }
+      if (!state.haveAxe() && context.canReachIsland(treasure, state.haveKey(), true)) {
+        context.setNeedsTool('a', true);
+      }
+      if (!state.haveKey() && !state.haveAxe() && context.canReachIsland(treasure, true, true)) {
+        context.setNeedsTool('k', true);
+        context.setNeedsTool('a', true);
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Walk to the nearest key, axe or stone we need, in that order, if we can.
+   */
+  static class FetchTool implements PlannerStage {
+    @Override
+    public boolean plan(PlanningContext context) {
+      StateView state = context.getState();
+      context.beginStage(DecisionMetrics.TOOL_FETCH);
+
+      return (context.needsTool('k') && fetch(context, state.getKeyCoordinates(), 'k'))
+          || (context.needsTool('a') && fetch(context, state.getAxeCoordinates(), 'a'))
+          || (context.needsTool('o') && fetch(context, state.getSSCoordinates(), 'o'));
+    }
+
+    /**
+     * Routes to the first of the tools that can be walked to.
+     *
+     * @param context
+     *          the context to plan in
+     * @param toolCoordinates
+     *          list of locations in internal that tool is located
+     * @param tool
+     *          map character of the tool
+     * @return boolean value of whether a tool can be reached
+     */
+    private boolean fetch(PlanningContext context, List<Coordinate> toolCoordinates, char tool) {
+      for (Coordinate location : toolCoordinates) {
+        // Sanity check
+        Character c = context.getState().getMap().get(location);
+        if (c == null || c != tool) {
+          continue;
+        }
+
+        if (context.canReachTile(location)) {
+          // one trip at a time, the next plan starts from where this one ends
+          context.route(location);
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Explore to get to a new area, following the tour through the frontier
+   * clusters we can walk to.
+   */
+  static class Explore implements PlannerStage {
+    @Override
+    public boolean plan(PlanningContext context) {
+      context.beginStage(DecisionMetrics.EXPLORE);
+      Coordinate tile = context.getFrontierTile();
+      if (tile.equals(context.getState().getPlayerCoordinate())) {
+        return false;
+      }
+
+      context.route(tile);
+      return true;
+    }
+  }
+
+  /**
+   * Nothing left to explore: flood fill for keys, axes, stones and trees we can
+   * walk to, and go round the cascade again if that gave us a new tool to look
+   * for.
+   */
+  static class Gather implements PlannerStage {
+    @Override
+    public boolean plan(PlanningContext context) {
+      StateView state = context.getState();
+      context.beginStage(DecisionMetrics.RESOURCE_FLOOD);
+      boolean neededKey = context.needsTool('k');
+      boolean neededAxe = context.needsTool('a');
+      boolean neededStone = context.needsTool('o');
+      boolean canGetResource = false;
+
+      if (!neededKey && !state.haveKey() && !state.getKeyCoordinates().isEmpty()) {
+        canGetResource |= floodFillToGetTool(context, state.getKeyCoordinates(), 'k');
+      }
+      if (!neededAxe && !state.haveAxe() && !state.getAxeCoordinates().isEmpty()) {
+        canGetResource |= floodFillToGetTool(context, state.getAxeCoordinates(), 'a');
+      }
+      if (!state.getSSCoordinates().isEmpty()) {
+        canGetResource |= floodFillToGetTool(context, state.getSSCoordinates(), 'o');
+      }
+      if (!state.getTreeCoordinates().isEmpty()) {
+        canGetResource |= floodFillToGetTool(context, state.getTreeCoordinates(), 'T');
+      }
+
+      // Only go round again if this pass gave us a new tool to look for,
+      // otherwise we would loop forever on the same reachable resources
+      if (canGetResource && (context.needsTool('k') != neededKey || context.needsTool('a') != neededAxe
+          || context.needsTool('o') != neededStone)) {
+        context.replan();
+      }
+      return false;
+    }
+
+    /**
+     * Reachability test on a resource given its coordinates. Any reachable
+     * resource sets the key as needed, as the cascade always has, and a tool
+     * sets itself as needed too.
+     *
+     * @param context
+     *          the context to plan in
+     * @param toolCoordinates
+     *          list of locations in internal that resource is located
+     * @param tool
+     *          map character of the resource
+     * @return boolean value of whether any of them can be reached
+     */
+    private boolean floodFillToGetTool(PlanningContext context, List<Coordinate> toolCoordinates, char tool) {
+      for (Coordinate location : toolCoordinates) {
+        if (context.canReachTile(location)) {
+          context.setNeedsTool('k', true);
+          if (tool != 'T') {
+            context.setNeedsTool(tool, true);
+          }
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * The treasure is in sight but cannot be walked to: look for a way over on the
+   * stones we hold before fetching anything.
+   */
+  static class CrossOnStones implements PlannerStage {
+    @Override
+    public boolean plan(PlanningContext context) {
+      StateView state = context.getState();
+      if (!state.treasureLocated() || state.getNumSteppingStones() == 0
+          || context.canReachTile(state.getTreasureCoordinate())) {
+        return false;
+      }
+
+      context.beginStage(DecisionMetrics.STONE_SEARCH);
+      return context.crossOnStones(state.getTreasureCoordinate());
+    }
+  }
+
+  /**
+   * Use our stepping stones or a raft to get to an area we cannot walk to.
+   * Gather has run by now, so any tools we still see on the map cannot be
+   * walked to (without using stepping stones). If we cannot walk home from
+   * here, the goals we could walk home from are tried first in each group.
+   */
+  static class CrossWater implements PlannerStage {
+    @Override
+    public boolean plan(PlanningContext context) {
+      StateView state = context.getState();
+      context.beginStage(DecisionMetrics.STONE_SEARCH);
+
+      // The area near the treasure, then the next island of a plan to pick up
+      // enough stones to get there
+      if (state.treasureLocated()) {
+        Coordinate treasure = state.getTreasureCoordinate();
+        if (context.crossToAny(Collections.singletonList(Collections.singletonList(treasure)))
+            || context.crossForStones(treasure)) {
+          return true;
+        }
+      }
+
+      // Then near another stepping stone, key or axe (not the tools we already
+      // have), then near a space we cannot walk to
+      boolean awayFromHome = context.getHomeDistance(state.getPlayerCoordinate()) == HomeDistanceField.UNREACHABLE;
+      List<List<Coordinate>> groups = new ArrayList<>();
+      groups.add(homeFirst(context, state.getSSCoordinates(), awayFromHome));
+      if (!state.haveKey()) {
+        groups.add(homeFirst(context, state.getKeyCoordinates(), awayFromHome));
+      }
+      if (!state.haveAxe()) {
+        groups.add(homeFirst(context, state.getAxeCoordinates(), awayFromHome));
+      }
+      List<Coordinate> spaces = new ArrayList<>();
+      for (Coordinate location : state.getSpaceCoordinates()) {
+        if (!context.canReachTile(location)) {
+          spaces.add(location);
+        }
+      }
+      groups.add(homeFirst(context, spaces, awayFromHome));
+
+      if (context.crossToAny(groups)) {
+        return true;
+      }
+
+      // Try to sail out to an area we have not seen yet, chopping a tree for a
+      // raft if need be (a raft can only launch once we hold no stones)
+      return state.getNumSteppingStones() == 0 && (state.haveRaft() || state.haveAxe()) && context.crossWater(null);
+    }
+
+    /**
+     * Puts the goals we could walk home from ahead of the others, keeping the
+     * order within each, when we cannot walk home from where we are.
+     *
+     * @param context
+     *          the context to plan in
+     * @param goals
+     *          goals in order of preference
+     * @param awayFromHome
+     *          whether the player cannot walk home
+     * @return returns the goals in the order to try them
+     */
+    private List<Coordinate> homeFirst(PlanningContext context, List<Coordinate> goals, boolean awayFromHome) {
+      if (!awayFromHome) {
+        return goals;
+      }
+
+      List<Coordinate> ordered = new ArrayList<>();
+      List<Coordinate> others = new ArrayList<>();
+      for (Coordinate goal : goals) {
+        if (context.getHomeDistance(goal) != HomeDistanceField.UNREACHABLE) {
+          ordered.add(goal);
+        } else {
+          others.add(goal);
+        }
+      }
+      ordered.addAll(others);
+      return ordered;
+    }
+  }
+
+  /**
+   * Nothing else to do: head back to the origin.
+   */
+  static class FallbackHome implements PlannerStage {
+    @Override
+    public boolean plan(PlanningContext context) {
+      context.beginStage(DecisionMetrics.FALLBACK_HOME);
+      context.routeHome();
+      return true;
+    }
+  }
+}
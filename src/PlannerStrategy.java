@@ -0,0 +1,69 @@
+import java.util.*;
+
+/**
+ * PlannerStrategy names the ways MoveGenerator can decide what to do next once
+ * its planned moves run out, each an order of PlannerStages to ask.
+ * PlannerPortfolio races them against each other.
+ *
+ * @author Yufan Zou
+ */
+public enum PlannerStrategy {
+  // The decision cascade: treasure, tools, exploration, resources, stones, home
+  CASCADE(PlannerStages.CASCADE),
+  // Head for the nearest frontier we can walk to before anything but bringing
+  // the treasure home, then carry on down the cascade
+  EXPLORE_FIRST("return_home,sail,explore,reach_treasure,fetch_tool,explore,gather,cross_water,fallback_home"),
+  // When the treasure is in sight but cannot be walked to, look for a way over
+  // to it on the stones we hold before fetching tools
+  CROSSING_FIRST("return_home,sail,cross_on_stones,reach_treasure,fetch_tool,explore,gather,cross_water,fallback_home");
+
+  private final List<PlannerStage> stages;
+
+  /**
+   * PlannerStrategy constructor.
+   *
+   * @param stages
+   *          names of the stages to plan with, in order
+   */
+  PlannerStrategy(String stages) {
+    this.stages = Collections.unmodifiableList(PlannerStages.parse(stages));
+  }
+
+  /**
+   * Returns the stages this strategy plans with
+   *
+   * @return the stages, in the order they are asked
+   */
+  public List<PlannerStage> getStages() {
+    return stages;
+  }
+
+  /**
+   * Reads a comma separated list of strategy names, in either case.
+   *
+   * @param names
+   *          list of names, e.g. "cascade,explore_first"
+   * @return returns the strategies in the order given
+   * @throws IllegalArgumentException
+   *           if a name is not a strategy or comes twice, or the list is empty
+   */
+  public static List<PlannerStrategy> parse(String names) {
+    List<PlannerStrategy> strategies = new ArrayList<>();
+
+    for (String name : names.split(",")) {
+      if (name.trim().isEmpty()) {
+        continue;
+      }
+      PlannerStrategy strategy = valueOf(name.trim().toUpperCase());
+      if (strategies.contains(strategy)) {
+        throw new IllegalArgumentException("Planner strategy " + strategy + " given twice");
+      }
+      strategies.add(strategy);
+    }
+    if (strategies.isEmpty()) {
+      throw new IllegalArgumentException("No planner strategies given");
+    }
+
+    return strategies;
+  }
+}
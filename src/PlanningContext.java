@@ -0,0 +1,165 @@
+import java.util.*;
+
+/**
+ * PlanningContext is what a PlannerStage plans with: a read-only view of the
+ * agent's state as of this decision, the searches the planner has (which keep their caches from
+ * stage to stage and move to move), and the plan being built. Routes and
+ * crossings always start from the player.
+ *
+ * @author Yufan Zou
+ */
+public interface PlanningContext {
+  /**
+   * Returns a read-only view of the agent's state
+   *
+   * @return view of the internal state of the agent
+   */
+  StateView getState();
+
+  /**
+   * Starts timing a decision stage, ending the one before.
+   *
+   * @param stage
+   *          one of the DecisionMetrics stage constants
+   */
+  void beginStage(int stage);
+
+  /**
+   * Indicates if any moves have been planned
+   *
+   * @return boolean value of if the plan has moves
+   */
+  boolean hasPlan();
+
+  /**
+   * Plans the shortest route on foot to a goal, chopping trees and unlocking
+   * doors on the way with the tools we have. Nothing is planned if there is no
+   * route.
+   *
+   * @param goal
+   *          the goal point that we want to reach
+   */
+  void route(Coordinate goal);
+
+  /**
+   * Plans a shortest route on foot back to the origin, read off the distance
+   * field State keeps, with no search. Nothing is planned if the origin cannot
+   * be walked to.
+   */
+  void routeHome();
+
+  /**
+   * Returns the number of steps to walk from a tile back to the origin with the
+   * tools we have, a cheap check of whether a tile, e.g. the far side of a
+   * crossing, would leave us able to get home.
+   *
+   * @param tile
+   *          the tile to walk from
+   * @return number of steps, or HomeDistanceField.UNREACHABLE if the origin
+   *         cannot be walked to
+   */
+  int getHomeDistance(Coordinate tile);
+
+  /**
+   * Plans a way over the water to a goal with the stones and raft we have,
+   * placing as few stones as possible. If the move's deadline cuts the search
+   * short, it is finished past the deadline, or with -Dagent.stallSearches=true
+   * a turn on the spot is planned instead and the search carries on next move.
+   *
+   * @param goal
+   *          the goal point that we want to reach, or null for the nearest point
+   *          that would reveal unknown tiles
+   * @return boolean value of whether moves were planned
+   */
+  boolean crossWater(Coordinate goal);
+
+  /**
+   * Plans a way over the water to a goal on stepping stones alone, which can
+   * always be walked back over.
+   *
+   * @param goal
+   *          the goal point that we want to reach
+   * @return boolean value of whether moves were planned
+   */
+  boolean crossOnStones(Coordinate goal);
+
+  /**
+   * Plans a way over the water to the first group of goals any of which can be
+   * reached, like crossWater on each goal in turn. With planner threads the
+   * goals of a group are searched side by side instead, see SubgoalEvaluator.
+   *
+   * @param groups
+   *          groups of goals, in order of preference
+   * @return boolean value of whether moves were planned
+   */
+  boolean crossToAny(List<List<Coordinate>> groups);
+
+  /**
+   * Tests whether the player can walk to a tile with the tools we have.
+   *
+   * @param tile
+   *          the tile that we want to reach
+   * @return boolean value of whether or not the tile is reachable
+   */
+  boolean canReachTile(Coordinate tile);
+
+  /**
+   * Tests on the island graph whether the goal could be reached from the player
+   * by land, doors and trees with the given tools.
+   *
+   * @param goal
+   *          the goal point that we want to reach
+   * @param hasKey
+   *          boolean of if we have key
+   * @param hasAxe
+   *          boolean of if we have axe
+   * @return boolean value of whether or not the goal is reachable
+   */
+  boolean canReachIsland(Coordinate goal, boolean hasKey, boolean hasAxe);
+
+  /**
+   * Plans on the island graph which stepping stones to pick up on the way
+   * across the water to a goal we hold too few stones to reach, and makes the
+   * first crossing of the plan.
+   *
+   * @param goal
+   *          the goal point that we want to reach
+   * @return boolean value of whether moves were planned, false too if the plan
+   *         crosses straight to the goal
+   */
+  boolean crossForStones(Coordinate goal);
+
+  /**
+   * Returns the next tile to explore on the tour through the frontier.
+   *
+   * @return the tile, or the player's own tile if there is nothing left we can
+   *         walk to
+   */
+  Coordinate getFrontierTile();
+
+  /**
+   * Indicates if the planner has decided it needs a tool, which it remembers
+   * from move to move until it picks one up
+   *
+   * @param tool
+   *          'k' for key, 'a' for axe or 'o' for stepping stone
+   * @return boolean value of if the tool is needed
+   */
+  boolean needsTool(char tool);
+
+  /**
+   * Sets whether the planner needs a tool.
+   *
+   * @param tool
+   *          'k' for key, 'a' for axe or 'o' for stepping stone
+   * @param need
+   *          whether the tool is needed
+   */
+  void setNeedsTool(char tool, boolean need);
+
+  /**
+   * Asks for the cascade to start again from the first stage once this stage
+   * has passed, e.g. because it found a new tool to go after.
+   */
+  void replan();
+}
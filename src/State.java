@@ -26,24 +26,56 @@ public class State {
 
   final static char COORDINATE_TEMPORARY_WATER = '#'; // stepping stone will be placed here
 
-  // Max size of the map
-  final static int MAX_SIZE = 80;
+  // Max size of the map, raised with -Dagent.maxSize=N for large generated maps
+  final static int MAX_SIZE = Integer.getInteger("agent.maxSize", 80);
+
+  // Radius of the square window the agent can see around itself
+  final static int VIEW_RADIUS = 2;
 
   // The map itself
   private Map<Coordinate, Character> map;
 
+  // Number of unknown tiles inside the view window centred on each tile,
+  // indexed by [x + MAX_SIZE][y + MAX_SIZE]
+  private int[][] unknownCount;
+
+  // Islands of land and what separates them
+  private IslandGraph islandGraph;
+
+  // Steps from every tile back to the origin with the tools we have
+  private HomeDistanceField homeField;
+
   // Tools we currently have
   private boolean haveAxe;
   private boolean haveKey;
   private boolean haveTreasure;
   private int num_stones;
-  private static int num_rafts;
+  private boolean haveRaft;
+  private boolean onRaft;
 
   private int curX;
   private int curY;
   private int direction;
   private int totalNumMoves;
 
+  // What the engine shows on the tile we stand on, and on the one we just left
+  private char groundTile;
+  private char leftTile;
+
+  // Every tile change so far in the order they happened, apart from the player
+  // turning on the spot, so a search can catch up on just what changed. A copy
+  // only keeps the changes since the last view update began, and counts the
+  // ones before in numChangesDropped
+  private ArrayList<Coordinate> changedTiles;
+  private int numChangesDropped;
+
+  // Number of tile changes before the last view update began
+  private int viewStart;
+
+  // Number of water tiles marked for a stone so far, which are not counted as
+  // tile changes
+  private int numStonesPlanned;
+
   private boolean treasureLocated;
   private Coordinate treasureCoordinate;
   private ArrayList<Coordinate> axeCoordinates;
@@ -61,27 +93,35 @@ public class State {
     this.haveKey = false;
     this.haveTreasure = false;
     this.num_stones = 0;
-    this.num_rafts = 0;
+    this.haveRaft = false;
+    this.onRaft = false;
     this.totalNumMoves = 0;
 
     // (0, 0) is origin point
     this.curX = 0;
     this.curY = 0;
+    this.groundTile = ' ';
+    this.leftTile = ' ';
 
     // Load map with unknowns first
     this.map = new HashMap<>();
+    this.changedTiles = new ArrayList<>();
+    this.islandGraph = new IslandGraph(map);
+    this.homeField = new HomeDistanceField(map);
+    this.unknownCount = new int[2 * MAX_SIZE + 1][2 * MAX_SIZE + 1];
     int x = -MAX_SIZE;
     while (x <= MAX_SIZE) {
       int y = -MAX_SIZE;
       while (y <= MAX_SIZE) {
         this.map.put(new Coordinate(x, y), COORDINATE_UNKNOWN);
+        adjustUnknownCount(x, y, 1);
         ++y;
       }
       ++x;
     }
 
     this.direction = UP;
-    this.map.put(new Coordinate(0, 0), MAP_UP);
+    setTile(new Coordinate(0, 0), MAP_UP);
 
     this.treasureLocated = false;
     this.axeCoordinates = new ArrayList<>();
@@ -92,6 +132,51 @@ public class State {
     this.treeCoordinates = new ArrayList<>();
   }
 
+  /**
+   * Copies another state, so that the copy can be changed (e.g. by planning
+   * ahead) without touching the original.
+   * 
+   * @param other
+   *          the state to copy
+   */
+  public State(State other) {
+    this.haveAxe = other.haveAxe;
+    this.haveKey = other.haveKey;
+    this.haveTreasure = other.haveTreasure;
+    this.num_stones = other.num_stones;
+    this.haveRaft = other.haveRaft;
+    this.onRaft = other.onRaft;
+    this.totalNumMoves = other.totalNumMoves;
+
+    this.curX = other.curX;
+    this.curY = other.curY;
+    this.direction = other.direction;
+    this.groundTile = other.groundTile;
+    this.leftTile = other.leftTile;
+    this.changedTiles = new ArrayList<>(
+        other.changedTiles.subList(other.viewStart - other.numChangesDropped, other.changedTiles.size()));
+    this.numChangesDropped = other.viewStart;
+    this.viewStart = other.viewStart;
+    this.numStonesPlanned = other.numStonesPlanned;
+
+    this.map = new HashMap<>(other.map);
+    this.islandGraph = new IslandGraph(map, other.islandGraph);
+    this.homeField = new HomeDistanceField(map, other.homeField);
+    this.unknownCount = new int[other.unknownCount.length][];
+    for (int i = 0; i < unknownCount.length; ++i) {
+      this.unknownCount[i] = other.unknownCount[i].clone();
+    }
+
+    this.treasureLocated = other.treasureLocated;
+    this.treasureCoordinate = other.treasureCoordinate;
+    this.axeCoordinates = new ArrayList<>(other.axeCoordinates);
+    this.keyCoordinates = new ArrayList<>(other.keyCoordinates);
+    this.stoneCoordinates = new ArrayList<>(other.stoneCoordinates);
+    this.waterCoordinates = new ArrayList<>(other.waterCoordinates);
+    this.spaceCoordinates = new ArrayList<>(other.spaceCoordinates);
+    this.treeCoordinates = new ArrayList<>(other.treeCoordinates);
+  }
+
   /**
    * Updates the internal view of the board from the 5*5 view we are given as we
    * traverse the game board. It will delegate the board to another method if we
@@ -103,6 +188,7 @@ public class State {
    */
   public void updateViaView(char view[][]) {
     int numTimesToRotate = direction;
+    viewStart = getNumTileChanges();
 
     for (int i = 0; i < numTimesToRotate; ++i) {
       view = rotateBoard(view);
@@ -131,11 +217,96 @@ public class State {
           continue;
 
         // Update map
-        map.put(newTile, curTile);
+        setTile(newTile, curTile);
+      }
+    }
+  }
+
+  /**
+   * Updates the internal view of the board from a view of which only some cells
+   * changed since the last one, writing just those cells (and the player's own
+   * tile) into the map. The other cells already hold what the view shows.
+   * 
+   * @param view
+   *          the 5*5 view that we are given
+   * @param changedCells
+   *          ViewDelta mask of the cells that changed
+   */
+  public void updateViaDelta(char view[][], int changedCells) {
+    if (changedCells == ViewDelta.ALL_CHANGED) {
+      updateViaView(view);
+      return;
+    }
+
+    viewStart = getNumTileChanges();
+    for (int n = 0; n < ViewChannel.FRAME_SIZE; ++n) {
+      if ((changedCells & 1 << n) == 0) {
+        continue;
+      }
+
+      // Turn the cell the same way updateViaView turns the whole view
+      int i = ViewDelta.getRow(n);
+      int j = ViewDelta.getCol(n);
+      for (int k = 0; k < direction; ++k) {
+        int t = i;
+        i = j;
+        j = 4 - t;
       }
+
+      char curTile = view[ViewDelta.getRow(n)][ViewDelta.getCol(n)];
+      Coordinate newTile = new Coordinate(curX + (j - 2), curY + (2 - i));
+      checkToolUsage(curTile, newTile);
+
+      if (map.get(newTile) != null && map.get(newTile) == COORDINATE_TEMPORARY_WATER)
+        continue;
+
+      setTile(newTile, curTile);
+    }
+
+    if (direction == UP) {
+      setTile(new Coordinate(curX, curY), MAP_UP);
+    } else if (direction == DOWN) {
+      setTile(new Coordinate(curX, curY), MAP_DOWN);
+    } else if (direction == RIGHT) {
+      setTile(new Coordinate(curX, curY), MAP_RIGHT);
+    } else if (direction == LEFT) {
+      setTile(new Coordinate(curX, curY), MAP_LEFT);
     }
   }
 
+  /**
+   * Works out the 5*5 view the engine should send next if the board is what we
+   * think it is, turned the way the engine turns it. The tile we just left shows
+   * the land, stone or water we stood on and the player's own tile is left blank.
+   * Only meaningful when getUnknownCount of the player's tile is 0.
+   * 
+   * @return returns the expected view
+   */
+  public char[][] getExpectedView() {
+    char[][] view = new char[5][5];
+
+    for (int i = 0; i < 5; ++i) {
+      for (int j = 0; j < 5; ++j) {
+        Character tile = map.get(new Coordinate(curX + (j - 2), curY + (2 - i)));
+        char curTile = tile == null ? COORDINATE_BOUNDARY : tile;
+        if (curTile == COORDINATE_TEMPORARY_WATER) {
+          curTile = '~'; // no stone there until we step on it
+        } else if (isPlayerTile(curTile)) {
+          curTile = leftTile;
+        }
+        view[i][j] = curTile;
+      }
+    }
+    view[2][2] = ' ';
+
+    // Undo the turning that updateViaView does
+    for (int i = 0; i < (4 - direction) % 4; ++i) {
+      view = rotateBoard(view);
+    }
+
+    return view;
+  }
+
   /**
    * Updates the internal state of the game board via the move that is made.
    * 
@@ -173,27 +344,34 @@ public class State {
     } else if (move == 'F') {
       Coordinate nextTilePoint = getFrontTile(new Coordinate(curX, curY), direction);
       nextTile = map.get(nextTilePoint);
-      // next tile is tree and have axe
-      if ((nextTile == 'T') && (haveAxe == true)) {
-        if (treeCoordinates.contains(nextTilePoint))
-          treeCoordinates.remove(nextTilePoint);
-
-        ++num_rafts;
-        // System.exit(0);
-        // System.err.println("get raft" + num_rafts);
-      }
-      // next tile is water and placed stepping stone
+      // next tile is water, stones we hold are placed before a raft is used
       if (nextTile == '~' || nextTile == COORDINATE_TEMPORARY_WATER) {
-        if (num_stones > 0) {
+        if (onRaft) {
+          // keep sailing
+        } else if (num_stones > 0) {
           --num_stones; // we will place a stone on the water
-        }
 
-        if (nextTile == COORDINATE_TEMPORARY_WATER) {
-          map.put(nextTilePoint, 'O');
-        }
+          if (nextTile == COORDINATE_TEMPORARY_WATER) {
+            setTile(nextTilePoint, 'O');
+          }
 
-        waterCoordinates.remove(nextTilePoint); // no longer water
+          waterCoordinates.remove(nextTilePoint); // no longer water
+        } else if (haveRaft) {
+          onRaft = true;
+        }
+      } else if (onRaft && (nextTile == ' ' || nextTile == 'a' || nextTile == 'k' || nextTile == '$'
+          || nextTile == 'O')) {
+        // landing leaves the raft behind
+        onRaft = false;
+        haveRaft = false;
+      }
+      leftTile = groundTile;
+      if (nextTile == '~' || nextTile == COORDINATE_TEMPORARY_WATER) {
+        groundTile = onRaft ? '~' : 'O';
+      } else {
+        groundTile = nextTile == 'O' ? 'O' : ' ';
       }
+
       // next tile is stepping stone
       if (nextTile == 'o') {
         if (stoneCoordinates.contains(nextTilePoint)) {
@@ -223,14 +401,14 @@ public class State {
       }
 
     } else if (move == 'C') {
-      // Update rafts count when chop down a tree
+      // Chopping down a tree gives us a raft
       Coordinate frontC = getFrontTile(new Coordinate(curX, curY));
       nextTile = map.get(frontC);
       if ((nextTile == 'T') && (haveAxe == true)) {
         if (treeCoordinates.contains(frontC)) {
           treeCoordinates.remove(frontC);
         }
-        ++num_rafts; // update number of rafts we have
+        haveRaft = true;
       }
     } else if (move == 'U') {
       // Unlock door
@@ -241,6 +419,185 @@ public class State {
     }
   }
 
+  /**
+   * Writes a tile into the internal map, keeping the unknown count field in step
+   * whenever a tile stops (or starts) being unknown, and letting the island graph
+   * and the home distance field know about the change.
+   * 
+   * @param tile
+   *          coordinate of the tile being written
+   * @param value
+   *          new char representation of the tile
+   */
+  private void setTile(Coordinate tile, char value) {
+    Character old = putTile(tile, value);
+    if (old == null || (old != value && !(isPlayerTile(old) && isPlayerTile(value)))) {
+      changedTiles.add(tile);
+    }
+
+    boolean wasUnknown = old != null && old == COORDINATE_UNKNOWN;
+    boolean isUnknown = value == COORDINATE_UNKNOWN;
+    if (wasUnknown && !isUnknown) {
+      adjustUnknownCount(tile.getX(), tile.getY(), -1);
+    } else if (!wasUnknown && isUnknown) {
+      adjustUnknownCount(tile.getX(), tile.getY(), 1);
+    }
+  }
+
+  /**
+   * Indicates if a tile is the player's arrow
+   * 
+   * @param tile
+   *          char representation of the tile
+   * @return boolean value of if the tile is one of the direction characters
+   */
+  private static boolean isPlayerTile(char tile) {
+    return tile == MAP_UP || tile == MAP_DOWN || tile == MAP_LEFT || tile == MAP_RIGHT;
+  }
+
+  /**
+   * Returns how many times a tile of the map has changed, not counting the
+   * player turning on the spot. While it stays the same, so does the map.
+   * 
+   * @return number of tile changes so far
+   */
+  public int getNumTileChanges() {
+    return numChangesDropped + changedTiles.size();
+  }
+
+  /**
+   * Marks a water tile as where a stone will be placed, so routes planned from
+   * now on may walk over it. Views leave the mark alone until the stone is
+   * placed. Unlike a tile revealed or changed by a move, this does not count as
+   * a change of the map.
+   * 
+   * @param tile
+   *          water tile the stone will be placed on
+   */
+  public void markStonePlanned(Coordinate tile) {
+    putTile(tile, COORDINATE_TEMPORARY_WATER);
+    ++numStonesPlanned;
+  }
+
+  /**
+   * Returns how many water tiles have been marked for a stone so far. Together
+   * with getNumTileChanges, while it stays the same, so does the map.
+   * 
+   * @return number of stones planned so far
+   */
+  public int getNumStonesPlanned() {
+    return numStonesPlanned;
+  }
+
+  /**
+   * Puts a tile into the internal map and lets the island graph and the home
+   * distance field know, the one way they both hear of every change.
+   * 
+   * @param tile
+   *          coordinate of the tile being written
+   * @param value
+   *          new char representation of the tile
+   * @return returns the tile's char representation before, or null if it was
+   *         not set
+   */
+  private Character putTile(Coordinate tile, char value) {
+    Character old = map.put(tile, value);
+    islandGraph.tileChanged(tile, old, value);
+    homeField.tileChanged(tile, old, value);
+    return old;
+  }
+
+  /**
+   * Returns the number of steps to walk from a tile to the origin with the tools
+   * we have. The distances are kept up to date as the map is revealed, so this
+   * needs no search.
+   * 
+   * @param tile
+   *          tile that we are looking at
+   * @return number of steps, or HomeDistanceField.UNREACHABLE if the origin
+   *         cannot be walked to
+   */
+  public int getHomeDistance(Coordinate tile) {
+    return homeField.getDistance(tile, haveKey, haveAxe);
+  }
+
+  /**
+   * Returns a shortest way for the player to walk home with the tools we have,
+   * read off the home distance field with no search.
+   * 
+   * @return returns the path from the origin back to (but not including) the
+   *         player, empty if the origin cannot be walked to
+   */
+  public LinkedList<Coordinate> getPathHome() {
+    return homeField.getPathHome(getPlayerCoordinate(), direction, haveKey, haveAxe);
+  }
+
+  /**
+   * Returns the tiles that have changed since the last view update began, the
+   * tiles it revealed or changed and any changed by moves made since.
+   * 
+   * @return list of changed tiles, in the order they changed
+   */
+  public List<Coordinate> getChangedTiles() {
+    return getTilesChangedSince(viewStart);
+  }
+
+  /**
+   * Returns the tiles that have changed since the map had changed a number of
+   * times, as given by getNumTileChanges back then. A copy of a state can only
+   * go back as far as the last view update before it was copied.
+   * 
+   * @param numTileChanges
+   *          number of tile changes so far at the time
+   * @return list of changed tiles, in the order they changed
+   */
+  public List<Coordinate> getTilesChangedSince(int numTileChanges) {
+    return Collections.unmodifiableList(changedTiles.subList(numTileChanges - numChangesDropped, changedTiles.size()));
+  }
+
+  /**
+   * Adds the given amount to the unknown count of every tile whose view window
+   * covers the point (x, y).
+   * 
+   * @param x
+   *          x coordinate of the tile that changed
+   * @param y
+   *          y coordinate of the tile that changed
+   * @param amount
+   *          amount to add to each covering tile
+   */
+  private void adjustUnknownCount(int x, int y, int amount) {
+    int minX = Math.max(x - VIEW_RADIUS, -MAX_SIZE);
+    int maxX = Math.min(x + VIEW_RADIUS, MAX_SIZE);
+    int minY = Math.max(y - VIEW_RADIUS, -MAX_SIZE);
+    int maxY = Math.min(y + VIEW_RADIUS, MAX_SIZE);
+
+    for (int i = minX; i <= maxX; ++i) {
+      for (int j = minY; j <= maxY; ++j) {
+        unknownCount[i + MAX_SIZE][j + MAX_SIZE] += amount;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of unknown tiles that would be revealed by standing on the
+   * given tile, i.e. the unknown tiles inside the view window centred on it.
+   * 
+   * @param tile
+   *          the tile that we would stand on
+   * @return number of unknown tiles in view of that tile, 0 if it is off the map
+   */
+  public int getUnknownCount(Coordinate tile) {
+    int x = tile.getX() + MAX_SIZE;
+    int y = tile.getY() + MAX_SIZE;
+
+    if (x < 0 || y < 0 || x >= unknownCount.length || y >= unknownCount.length) {
+      return 0;
+    }
+
+    return unknownCount[x][y];
+  }
+
   /**
    * Checks the tile that we are currently looking at, and if it is of use/we need
    * to keep track of it, we will store it in their respective arrayList for later
@@ -422,6 +779,15 @@ public class State {
     return map;
   }
 
+  /**
+   * Returns the islands of land on the internal map and the gates between them
+   * 
+   * @return returns the island graph
+   */
+  public IslandGraph getIslandGraph() {
+    return islandGraph;
+  }
+
   /**
    * Gets the coordinate location of the goal if it is avaliable
    * 
@@ -496,12 +862,21 @@ public class State {
   }
 
   /**
-   * Returns the number of rafts that we have as an int
+   * Indicates if we have a raft, either carried or sailing on
+   * 
+   * @return boolean value of if we have a raft
+   */
+  public boolean haveRaft() {
+    return haveRaft;
+  }
+
+  /**
+   * Indicates if we are currently sailing on our raft
    * 
-   * @return int of number of rafts we have
+   * @return boolean value of if we are on the raft
    */
-  public static int getNumRafts() {
-    return num_rafts;
+  public boolean onRaft() {
+    return onRaft;
   }
 
 }
@@ -0,0 +1,167 @@
+import java.util.*;
+
+/**
+ * StateView class is a read-only view of the agent's internal state, which is
+ * what planner stages are given. It reads the live state, so it is always up to
+ * date, but has no way to change it: the lists and the map it returns cannot
+ * be changed either.
+ *
+ * @author Yufan Zou
+ */
+public final class StateView {
+  private final State state;
+
+  /**
+   * StateView class constructor.
+   *
+   * @param state
+   *          internal state to view
+   */
+  public StateView(State state) {
+    this.state = state;
+  }
+
+  /**
+   * Indicates if we have the treasure
+   *
+   * @return boolean value of if we have treasure
+   */
+  public boolean haveTreasure() {
+    return state.haveTreasure();
+  }
+
+  /**
+   * Indicates if we have the treasure on the internal view
+   *
+   * @return boolean value of if we have treasure on the internal board
+   */
+  public boolean treasureLocated() {
+    return state.treasureLocated();
+  }
+
+  /**
+   * Gets the current coordinates of the player
+   *
+   * @return returns the player position as a Coordinate
+   */
+  public Coordinate getPlayerCoordinate() {
+    return state.getPlayerCoordinate();
+  }
+
+  /**
+   * Gets the direction the player is facing
+   *
+   * @return returns State.UP, RIGHT, DOWN or LEFT
+   */
+  public int getDirection() {
+    return state.getDirection();
+  }
+
+  /**
+   * Indicates if we have the key
+   *
+   * @return boolean value of if we have key
+   */
+  public boolean haveKey() {
+    return state.haveKey();
+  }
+
+  /**
+   * Indicates if we have the axe
+   *
+   * @return boolean value of if we have axe
+   */
+  public boolean haveAxe() {
+    return state.haveAxe();
+  }
+
+  /**
+   * Indicates if we have a raft
+   *
+   * @return boolean value of if we have a raft
+   */
+  public boolean haveRaft() {
+    return state.haveRaft();
+  }
+
+  /**
+   * Indicates if we are sailing on a raft
+   *
+   * @return boolean value of if we are on a raft
+   */
+  public boolean onRaft() {
+    return state.onRaft();
+  }
+
+  /**
+   * Gets the number of stepping stones we hold
+   *
+   * @return number of stepping stones
+   */
+  public int getNumSteppingStones() {
+    return state.getNumSteppingStones();
+  }
+
+  /**
+   * Gets the internal map
+   *
+   * @return read-only map of the board
+   */
+  public Map<Coordinate, Character> getMap() {
+    return Collections.unmodifiableMap(state.getMap());
+  }
+
+  /**
+   * Gets the coordinate location of the goal if it is avaliable
+   *
+   * @return returns the location of the treasure as a Coordinate
+   */
+  public Coordinate getTreasureCoordinate() {
+    return state.getTreasureCoordinate();
+  }
+
+  /**
+   * Gets the locations of the keys that we can see on the internal
+   *
+   * @return returns the read-only list of key locations
+   */
+  public List<Coordinate> getKeyCoordinates() {
+    return Collections.unmodifiableList(state.getKeyCoordinates());
+  }
+
+  /**
+   * Gets the locations of the axes that we can see on the internal
+   *
+   * @return returns the read-only list of axe locations
+   */
+  public List<Coordinate> getAxeCoordinates() {
+    return Collections.unmodifiableList(state.getAxeCoordinates());
+  }
+
+  /**
+   * Gets the locations of the stepping stones that we can see on the internal
+   *
+   * @return returns the read-only list of stepping stone locations
+   */
+  public List<Coordinate> getSSCoordinates() {
+    return Collections.unmodifiableList(state.getSSCoordinates());
+  }
+
+  /**
+   * Gets the locations of the spaces that we can see on the internal
+   *
+   * @return returns the read-only list of space locations
+   */
+  public List<Coordinate> getSpaceCoordinates() {
+    return Collections.unmodifiableList(state.getSpaceCoordinates());
+  }
+
+  /**
+   * Gets the locations of the trees that we can see on the internal
+   *
+   * @return returns the read-only list of tree locations
+   */
+  public List<Coordinate> getTreeCoordinates() {
+    return Collections.unmodifiableList(state.getTreeCoordinates());
+  }
+}
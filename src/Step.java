@@ -7,286 +7,48 @@
 
 import java.util.*;
 import java.io.*;
-import java.net.*;
 
 public class Step {
 
-  final static int EAST   = 0;
-  final static int NORTH  = 1;
-  final static int WEST   = 2;
-  final static int SOUTH  = 3;
-
-  private char[][] map;
-  private char[][] view;
-
-  private int nrows;     // number of rows in environment
-  private int irow,icol; // initial row and column
-
-    // current row, column and direction of agent
-  private int row,col,dirn;
-
-  private boolean have_axe     = false;
-  private boolean have_key     = false;
-  private boolean have_treasure= false;
-  private boolean have_raft    = false;
-  private boolean on_raft      = false;
-  private boolean off_map      = false;
-
-  private boolean game_won     = false;
-  private boolean game_lost    = false;
-
-  private int num_dynamites_held = 0;
-  private int num_stones_held = 0;
+  private static TraceWriter trace = null;
 
   private static void swanSong( String message ) {
-    System.out.println( message );
-    System.exit(-1);
-  }
-
-  private void read_map( String mapName ) {
-
-    BufferedReader in;
-    boolean agent_here;
-    char ch;
-    int r,c;
-
-    map = new char[1024][];
-
-    r=-1;
-    try {
-      in = new BufferedReader(new FileReader(mapName));
-      String oneLine = in.readLine();
-      while(( oneLine != null )&&( oneLine.length() > 0 )) {
-        map[++r] = new char[oneLine.length()];
-        for( c=0; c < oneLine.length(); c++ ) {
-          map[r][c] = oneLine.charAt(c);
-          agent_here = true;
-          switch( map[r][c] ) {
-           case '^': dirn = NORTH; break;
-           case '>': dirn = EAST;  break;
-           case 'v': dirn = SOUTH; break;
-           case '<': dirn = WEST;  break;
-           default:  agent_here = false;
-          }
-          if( agent_here ) {
-            row = r;
-            col = c;
-          }
-        }
-        oneLine = in.readLine();
+    if( trace != null ) {
+      try {
+        trace.close();
+      }
+      catch( IOException e ) {
+        System.out.println( "Could not write trace" );
       }
     }
-    catch( FileNotFoundException fnfe ) {
-      swanSong( "File Not Found: "+ mapName );
-    }
-    catch( IOException ioe ) {
-      swanSong( "IO Error" );
-    }
-    nrows = r+1; // number of rows
-    irow  = row; // initial row
-    icol  = col; // initial column
+    System.out.println( message );
+    System.exit(-1);
   }
 
-  private void print_map() {
-    char ch=' ';
-    int r,c;
-
+  private static void print_map( GameEngine engine ) {
     System.out.println();
-    for( r=0; r < nrows; r++ ) {
-      for( c=0; c < map[r].length; c++ ) {
-        if(( r == row )&&( c == col )) { // agent is here
-          switch( dirn ) {
-           case NORTH: ch = '^'; break;
-           case EAST:  ch = '>'; break;
-           case SOUTH: ch = 'v'; break;
-           case WEST:  ch = '<'; break;
-          }
-        }
-        else {
-          ch = map[r][c];
-        }
-        System.out.print( ch );
-      }
-      System.out.println();
-    }
+    System.out.print( engine.renderMap() );
     System.out.println();
   }
 
-  private boolean apply( char action )
-  {
-    int d_row, d_col;
-    int new_row, new_col;
-    char ch;
-
-    if(( action == 'L' )||( action == 'l' )) {
-      dirn = ( dirn + 1 ) % 4;
-      return( true );
-    }
-    else if(( action == 'R' )||( action == 'r' )) {
-      dirn = ( dirn + 3 ) % 4;
-      return( true );
-    }
-    else {
-      d_row = 0; d_col = 0;
-      switch( dirn ) {
-       case NORTH: d_row = -1; break;
-       case SOUTH: d_row =  1; break;
-       case EAST:  d_col =  1; break;
-       case WEST:  d_col = -1; break;
-      }
-      new_row = row + d_row;
-      new_col = col + d_col;
-
-      if(  (new_row < 0)||(new_row >= nrows)
-         ||(new_col < 0)||(new_col >= map[new_row].length)) {
-        if(( action == 'F' )||( action == 'f' )) {
-          if( !off_map ) {
-            map[row][col] = '~';
-            off_map = true;
-          }
-          row = new_row;
-          col = new_col;
-          game_lost = true;
-          return( true );
-        }
-        else {
-            return( false );
-        }
-      }
-
-      ch = map[new_row][new_col];
-
-      switch( action ) {
-       case 'F': case 'f':
-         switch( ch ) { // can't move into an obstacle
-          case '*': case 'T': case '-':
-            return( false );
-          }
-          if( !off_map && map[row][col] != 'O' ) map[row][col] = ' ';
-
-          switch( ch ) {
-           case '~':
-             if( on_raft ) {
-               if( !off_map ) map[row][col] = '~';
-             }
-             else if (num_stones_held > 0){
-               //System.out.println("Put down a stone");
-               num_stones_held--;
-               if( !off_map ) map[new_row][new_col] = 'O';
-             }
-             else if( have_raft ) {
-               on_raft = true;
-               if( !off_map && map[row][col] != 'O') map[row][col] = ' ';
-             }
-             else {
-               game_lost = true;
-             }
-             break;
-          case ' ': case 'a': case 'k': case '$': case 'd':
-            if( on_raft && !off_map ) {
-              map[row][col] = '~';
-              on_raft = false;
-              have_raft = false;
-            }
-          case 'O':
-            if( on_raft && !off_map ) {
-              map[row][col] = '~';
-              on_raft = false;
-              have_raft = false;
-            } 
-          break;
-        }
-        row = new_row;
-        col = new_col;
-        switch( ch ) {
-         case 'a': have_axe      = true; break;
-         case 'k': have_key      = true; break;
-         case '$': have_treasure = true; break;
-         case 'd': num_dynamites_held++; break;
-         case 'o': num_stones_held++;    break;
-       }
-       if( have_treasure &&( row == irow )&&( col == icol )) {
-         game_won = true;
-       }
-       if( !off_map && map[row][col] != 'O' ){
-          map[row][col] = ' ';
-          //System.out.println("On a stone");
-       } 
-       off_map = false;
-       return( true );
-
-     case 'C': case 'c': // chop
-       if(( ch == 'T' )&& have_axe ) {
-         map[new_row][new_col] = ' ';
-         have_raft = true;
-         return( true );
-       }
-       break;
-
-     case 'U': case 'u': // unlock
-       if(( ch == '-' )&& have_key ) {
-         map[new_row][new_col] = ' ';
-         return( true );
-       }
-       break;
-
-     case 'B': case 'b': // blast
-       if( num_dynamites_held > 0 ) {
-         switch( ch ) {
-          case '*': case 'T': case '-':
-            map[new_row][new_col] = ' ';
-            num_dynamites_held--;
-            return( true );
-         }
-       }
-       break;
-      }
-    }
-    return( false );
-  }
-
-  private void get_view() {
-    char ch;
-    int i,j,r=0,c=0;
-
-    for( i = -2; i <= 2; i++ ) {
-      for( j = -2; j <= 2; j++ ) {
-        switch( dirn ) {
-         case NORTH: r = row+i; c = col+j; break;
-         case SOUTH: r = row-i; c = col-j; break;
-         case EAST:  r = row+j; c = col-i; break;
-        case WEST:  r = row-j; c = col+i; break;
-        }
-        if(  ( r >= 0 )&&( r < nrows )
-           &&( c >= 0 )&&( c < map[r].length )) {
-          view[2+i][2+j] = map[r][c];
-        }
-        else {
-            view[2+i][2+j] = '.';
-        }
-      }
-    }
-  }
-
   private static void printUsage()
   {
     swanSong(
-    "Usage: java Step [-p <port>] -i map [-m <maxmoves>] [-s]\n");
+    "Usage: java Step [-p <port>] -i map [-m <maxmoves>] [-s] [-t <trace>]\n");
   }
 
   public static void main( String[] args )
   {
-    Step step;
+    GameEngine engine = new GameEngine();
+    char[][] view = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
     boolean silent = false;
     String mapName = "";
+    String traceName = null;
     char action  = 'F';
     int maxmoves = 10000;
     int port = 0;
     int k,m;
 
-    step = new Step();
-    step.view = new char[5][5];
-
     k=0;
     while( k < args.length ) {
       if( args[k].compareTo("-i") == 0 ) {
@@ -313,6 +75,14 @@ public class Step {
           printUsage();
         }
       }
+      else if( args[k].compareTo("-t") == 0 ) {
+        if( ++k < args.length ) {
+          traceName = args[k++];
+        }
+        else {
+          printUsage();
+        }
+      }
       else if( args[k].compareTo("-s") == 0 ) {
         silent = true;
         k++;
@@ -325,65 +95,66 @@ public class Step {
     if( mapName.length() == 0 ) {
       printUsage();
     }
-    step.read_map( mapName );
+    char[][] rows = null;
+    try {
+      rows = GameEngine.readMap( mapName );
+      engine.reset( rows );
+    }
+    catch( FileNotFoundException fnfe ) {
+      swanSong( "File Not Found: "+ mapName );
+    }
+    catch( IOException ioe ) {
+      swanSong( "IO Error" );
+    }
+    if( traceName != null ) {
+      try {
+        trace = new TraceWriter( new FileOutputStream( traceName ), TraceWriter.hashMap( rows ));
+      }
+      catch( IOException ioe ) {
+        swanSong( "Could not write trace: "+ traceName );
+      }
+    }
 
     if( !silent ) {
-      step.print_map();
+      print_map( engine );
     }
 
     if( port != 0 ) {
-      InputStream in            = null;
-      OutputStream out          = null;
-      ServerSocket serverSocket = null;
-      Socket clientSocket       = null;
-      int i,j;
+      ViewChannel channel = null;
 
       try {
-        serverSocket = new ServerSocket( port );
-        clientSocket = serverSocket.accept();
-        serverSocket.close();
-        in  = clientSocket.getInputStream();
-        out = clientSocket.getOutputStream();
+        channel = ViewChannel.accept( port );
       }
       catch( IOException e ) {
         swanSong( "Could not listen on port: "+ port );
       }
 
+      GameSession session = new GameSession( channel, engine, maxmoves );
+      session.setTrace( trace );
+      if( !silent ) {
+        session.setLog( System.out );
+      }
       try {
-        for( m=1; m <= maxmoves; m++ ) {
-          step.get_view();
-          for( i=0; i < 5; i++ ) {
-            for( j=0; j < 5; j++ ) {
-              if( !(( i == 2 )&&( j == 2 ))) {
-                out.write( step.view[i][j] );
-              }
-            }
-          }
-          out.flush();
-          action = (char) in.read();
-          if( !silent ) {
-            System.out.println("action = "+ action );
-          }
-          step.apply( action );
-          if( !silent ) {
-            step.print_map();
-          }
-          if( step.game_won ) {
-            swanSong( "Game Won in "+ m +" moves." );
-          }
-          else if( step.game_lost ) {
+        switch( session.run() ) {
+          case GameSession.WON:
+            swanSong( "Game Won in "+ engine.getNumMoves() +" moves." );
+            break;
+          case GameSession.LOST:
             swanSong( "Game Lost." );
-          }
+            break;
+          case GameSession.OUT_OF_MOVES:
+            swanSong("Exceeded maximum of "+ maxmoves +" moves.\n");
+            break;
+          default:
+            swanSong("Lost connection to port: "+ port );
         }
-
-        swanSong("Exceeded maximum of "+ maxmoves +" moves.\n");
       }
       catch( IOException e ) {
         swanSong("Lost connection to port: "+ port );
       }
       finally {
         try {
-          clientSocket.close();
+          channel.close();
         }
         catch( IOException e ) {}
       }
@@ -392,16 +163,26 @@ public class Step {
       Agent agent = new Agent();
 
       for( m=1; m <= maxmoves; m++ ) {
-        step.get_view();
-        action = agent.get_action( step.view );
-        step.apply( action );
+        engine.observe( view );
+        long start = System.nanoTime();
+        action = agent.get_action( view );
+        if( trace != null ) {
+          try {
+            trace.writeTurn( view, action, System.nanoTime() - start );
+          }
+          catch( IOException e ) {
+            trace = null;
+            swanSong( "Could not write trace" );
+          }
+        }
+        engine.apply( action );
         if( !silent ) {
-          step.print_map();
+          print_map( engine );
         }
-        if( step.game_won ) {
+        if( engine.isWon() ) {
           swanSong( "Game Won in "+ m +" moves." );
         }
-        else if( step.game_lost ) {
+        else if( engine.isLost() ) {
           swanSong( "Game Lost." );
         }
       }
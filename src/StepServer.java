@@ -0,0 +1,275 @@
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * StepServer class is a Step engine that keeps accepting players on its port
+ * and plays any number of games at once, each session with its own GameEngine
+ * on its own thread. Sessions run on virtual threads where the JVM has them,
+ * and on an unbounded pool of platform threads otherwise. Sessions take maps
+ * round-robin from the maps given, or, with -c, the player picks one by
+ * sending its index as a single byte before anything else. Throughput is
+ * reported at every interval and when the server stops.
+ *
+ * Usage: java StepServer -p port [-i map]... [-d dir]... [-m maxmoves] [-c]
+ * [-n sessions] [-r seconds]
+ *
+ * With -n the server stops after that many sessions have finished.
+ *
+ * @author Yufan Zou
+ */
+public class StepServer {
+  final static int DEFAULT_MAX_MOVES = 10000;
+
+  private final List<String> mapNames;
+  private final List<char[][]> maps;
+  private final int maxMoves;
+  private final boolean clientPicksMap;
+
+  private final AtomicInteger nextMap = new AtomicInteger();
+  private final AtomicInteger activeSessions = new AtomicInteger();
+  private final LongAdder sessionsStarted = new LongAdder();
+  private final LongAdder sessionsFinished = new LongAdder();
+  private final LongAdder gamesWon = new LongAdder();
+  private final LongAdder gamesLost = new LongAdder();
+  private final LongAdder gamesDisconnected = new LongAdder();
+  private final LongAdder totalMoves = new LongAdder();
+  private final LongAdder totalRoundTrips = new LongAdder();
+  private final LongAdder totalSessionNanos = new LongAdder();
+  private final long startNanos = System.nanoTime();
+
+  /**
+   * StepServer class constructor.
+   *
+   * @param mapNames
+   *          paths of the maps to play
+   * @param maxMoves
+   *          number of moves after which a game counts as lost
+   * @param clientPicksMap
+   *          whether players pick their map with a handshake byte
+   * @throws IOException
+   *           if a map cannot be read
+   */
+  public StepServer(List<String> mapNames, int maxMoves, boolean clientPicksMap) throws IOException {
+    this.mapNames = new ArrayList<>(mapNames);
+    this.maps = new ArrayList<>();
+    for (String mapName : mapNames) {
+      maps.add(GameEngine.readMap(mapName));
+    }
+    this.maxMoves = maxMoves;
+    this.clientPicksMap = clientPicksMap;
+  }
+
+  /**
+   * Accepts players on the port and plays a session with each, until the given
+   * number of sessions have finished.
+   *
+   * @param port
+   *          port to listen on
+   * @param maxSessions
+   *          number of sessions to finish before stopping, 0 to never stop
+   * @param reportSeconds
+   *          seconds between throughput reports, 0 for none
+   * @param report
+   *          stream to print the reports to
+   * @throws IOException
+   *           if the port cannot be listened on
+   * @throws InterruptedException
+   *           if interrupted while waiting for sessions to finish
+   */
+  public void serve(int port, long maxSessions, int reportSeconds, PrintStream report)
+      throws IOException, InterruptedException {
+    ExecutorService sessions = newSessionExecutor();
+    ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+    if (reportSeconds > 0) {
+      reporter.scheduleAtFixedRate(() -> report.println(getReport()), reportSeconds, reportSeconds, TimeUnit.SECONDS);
+    }
+
+    try (ServerSocketChannel server = ServerSocketChannel.open()) {
+      server.bind(new InetSocketAddress(port), 128);
+      for (long accepted = 0; maxSessions == 0 || accepted < maxSessions; ++accepted) {
+        SocketChannel client = server.accept();
+        sessions.execute(() -> playSession(client));
+      }
+    } finally {
+      sessions.shutdown();
+      sessions.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      reporter.shutdownNow();
+      report.println(getReport());
+    }
+  }
+
+  /**
+   * Plays one session with a connected player on the calling thread.
+   *
+   * @param client
+   *          the player's connection, closed when the session ends
+   */
+  void playSession(SocketChannel client) {
+    activeSessions.incrementAndGet();
+    sessionsStarted.increment();
+    long start = System.nanoTime();
+    GameEngine engine = new GameEngine();
+    GameSession session = null;
+    int outcome = GameSession.DISCONNECTED;
+
+    try (ViewChannel channel = new ViewChannel(client)) {
+      int mapIndex;
+      if (clientPicksMap) {
+        int ch = channel.readAction();
+        if (ch == -1) {
+          return;
+        }
+        mapIndex = ch % maps.size();
+      } else {
+        mapIndex = Math.floorMod(nextMap.getAndIncrement(), maps.size());
+      }
+
+      engine.reset(maps.get(mapIndex));
+      session = new GameSession(channel, engine, maxMoves);
+      outcome = session.run();
+    } catch (IOException e) {
+      outcome = GameSession.DISCONNECTED;
+    } finally {
+      if (outcome == GameSession.WON) {
+        gamesWon.increment();
+      } else if (outcome == GameSession.DISCONNECTED) {
+        gamesDisconnected.increment();
+      } else {
+        gamesLost.increment();
+      }
+      totalMoves.add(engine.getNumMoves());
+      if (session != null) {
+        totalRoundTrips.add(session.getNumRoundTrips());
+      }
+      totalSessionNanos.add(System.nanoTime() - start);
+      sessionsFinished.increment();
+      activeSessions.decrementAndGet();
+    }
+  }
+
+  /**
+   * Describes the throughput of the server so far.
+   *
+   * @return returns one line of totals and rates
+   */
+  public String getReport() {
+    double seconds = (System.nanoTime() - startNanos) / 1e9;
+    long finished = sessionsFinished.sum();
+    long moves = totalMoves.sum();
+
+    return String.format(
+        "sessions %d started, %d active, %d finished (%d won, %d lost, %d disconnected); "
+            + "%d moves, %.1f moves/s, %.2f sessions/s, %.1f ms per session, %.2f moves per round trip",
+        sessionsStarted.sum(), activeSessions.get(), finished, gamesWon.sum(), gamesLost.sum(),
+        gamesDisconnected.sum(), moves, moves / seconds, finished / seconds,
+        finished == 0 ? 0.0 : totalSessionNanos.sum() / 1e6 / finished,
+        totalRoundTrips.sum() == 0 ? 0.0 : moves / (double) totalRoundTrips.sum());
+  }
+
+  /**
+   * Returns the maps sessions are played on, in the order of their handshake
+   * indexes
+   *
+   * @return paths of the maps
+   */
+  public List<String> getMapNames() {
+    return Collections.unmodifiableList(mapNames);
+  }
+
+  /**
+   * Makes an executor running each session on a new virtual thread, looked up
+   * reflectively so the server still builds and runs on JVMs without them, where
+   * sessions get platform threads from a cached pool instead.
+   *
+   * @return returns the session executor
+   */
+  static ExecutorService newSessionExecutor() {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+      return Executors.newCachedThreadPool();
+    }
+  }
+
+  private static void printUsage() {
+    System.out.println("Usage: java StepServer -p port [-i map]... [-d dir]... [-m maxmoves] [-c]"
+        + " [-n sessions] [-r seconds]");
+    System.exit(-1);
+  }
+
+  public static void main(String[] args) {
+    List<String> mapNames = new ArrayList<>();
+    List<String> directories = new ArrayList<>();
+    int port = 0;
+    int maxMoves = DEFAULT_MAX_MOVES;
+    boolean clientPicksMap = false;
+    long maxSessions = 0;
+    int reportSeconds = 10;
+
+    try {
+      for (int k = 0; k < args.length; ++k) {
+        if (args[k].equals("-c")) {
+          clientPicksMap = true;
+          continue;
+        }
+        if (k + 1 >= args.length) {
+          printUsage();
+        }
+        String value = args[++k];
+        switch (args[k - 1]) {
+          case "-p":
+            port = Integer.parseInt(value);
+            break;
+          case "-i":
+            mapNames.add(value);
+            break;
+          case "-d":
+            directories.add(value);
+            break;
+          case "-m":
+            maxMoves = Integer.parseInt(value);
+            break;
+          case "-n":
+            maxSessions = Long.parseLong(value);
+            break;
+          case "-r":
+            reportSeconds = Integer.parseInt(value);
+            break;
+          default:
+            printUsage();
+        }
+      }
+    } catch (NumberFormatException e) {
+      printUsage();
+    }
+    if (port == 0) {
+      printUsage();
+    }
+
+    try {
+      for (File mapFile : BatchRunner.findMaps(directories)) {
+        mapNames.add(mapFile.getPath());
+      }
+      if (mapNames.isEmpty()) {
+        printUsage();
+      }
+
+      StepServer server = new StepServer(mapNames, maxMoves, clientPicksMap);
+      for (int i = 0; i < mapNames.size(); ++i) {
+        System.out.println("map " + i + ": " + mapNames.get(i));
+      }
+      server.serve(port, maxSessions, reportSeconds, System.out);
+    } catch (IOException e) {
+      System.out.println("Could not serve on port " + port + ": " + e.getMessage());
+      System.exit(-1);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
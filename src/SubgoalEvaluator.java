@@ -0,0 +1,172 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * SubgoalEvaluator class runs the water crossing searches for a number of
+ * candidate goals side by side on a ForkJoinPool. Every search reads the same
+ * WorldSnapshot, never the live state, so the searches cannot see each other
+ * or the planner change anything while they run. It also builds the distance
+ * fields FrontierTour keeps for its clusters side by side; those read the
+ * state's map itself, which the planner leaves alone while it waits for them. The
+ * pool is shared by every agent in the process and sized by
+ * -Dagent.plannerThreads=N.
+ *
+ * @author Yufan Zou
+ */
+public class SubgoalEvaluator {
+  // Threads of the shared pool, 0 for none, in which case MoveGenerator tries
+  // its candidates one after another
+  final static int NUM_THREADS = Integer.getInteger("agent.plannerThreads", 0);
+
+  // Candidates searched together in one round. It does not depend on the number
+  // of threads, so neither does the candidate chosen
+  final static int ROUND_SIZE = 8;
+
+  private static ForkJoinPool sharedPool;
+
+  private final ForkJoinPool pool;
+
+  /**
+   * A water crossing search run as one task of the pool.
+   */
+  private static class SearchTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final WorldSnapshot world;
+    private final WaterCrossingSearch search;
+
+    /**
+     * SearchTask class constructor.
+     *
+     * @param world
+     *          snapshot the search was made on
+     * @param search
+     *          the search to run
+     */
+    SearchTask(WorldSnapshot world, WaterCrossingSearch search) {
+      this.world = world;
+      this.search = search;
+    }
+
+    @Override
+    protected void compute() {
+      search.search(world.haveKey(), world.haveAxe(), world.getNumSteppingStones(), world.haveRaft(),
+          world.onRaft());
+    }
+  }
+
+  /**
+   * The distance field of a frontier cluster built as one task of the pool.
+   */
+  private static class FieldTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final HomeDistanceField field;
+    private final boolean hasKey;
+    private final boolean hasAxe;
+
+    /**
+     * FieldTask class constructor.
+     *
+     * @param field
+     *          the field to build
+     * @param hasKey
+     *          boolean of if we have key
+     * @param hasAxe
+     *          boolean of if we have axe
+     */
+    FieldTask(HomeDistanceField field, boolean hasKey, boolean hasAxe) {
+      this.field = field;
+      this.hasKey = hasKey;
+      this.hasAxe = hasAxe;
+    }
+
+    @Override
+    protected void compute() {
+      field.rebuildIfNeeded(hasKey, hasAxe);
+    }
+  }
+
+  /**
+   * SubgoalEvaluator class constructor, using the shared pool.
+   */
+  public SubgoalEvaluator() {
+    this.pool = getSharedPool();
+  }
+
+  /**
+   * Runs every search of the list that has not finished yet, side by side, and
+   * waits for them all. Searches that were cut short by their deadline carry
+   * on from where they stopped the next time.
+   *
+   * @param world
+   *          snapshot the searches were made on
+   * @param searches
+   *          the searches to run, each made on the snapshot's map
+   */
+  public void searchAll(WorldSnapshot world, List<WaterCrossingSearch> searches) {
+    List<SearchTask> tasks = new ArrayList<>();
+    for (WaterCrossingSearch search : searches) {
+      if (!search.isComplete()) {
+        tasks.add(new SearchTask(world, search));
+      }
+    }
+
+    if (tasks.size() == 1) {
+      tasks.get(0).compute();
+    } else if (!tasks.isEmpty()) {
+      pool.invoke(new RecursiveAction() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+          invokeAll(tasks);
+        }
+      });
+    }
+  }
+
+  /**
+   * Builds every distance field of the list side by side, for the tools given,
+   * and waits for them all. The map they read must not change until this
+   * returns.
+   *
+   * @param fields
+   *          the fields to build
+   * @param hasKey
+   *          boolean of if we have key
+   * @param hasAxe
+   *          boolean of if we have axe
+   */
+  public void buildAll(List<HomeDistanceField> fields, boolean hasKey, boolean hasAxe) {
+    List<FieldTask> tasks = new ArrayList<>();
+    for (HomeDistanceField field : fields) {
+      tasks.add(new FieldTask(field, hasKey, hasAxe));
+    }
+
+    if (tasks.size() == 1) {
+      tasks.get(0).compute();
+    } else if (!tasks.isEmpty()) {
+      pool.invoke(new RecursiveAction() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+          invokeAll(tasks);
+        }
+      });
+    }
+  }
+
+  /**
+   * Returns the pool shared by every evaluator, making it the first time.
+   *
+   * @return the shared pool
+   */
+  private static synchronized ForkJoinPool getSharedPool() {
+    if (sharedPool == null) {
+      sharedPool = new ForkJoinPool(Math.max(1, NUM_THREADS));
+    }
+    return sharedPool;
+  }
+}
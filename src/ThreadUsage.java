@@ -0,0 +1,85 @@
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * ThreadUsage class reads how much memory threads have allocated, for the
+ * decision metrics and BatchRunner. Allocation can only be measured on JVMs that
+ * support it, and every method returns -1 where it cannot be.
+ *
+ * @author Yufan Zou
+ */
+public final class ThreadUsage {
+  private static final com.sun.management.ThreadMXBean THREAD_BEAN = getThreadBean();
+
+  private ThreadUsage() {
+  }
+
+  /**
+   * Returns the bytes allocated so far by the current thread.
+   *
+   * @return number of bytes, or -1 if the JVM cannot measure it
+   */
+  public static long getAllocatedBytes() {
+    return THREAD_BEAN == null ? -1 : THREAD_BEAN.getCurrentThreadAllocatedBytes();
+  }
+
+  /**
+   * Returns the bytes allocated so far by each live thread, to be handed to
+   * getAllocatedBytesSince later.
+   *
+   * @return bytes by thread id, or null if the JVM cannot measure it
+   */
+  public static Map<Long, Long> getAllThreadsAllocatedBytes() {
+    if (THREAD_BEAN == null) {
+      return null;
+    }
+
+    long[] ids = THREAD_BEAN.getAllThreadIds();
+    long[] bytes = THREAD_BEAN.getThreadAllocatedBytes(ids);
+    Map<Long, Long> byThread = new HashMap<>();
+    for (int i = 0; i < ids.length; ++i) {
+      if (bytes[i] >= 0) {
+        byThread.put(ids[i], bytes[i]);
+      }
+    }
+    return byThread;
+  }
+
+  /**
+   * Returns the bytes every live thread has allocated since
+   * getAllThreadsAllocatedBytes was called, counting threads started since then
+   * in full. Threads that have ended since are not counted.
+   *
+   * @param start
+   *          bytes by thread id returned by getAllThreadsAllocatedBytes
+   * @return number of bytes, or -1 if the JVM cannot measure it
+   */
+  public static long getAllocatedBytesSince(Map<Long, Long> start) {
+    Map<Long, Long> end = getAllThreadsAllocatedBytes();
+    if (start == null || end == null) {
+      return -1;
+    }
+
+    long total = 0;
+    for (Map.Entry<Long, Long> thread : end.entrySet()) {
+      total += thread.getValue() - start.getOrDefault(thread.getKey(), 0L);
+    }
+    return total;
+  }
+
+  /**
+   * Looks up the thread bean that can measure allocation.
+   *
+   * @return the bean, or null if allocation cannot be measured
+   */
+  private static com.sun.management.ThreadMXBean getThreadBean() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+      if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+        return sunBean;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,124 @@
+import java.io.*;
+
+/**
+ * TraceReader class reads back, one turn at a time, a game trace written by
+ * TraceWriter.
+ *
+ * @author Yufan Zou
+ */
+public class TraceReader implements Closeable {
+  private final DataInputStream in;
+  private final long mapHash;
+  private final byte[] buffer = new byte[TraceWriter.VIEW_BYTES + 1];
+
+  private char action;
+  private long nanos;
+  private int numTurns;
+
+  /**
+   * TraceReader class constructor. Reads and checks the header straight away.
+   *
+   * @param in
+   *          stream to read the trace from, closed with this reader
+   * @throws IOException
+   *           if the header cannot be read or is not that of a trace
+   */
+  public TraceReader(InputStream in) throws IOException {
+    this.in = new DataInputStream(new BufferedInputStream(in));
+
+    if (this.in.readInt() != TraceWriter.MAGIC) {
+      throw new IOException("Not a game trace");
+    }
+    int version = this.in.readUnsignedByte();
+    if (version != TraceWriter.VERSION) {
+      throw new IOException("Unsupported trace version " + version);
+    }
+    mapHash = this.in.readLong();
+  }
+
+  /**
+   * Reads the next turn, filling in the view and making the turn's action and
+   * timing available.
+   *
+   * @param view
+   *          5*5 buffer to fill, reused from turn to turn; the centre is left
+   *          alone
+   * @return boolean value of whether there was another turn
+   * @throws IOException
+   *           if the trace cannot be read or ends part way through a turn
+   */
+  public boolean readTurn(char[][] view) throws IOException {
+    int first = in.read();
+    if (first == -1) {
+      return false;
+    }
+    buffer[0] = (byte) first;
+    in.readFully(buffer, 1, buffer.length - 1);
+
+    int n = 0;
+    for (int i = 0; i < GameEngine.VIEW_SIZE; ++i) {
+      for (int j = 0; j < GameEngine.VIEW_SIZE; ++j) {
+        if (i != 2 || j != 2) {
+          view[i][j] = (char) (buffer[n++] & 0xFF);
+        }
+      }
+    }
+    action = (char) (buffer[n] & 0xFF);
+
+    nanos = 0;
+    for (int shift = 0;; shift += 7) {
+      if (shift > 63) {
+        throw new IOException("Malformed decision time in turn " + (numTurns + 1));
+      }
+      int b = in.readUnsignedByte();
+      nanos |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        break;
+      }
+    }
+
+    ++numTurns;
+    return true;
+  }
+
+  /**
+   * Returns the hash of the map the trace was recorded on
+   *
+   * @return map hash, 0 if the recorder could not see the map
+   */
+  public long getMapHash() {
+    return mapHash;
+  }
+
+  /**
+   * Returns the action chosen in the last turn read
+   *
+   * @return the action char
+   */
+  public char getAction() {
+    return action;
+  }
+
+  /**
+   * Returns the decision time of the last turn read
+   *
+   * @return time in nanoseconds
+   */
+  public long getNanos() {
+    return nanos;
+  }
+
+  /**
+   * Returns the number of turns read so far
+   *
+   * @return number of turns
+   */
+  public int getNumTurns() {
+    return numTurns;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
@@ -0,0 +1,205 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * TraceReplayer class feeds recorded game traces back into a fresh
+ * MoveGenerator, without an engine or a socket, and checks that the agent still
+ * chooses the recorded action every turn. Since the agent is deterministic a
+ * replay reproduces the recorded game exactly, which makes a slow game seen
+ * elsewhere easy to profile, and shows whether a change to the agent made the
+ * same decisions faster or made different ones.
+ *
+ * Usage: java TraceReplayer [-i map] [-n repeats] trace...
+ *
+ * With -i, each trace must have been recorded on the given map. With -n, each
+ * trace is replayed that many times and the fastest replay is reported.
+ *
+ * @author Yufan Zou
+ */
+public class TraceReplayer {
+  /**
+   * Outcome of replaying one trace.
+   */
+  public static class ReplayResult {
+    private final long mapHash;
+    private final int numTurns;
+    private final int divergedTurn;
+    private final char recordedAction;
+    private final char replayedAction;
+    private final long recordedNanos;
+    private final long replayNanos;
+
+    ReplayResult(long mapHash, int numTurns, int divergedTurn, char recordedAction, char replayedAction,
+        long recordedNanos, long replayNanos) {
+      this.mapHash = mapHash;
+      this.numTurns = numTurns;
+      this.divergedTurn = divergedTurn;
+      this.recordedAction = recordedAction;
+      this.replayedAction = replayedAction;
+      this.recordedNanos = recordedNanos;
+      this.replayNanos = replayNanos;
+    }
+
+    public long getMapHash() {
+      return mapHash;
+    }
+
+    /**
+     * Returns the number of turns replayed, up to and including the one that
+     * diverged
+     *
+     * @return number of turns
+     */
+    public int getNumTurns() {
+      return numTurns;
+    }
+
+    /**
+     * Returns the first turn, counting from 1, in which the agent chose a
+     * different action to the recorded one
+     *
+     * @return turn number, or 0 if every turn matched
+     */
+    public int getDivergedTurn() {
+      return divergedTurn;
+    }
+
+    public char getRecordedAction() {
+      return recordedAction;
+    }
+
+    public char getReplayedAction() {
+      return replayedAction;
+    }
+
+    /**
+     * Returns the recorded decision time of the replayed turns
+     *
+     * @return time in nanoseconds
+     */
+    public long getRecordedNanos() {
+      return recordedNanos;
+    }
+
+    /**
+     * Returns the decision time of the replayed turns in this replay
+     *
+     * @return time in nanoseconds
+     */
+    public long getReplayNanos() {
+      return replayNanos;
+    }
+  }
+
+  /**
+   * Replays a trace into a fresh MoveGenerator, stopping at the first turn in
+   * which the agent's action differs from the recorded one.
+   *
+   * @param reader
+   *          the trace, positioned after its header
+   * @return returns the outcome of the replay
+   * @throws IOException
+   *           if the trace cannot be read
+   */
+  public static ReplayResult replay(TraceReader reader) throws IOException {
+    MoveGenerator moveGenerator = new MoveGenerator();
+    char[][] view = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+    long recordedNanos = 0;
+    long replayNanos = 0;
+
+    while (reader.readTurn(view)) {
+      long start = System.nanoTime();
+      char action = moveGenerator.makeMove(view);
+      replayNanos += System.nanoTime() - start;
+      recordedNanos += reader.getNanos();
+
+      if (action != reader.getAction()) {
+        return new ReplayResult(reader.getMapHash(), reader.getNumTurns(), reader.getNumTurns(), reader.getAction(),
+            action, recordedNanos, replayNanos);
+      }
+    }
+
+    return new ReplayResult(reader.getMapHash(), reader.getNumTurns(), 0, ' ', ' ', recordedNanos, replayNanos);
+  }
+
+  /**
+   * Replays a trace file.
+   *
+   * @param traceFile
+   *          the trace to replay
+   * @return returns the outcome of the replay
+   * @throws IOException
+   *           if the trace cannot be read
+   */
+  public static ReplayResult replay(File traceFile) throws IOException {
+    try (TraceReader reader = new TraceReader(new FileInputStream(traceFile))) {
+      return replay(reader);
+    }
+  }
+
+  private static void printUsage() {
+    System.out.println("Usage: java TraceReplayer [-i map] [-n repeats] trace...");
+    System.exit(-1);
+  }
+
+  public static void main(String[] args) {
+    List<File> traceFiles = new ArrayList<>();
+    String mapName = null;
+    int repeats = 1;
+
+    try {
+      for (int k = 0; k < args.length; ++k) {
+        if (args[k].equals("-i") && k + 1 < args.length) {
+          mapName = args[++k];
+        } else if (args[k].equals("-n") && k + 1 < args.length) {
+          repeats = Math.max(1, Integer.parseInt(args[++k]));
+        } else if (args[k].startsWith("-")) {
+          printUsage();
+        } else {
+          traceFiles.add(new File(args[k]));
+        }
+      }
+    } catch (NumberFormatException e) {
+      printUsage();
+    }
+    if (traceFiles.isEmpty()) {
+      printUsage();
+    }
+
+    boolean failed = false;
+    try {
+      long mapHash = mapName == null ? 0 : TraceWriter.hashMap(GameEngine.readMap(mapName));
+
+      for (File traceFile : traceFiles) {
+        ReplayResult best = null;
+        for (int r = 0; r < repeats; ++r) {
+          ReplayResult result = replay(traceFile);
+          if (best == null || result.getReplayNanos() < best.getReplayNanos()) {
+            best = result;
+          }
+        }
+
+        StringBuilder line = new StringBuilder(traceFile.getName());
+        line.append(String.format(": %d turns, recorded %.3f ms, replayed %.3f ms", best.getNumTurns(),
+            best.getRecordedNanos() / 1e6, best.getReplayNanos() / 1e6));
+        if (mapHash != 0 && best.getMapHash() != 0 && best.getMapHash() != mapHash) {
+          line.append(", recorded on a different map");
+          failed = true;
+        }
+        if (best.getDivergedTurn() != 0) {
+          line.append(String.format(", diverged at turn %d (recorded %c, replayed %c)", best.getDivergedTurn(),
+              best.getRecordedAction(), best.getReplayedAction()));
+          failed = true;
+        }
+        System.out.println(line);
+      }
+    } catch (IOException e) {
+      System.out.println("Could not replay: " + e.getMessage());
+      System.exit(-1);
+    }
+
+    if (failed) {
+      System.exit(1);
+    }
+  }
+}
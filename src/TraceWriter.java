@@ -0,0 +1,125 @@
+import java.io.*;
+
+/**
+ * TraceWriter class records a game as a compact binary trace, so the game can
+ * later be fed back into the agent by TraceReplayer without an engine or a
+ * socket. A trace is a header followed by one record per turn:
+ *
+ * <pre>
+ * header: int MAGIC, byte VERSION, long map hash (0 if the map is unknown)
+ * turn:   24 view bytes (the 5*5 view in row order, without the centre),
+ *         1 action byte, decision time in nanoseconds as an unsigned varint
+ * </pre>
+ *
+ * A trace ends at the end of the stream.
+ *
+ * @author Yufan Zou
+ */
+public class TraceWriter implements Closeable {
+  final static int MAGIC = 0x54484754; // "THGT"
+  final static int VERSION = 1;
+
+  // Number of view bytes in each turn, every tile but the player's own
+  final static int VIEW_BYTES = GameEngine.VIEW_SIZE * GameEngine.VIEW_SIZE - 1;
+
+  private final DataOutputStream out;
+  private final byte[] buffer = new byte[VIEW_BYTES + 1 + 10];
+  private int numTurns;
+
+  /**
+   * TraceWriter class constructor. Writes the header straight away.
+   *
+   * @param out
+   *          stream to write the trace to, closed with this writer
+   * @param mapHash
+   *          hash of the map being played, as given by hashMap, or 0 if the
+   *          recorder cannot see the map
+   * @throws IOException
+   *           if the header cannot be written
+   */
+  public TraceWriter(OutputStream out, long mapHash) throws IOException {
+    this.out = new DataOutputStream(new BufferedOutputStream(out));
+    this.out.writeInt(MAGIC);
+    this.out.writeByte(VERSION);
+    this.out.writeLong(mapHash);
+  }
+
+  /**
+   * Records one turn.
+   *
+   * @param view
+   *          5*5 view the player was given
+   * @param action
+   *          action the player chose
+   * @param nanos
+   *          time the player took to choose it
+   * @throws IOException
+   *           if the turn cannot be written
+   */
+  public void writeTurn(char[][] view, char action, long nanos) throws IOException {
+    int n = 0;
+    for (int i = 0; i < GameEngine.VIEW_SIZE; ++i) {
+      for (int j = 0; j < GameEngine.VIEW_SIZE; ++j) {
+        if (i != 2 || j != 2) {
+          buffer[n++] = (byte) view[i][j];
+        }
+      }
+    }
+    buffer[n++] = (byte) action;
+
+    long value = Math.max(0, nanos);
+    while ((value & ~0x7FL) != 0) {
+      buffer[n++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[n++] = (byte) value;
+
+    out.write(buffer, 0, n);
+    ++numTurns;
+  }
+
+  /**
+   * Returns the number of turns recorded so far
+   *
+   * @return number of turns
+   */
+  public int getNumTurns() {
+    return numTurns;
+  }
+
+  /**
+   * Writes out anything buffered without closing the trace.
+   *
+   * @throws IOException
+   *           if the trace cannot be written
+   */
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+
+  /**
+   * Hashes the rows of a map (64-bit FNV-1a over every row, each followed by a
+   * newline), so a trace can be matched to the map it was recorded on.
+   *
+   * @param rows
+   *          rows of the map
+   * @return returns the hash of the map, never 0
+   */
+  public static long hashMap(char[][] rows) {
+    long hash = 0xcbf29ce484222325L;
+
+    for (char[] row : rows) {
+      for (char ch : row) {
+        hash = (hash ^ ch) * 0x100000001b3L;
+      }
+      hash = (hash ^ '\n') * 0x100000001b3L;
+    }
+
+    return hash == 0 ? 1 : hash;
+  }
+}
@@ -0,0 +1,456 @@
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+
+/**
+ * ViewChannel class is the socket protocol between Step and Agent. Each turn the
+ * engine sends the player's view as one 24-byte frame (the 5*5 view in row
+ * order, without the centre) and the player answers with one action byte. Frames
+ * are read and written whole through reusable buffers, and TCP_NODELAY is set
+ * so the single action byte is not held back waiting for more data.
+ *
+ * As an opt-in extension the player may instead send a batch of actions: a
+ * count byte from 1 to MAX_BATCH followed by that many action bytes. The engine
+ * applies them in order, stopping early at the first one that has no effect,
+ * and answers with one byte giving how many it applied and then the view after
+ * the last of them. A count byte cannot be mistaken for an action, since every
+ * action is a letter.
+ *
+ * The player may also ask, in place of an action, for views to be sent as
+ * ViewDelta frames from then on. The engine answers with the current view as
+ * the first such frame, without counting a move.
+ *
+ * @author Yufan Zou
+ */
+public class ViewChannel implements Closeable {
+  // Number of bytes in a view frame, every tile but the player's own
+  final static int FRAME_SIZE = GameEngine.VIEW_SIZE * GameEngine.VIEW_SIZE - 1;
+
+  // Largest number of actions in one batch
+  final static int MAX_BATCH = 31;
+
+  // Sent in place of an action to switch to delta encoded views
+  final static int DELTA_REQUEST = 0x7F;
+
+  private final SocketChannel channel;
+  private final ByteBuffer frame = ByteBuffer.allocateDirect(ViewDelta.MAX_FRAME_SIZE + 1);
+  private final char[][] engineView = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+
+  // Codec of delta encoded views, null while views are sent whole
+  private ViewDelta delta;
+  private int changedCells = ViewDelta.ALL_CHANGED;
+  private final ByteBuffer actionBuffer = ByteBuffer.allocateDirect(MAX_BATCH + 1);
+
+  /**
+   * ViewChannel class constructor.
+   *
+   * @param channel
+   *          connected socket channel, used in blocking mode
+   * @throws IOException
+   *           if the socket cannot be set up
+   */
+  public ViewChannel(SocketChannel channel) throws IOException {
+    this.channel = channel;
+    channel.configureBlocking(true);
+    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+  }
+
+  /**
+   * Connects to an engine listening on the given port, as the player.
+   *
+   * @param host
+   *          host the engine runs on
+   * @param port
+   *          port the engine listens on
+   * @return returns the connected channel
+   * @throws IOException
+   *           if the engine cannot be reached
+   */
+  public static ViewChannel connect(String host, int port) throws IOException {
+    return new ViewChannel(SocketChannel.open(new InetSocketAddress(host, port)));
+  }
+
+  /**
+   * Waits for one player to connect on the given port, as the engine.
+   *
+   * @param port
+   *          port to listen on
+   * @return returns the connected channel
+   * @throws IOException
+   *           if the port cannot be listened on
+   */
+  public static ViewChannel accept(int port) throws IOException {
+    try (ServerSocketChannel server = ServerSocketChannel.open()) {
+      server.bind(new InetSocketAddress(port));
+      return new ViewChannel(server.accept());
+    }
+  }
+
+  /**
+   * Sends the view to the player as one frame.
+   *
+   * @param view
+   *          5*5 view around the player
+   * @throws IOException
+   *           if the connection is lost
+   */
+  public void writeView(char[][] view) throws IOException {
+    frame.clear();
+    putView(view);
+    frame.flip();
+    while (frame.hasRemaining()) {
+      channel.write(frame);
+    }
+  }
+
+  /**
+   * Sends the engine's current view to the player, whole or as a delta
+   * depending on what the player asked for.
+   *
+   * @param engine
+   *          engine whose view to send
+   * @throws IOException
+   *           if the connection is lost
+   */
+  public void writeView(GameEngine engine) throws IOException {
+    if (delta == null) {
+      engine.observe(engineView);
+      writeView(engineView);
+      return;
+    }
+
+    frame.clear();
+    delta.encode(engine, frame);
+    frame.flip();
+    while (frame.hasRemaining()) {
+      channel.write(frame);
+    }
+  }
+
+  /**
+   * Answers a batch of actions with how many were applied and the engine's view
+   * after them, whole or as a delta depending on what the player asked for.
+   *
+   * @param numApplied
+   *          number of actions of the batch applied, from the start
+   * @param engine
+   *          engine whose view to send
+   * @throws IOException
+   *           if the connection is lost
+   */
+  public void writeBatchResult(int numApplied, GameEngine engine) throws IOException {
+    if (delta == null) {
+      engine.observe(engineView);
+      writeBatchResult(numApplied, engineView);
+      return;
+    }
+
+    frame.clear();
+    frame.put((byte) numApplied);
+    delta.encode(engine, frame);
+    frame.flip();
+    while (frame.hasRemaining()) {
+      channel.write(frame);
+    }
+  }
+
+  /**
+   * Switches the views sent from now on to delta frames, as the player asked.
+   */
+  public void startDelta() {
+    delta = new ViewDelta();
+  }
+
+  /**
+   * Asks the engine to send views as delta frames from now on. The engine
+   * answers with a view, to be read with readView.
+   *
+   * @throws IOException
+   *           if the connection is lost
+   */
+  public void requestDelta() throws IOException {
+    writeAction((char) DELTA_REQUEST);
+    delta = new ViewDelta();
+  }
+
+  /**
+   * Returns which cells of the last view read differ from what the view before
+   * it predicted, as a ViewDelta mask
+   *
+   * @return mask of changed cells, ViewDelta.ALL_CHANGED unless views are delta
+   *         encoded
+   */
+  public int getChangedCells() {
+    return changedCells;
+  }
+
+  /**
+   * Answers a batch of actions with how many were applied and the view after
+   * them, as one frame.
+   *
+   * @param numApplied
+   *          number of actions of the batch applied, from the start
+   * @param view
+   *          5*5 view around the player after the last applied action
+   * @throws IOException
+   *           if the connection is lost
+   */
+  public void writeBatchResult(int numApplied, char[][] view) throws IOException {
+    frame.clear();
+    frame.put((byte) numApplied);
+    putView(view);
+    frame.flip();
+    while (frame.hasRemaining()) {
+      channel.write(frame);
+    }
+  }
+
+  /**
+   * Copies the view into the frame buffer, every tile but the centre.
+   *
+   * @param view
+   *          5*5 view around the player
+   */
+  private void putView(char[][] view) {
+    for (int i = 0; i < GameEngine.VIEW_SIZE; ++i) {
+      for (int j = 0; j < GameEngine.VIEW_SIZE; ++j) {
+        if (i != 2 || j != 2) {
+          frame.put((byte) view[i][j]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Receives the next view frame from the engine.
+   *
+   * @param view
+   *          5*5 buffer to fill, reused from turn to turn; the centre is left
+   *          alone
+   * @return boolean value of whether a view was received, false once the engine
+   *         has closed the connection
+   * @throws IOException
+   *           if the connection is lost part way through a frame
+   */
+  public boolean readView(char[][] view) throws IOException {
+    if (delta != null) {
+      frame.clear();
+      if (!readDeltaFrame(0)) {
+        return false;
+      }
+      changedCells = delta.decode(frame, 0, view);
+      return true;
+    }
+
+    if (!readFrame(FRAME_SIZE)) {
+      return false;
+    }
+    getView(view);
+    return true;
+  }
+
+  /**
+   * Receives the engine's answer to a batch of actions.
+   *
+   * @param view
+   *          5*5 buffer to fill with the view after the last applied action
+   * @return returns the number of actions of the batch applied, or -1 once the
+   *         engine has closed the connection, as it does when the game ends
+   * @throws IOException
+   *           if the connection is lost part way through a frame
+   */
+  public int readBatchResult(char[][] view) throws IOException {
+    if (delta != null) {
+      frame.clear();
+      if (!readDeltaFrame(1)) {
+        return -1;
+      }
+      changedCells = delta.decode(frame, 1, view);
+      return frame.get(0) & 0xFF;
+    }
+
+    if (!readFrame(FRAME_SIZE + 1)) {
+      return -1;
+    }
+    int numApplied = frame.get() & 0xFF;
+    getView(view);
+    return numApplied;
+  }
+
+  /**
+   * Reads a delta frame into the frame buffer. The engine sends nothing more
+   * until it hears from the player, so the frame is read in as few reads as the
+   * network allows and only its own bytes can arrive.
+   *
+   * @param start
+   *          index at which the delta frame starts, after any bytes before it
+   * @return boolean value of whether the frame was read, false if the
+   *         connection was closed before any of it
+   * @throws IOException
+   *           if the connection is lost part way through the frame
+   */
+  private boolean readDeltaFrame(int start) throws IOException {
+    while (frame.position() < start || ViewDelta.remaining(frame, start) > 0) {
+      if (channel.read(frame) == -1) {
+        if (frame.position() == 0) {
+          return false;
+        }
+        throw new EOFException("Connection closed part way through a view");
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reads exactly the given number of bytes into the frame buffer.
+   *
+   * @param size
+   *          number of bytes to read
+   * @return boolean value of whether the bytes were read, false if the
+   *         connection was closed before any of them
+   * @throws IOException
+   *           if the connection is lost part way through the frame
+   */
+  private boolean readFrame(int size) throws IOException {
+    frame.clear();
+    frame.limit(size);
+    while (frame.hasRemaining()) {
+      if (channel.read(frame) == -1) {
+        if (frame.position() == 0) {
+          return false;
+        }
+        throw new EOFException("Connection closed part way through a view");
+      }
+    }
+    frame.flip();
+    return true;
+  }
+
+  /**
+   * Copies the frame buffer into the view, every tile but the centre.
+   *
+   * @param view
+   *          5*5 buffer to fill
+   */
+  private void getView(char[][] view) {
+    for (int i = 0; i < GameEngine.VIEW_SIZE; ++i) {
+      for (int j = 0; j < GameEngine.VIEW_SIZE; ++j) {
+        if (i != 2 || j != 2) {
+          view[i][j] = (char) (frame.get() & 0xFF);
+        }
+      }
+    }
+  }
+
+  /**
+   * Sends the player's action to the engine.
+   *
+   * @param action
+   *          the action char
+   * @throws IOException
+   *           if the connection is lost
+   */
+  public void writeAction(char action) throws IOException {
+    actionBuffer.clear();
+    actionBuffer.put((byte) action);
+    actionBuffer.flip();
+    while (actionBuffer.hasRemaining()) {
+      channel.write(actionBuffer);
+    }
+  }
+
+  /**
+   * Sends a batch of actions to the engine as one frame.
+   *
+   * @param actions
+   *          the actions, at least one and at most MAX_BATCH
+   * @throws IOException
+   *           if the connection is lost
+   */
+  public void writeBatch(char[] actions) throws IOException {
+    if (actions.length < 1 || actions.length > MAX_BATCH) {
+      throw new IllegalArgumentException("Batch of " + actions.length + " actions");
+    }
+
+    actionBuffer.clear();
+    actionBuffer.put((byte) actions.length);
+    for (char action : actions) {
+      actionBuffer.put((byte) action);
+    }
+    actionBuffer.flip();
+    while (actionBuffer.hasRemaining()) {
+      channel.write(actionBuffer);
+    }
+  }
+
+  /**
+   * Receives the player's next action, or the count byte of a batch.
+   *
+   * @return returns the action char or count byte, or -1 once the player has
+   *         closed the connection
+   * @throws IOException
+   *           if the connection is lost
+   */
+  public int readAction() throws IOException {
+    actionBuffer.clear();
+    actionBuffer.limit(1);
+    while (actionBuffer.hasRemaining()) {
+      if (channel.read(actionBuffer) == -1) {
+        return -1;
+      }
+    }
+    return actionBuffer.get(0) & 0xFF;
+  }
+
+  /**
+   * Indicates if a byte returned by readAction starts a batch
+   *
+   * @param ch
+   *          byte returned by readAction
+   * @return boolean value of if the byte is a batch count
+   */
+  public static boolean isBatchCount(int ch) {
+    return ch >= 1 && ch <= MAX_BATCH;
+  }
+
+  /**
+   * Indicates if a byte returned by readAction asks for delta encoded views
+   *
+   * @param ch
+   *          byte returned by readAction
+   * @return boolean value of if the byte is a delta request
+   */
+  public static boolean isDeltaRequest(int ch) {
+    return ch == DELTA_REQUEST;
+  }
+
+  /**
+   * Receives the actions of a batch whose count byte has been read.
+   *
+   * @param actions
+   *          buffer of at least count chars to fill
+   * @param count
+   *          number of actions in the batch
+   * @throws IOException
+   *           if the connection is lost part way through the batch
+   */
+  public void readBatch(char[] actions, int count) throws IOException {
+    actionBuffer.clear();
+    actionBuffer.limit(count);
+    while (actionBuffer.hasRemaining()) {
+      if (channel.read(actionBuffer) == -1) {
+        throw new EOFException("Connection closed part way through a batch");
+      }
+    }
+    actionBuffer.flip();
+    for (int i = 0; i < count; ++i) {
+      actions[i] = (char) (actionBuffer.get() & 0xFF);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
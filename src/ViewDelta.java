@@ -0,0 +1,322 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * ViewDelta class encodes each view sent to the player as the change from the
+ * view before it. Both ends keep the last view, and both can predict most of
+ * the next one from it: a turn only rotates the view and a step forward only
+ * shifts it, so at most five cells (plus the tile the player just left) are new.
+ * A frame gives how the view turned and moved, a mask of the cells that differ
+ * from the prediction, and those cells as 4-bit tile codes:
+ *
+ * <pre>
+ * delta: 1 byte rotation (0-3, counted in left turns)
+ *        1 byte movement in the old view, (rows + 8) &lt;&lt; 4 | (columns + 8)
+ *        3 bytes mask, bit n for the nth cell in row order without the centre
+ *        one 4-bit tile code per changed cell, low half of each byte first
+ * full:  1 byte FULL, then the 24 cells as plain chars
+ * </pre>
+ *
+ * A full frame is sent for the first view, and whenever a cell holds a tile
+ * with no code or the player moved too far for the movement byte.
+ *
+ * @author Yufan Zou
+ */
+public class ViewDelta {
+  // Mask with every cell of the view changed
+  final static int ALL_CHANGED = (1 << 24) - 1;
+
+  final static int FULL = 0x80;
+
+  // Largest frame, a full one
+  final static int MAX_FRAME_SIZE = 1 + ViewChannel.FRAME_SIZE;
+
+  // Tiles that can appear in a view, indexed by their 4-bit code
+  private final static String TILES = " *T-~akoO$d.";
+
+  private final static int SIZE = GameEngine.VIEW_SIZE;
+
+  private final char[][] prev = new char[SIZE][SIZE];
+  private final char[][] curr = new char[SIZE][SIZE];
+  private boolean havePrev;
+
+  // Engine's position and direction when prev was seen
+  private int prevRow, prevCol, prevDirn;
+
+  /**
+   * Forgets the last view, so the next frame is a full one.
+   */
+  public void reset() {
+    havePrev = false;
+  }
+
+  /**
+   * Encodes the engine's current view as a frame against the last view encoded.
+   *
+   * @param engine
+   *          engine whose view to encode
+   * @param out
+   *          buffer to put the frame in, with at least MAX_FRAME_SIZE bytes left
+   * @return returns the mask of the cells sent
+   */
+  public int encode(GameEngine engine, ByteBuffer out) {
+    engine.observe(curr);
+    int row = engine.getRow();
+    int col = engine.getCol();
+    int dirn = engine.getDirection();
+
+    int changed = -1;
+    if (havePrev) {
+      changed = encodeDelta((dirn - prevDirn) & 3, row - prevRow, col - prevCol, out);
+    }
+    if (changed == -1) {
+      changed = ALL_CHANGED;
+      out.put((byte) FULL);
+      for (int n = 0; n < ViewChannel.FRAME_SIZE; ++n) {
+        out.put((byte) curr[getRow(n)][getCol(n)]);
+      }
+    }
+
+    copyView(curr, prev);
+    havePrev = true;
+    prevRow = row;
+    prevCol = col;
+    prevDirn = dirn;
+    return changed;
+  }
+
+  /**
+   * Encodes curr as a delta against prev, unless a full frame would be needed.
+   *
+   * @param rotation
+   *          number of left turns since prev
+   * @param dRow
+   *          rows moved on the map since prev
+   * @param dCol
+   *          columns moved on the map since prev
+   * @param out
+   *          buffer to put the frame in
+   * @return returns the mask of the cells sent, or -1 if nothing was written
+   *         and a full frame is needed
+   */
+  private int encodeDelta(int rotation, int dRow, int dCol, ByteBuffer out) {
+    // Movement as seen in the old view, rows down and columns to the right
+    int moveRows = 0, moveCols = 0;
+    switch (prevDirn) {
+      case GameEngine.NORTH:
+        moveRows = dRow;
+        moveCols = dCol;
+        break;
+      case GameEngine.SOUTH:
+        moveRows = -dRow;
+        moveCols = -dCol;
+        break;
+      case GameEngine.EAST:
+        moveRows = -dCol;
+        moveCols = dRow;
+        break;
+      case GameEngine.WEST:
+        moveRows = dCol;
+        moveCols = -dRow;
+        break;
+    }
+    if (moveRows < -8 || moveRows > 7 || moveCols < -8 || moveCols > 7) {
+      return -1;
+    }
+
+    int changed = 0;
+    int numChanged = 0;
+    for (int n = 0; n < ViewChannel.FRAME_SIZE; ++n) {
+      char tile = curr[getRow(n)][getCol(n)];
+      if (tile != predict(n, rotation, moveRows, moveCols)) {
+        if (TILES.indexOf(tile) < 0) {
+          return -1;
+        }
+        changed |= 1 << n;
+        ++numChanged;
+      }
+    }
+
+    out.put((byte) rotation);
+    out.put((byte) ((moveRows + 8) << 4 | (moveCols + 8)));
+    out.put((byte) changed);
+    out.put((byte) (changed >>> 8));
+    out.put((byte) (changed >>> 16));
+
+    int packed = 0;
+    int numPacked = 0;
+    for (int n = 0; n < ViewChannel.FRAME_SIZE; ++n) {
+      if ((changed & 1 << n) != 0) {
+        packed |= TILES.indexOf(curr[getRow(n)][getCol(n)]) << (4 * (numPacked++ & 1));
+        if ((numPacked & 1) == 0) {
+          out.put((byte) packed);
+          packed = 0;
+        }
+      }
+    }
+    if ((numChanged & 1) != 0) {
+      out.put((byte) packed);
+    }
+
+    return changed;
+  }
+
+  /**
+   * Returns how many more bytes a frame needs once its first bytes are known.
+   *
+   * @param frame
+   *          the frame read so far, up to the buffer's position
+   * @param start
+   *          index of the frame's first byte in the buffer
+   * @return returns the number of bytes still to read, 0 or less once the frame
+   *         is complete
+   */
+  public static int remaining(ByteBuffer frame, int start) {
+    int length = frame.position() - start;
+    if (length <= 0) {
+      return 1 - length;
+    }
+    if ((frame.get(start) & 0xFF) == FULL) {
+      return 1 + ViewChannel.FRAME_SIZE - length;
+    }
+    if (length < 5) {
+      return 5 - length;
+    }
+    int changed = getMask(frame, start);
+    return 5 + (Integer.bitCount(changed) + 1) / 2 - length;
+  }
+
+  /**
+   * Decodes a complete frame against the last view decoded.
+   *
+   * @param frame
+   *          buffer holding the frame
+   * @param start
+   *          index of the frame's first byte in the buffer
+   * @param view
+   *          5*5 buffer to fill with the view; the centre is left alone
+   * @return returns the mask of the cells that were sent
+   * @throws IOException
+   *           if the frame is malformed or a delta arrives before any view
+   */
+  public int decode(ByteBuffer frame, int start, char[][] view) throws IOException {
+    int header = frame.get(start) & 0xFF;
+    int changed;
+
+    if (header == FULL) {
+      changed = ALL_CHANGED;
+      for (int n = 0; n < ViewChannel.FRAME_SIZE; ++n) {
+        curr[getRow(n)][getCol(n)] = (char) (frame.get(start + 1 + n) & 0xFF);
+      }
+    } else {
+      if (!havePrev || header > 3) {
+        throw new IOException("Malformed view delta");
+      }
+      int movement = frame.get(start + 1) & 0xFF;
+      int moveRows = (movement >>> 4) - 8;
+      int moveCols = (movement & 0xF) - 8;
+      changed = getMask(frame, start);
+
+      int numPacked = 0;
+      for (int n = 0; n < ViewChannel.FRAME_SIZE; ++n) {
+        char tile;
+        if ((changed & 1 << n) != 0) {
+          int code = (frame.get(start + 5 + numPacked / 2) >>> (4 * (numPacked & 1))) & 0xF;
+          ++numPacked;
+          if (code >= TILES.length()) {
+            throw new IOException("Malformed view delta");
+          }
+          tile = TILES.charAt(code);
+        } else {
+          tile = predict(n, header, moveRows, moveCols);
+          if (tile == 0) {
+            throw new IOException("Malformed view delta");
+          }
+        }
+        curr[getRow(n)][getCol(n)] = tile;
+      }
+    }
+
+    copyView(curr, prev);
+    copyView(curr, view);
+    havePrev = true;
+    return changed;
+  }
+
+  /**
+   * Predicts a cell of the new view from the old one.
+   *
+   * @param n
+   *          index of the cell in row order without the centre
+   * @param rotation
+   *          number of left turns since the old view
+   * @param moveRows
+   *          rows the player moved down the old view
+   * @param moveCols
+   *          columns the player moved right across the old view
+   * @return returns the predicted tile, or 0 if the old view did not show it
+   */
+  private char predict(int n, int rotation, int moveRows, int moveCols) {
+    int a = getRow(n) - 2;
+    int b = getCol(n) - 2;
+
+    // Turn the cell's offset back into the old view's frame
+    for (int k = 0; k < rotation; ++k) {
+      int t = a;
+      a = -b;
+      b = t;
+    }
+    int i = a + moveRows + 2;
+    int j = b + moveCols + 2;
+
+    if (i < 0 || i >= SIZE || j < 0 || j >= SIZE || (i == 2 && j == 2)) {
+      return 0;
+    }
+    return prev[i][j];
+  }
+
+  /**
+   * Returns the mask of a delta frame
+   *
+   * @param frame
+   *          buffer holding the frame
+   * @param start
+   *          index of the frame's first byte in the buffer
+   * @return the mask
+   */
+  private static int getMask(ByteBuffer frame, int start) {
+    return (frame.get(start + 2) & 0xFF) | (frame.get(start + 3) & 0xFF) << 8 | (frame.get(start + 4) & 0xFF) << 16;
+  }
+
+  /**
+   * Returns the row of the nth cell in row order without the centre
+   *
+   * @param n
+   *          index of the cell
+   * @return row of the cell
+   */
+  static int getRow(int n) {
+    return (n < 12 ? n : n + 1) / SIZE;
+  }
+
+  /**
+   * Returns the column of the nth cell in row order without the centre
+   *
+   * @param n
+   *          index of the cell
+   * @return column of the cell
+   */
+  static int getCol(int n) {
+    return (n < 12 ? n : n + 1) % SIZE;
+  }
+
+  private static void copyView(char[][] from, char[][] to) {
+    for (int i = 0; i < SIZE; ++i) {
+      for (int j = 0; j < SIZE; ++j) {
+        if (i != 2 || j != 2) {
+          to[i][j] = from[i][j];
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,50 @@
+import jdk.jfr.*;
+
+/**
+ * WaterCrossingEvent is the Java Flight Recorder event of one
+ * WaterCrossingSearch.search, the search behind MoveGenerator.testWithStone.
+ * A goal of (0, 0) with explore set means the search looked for the nearest
+ * tile that reveals unknown tiles.
+ *
+ * @author Yufan Zou
+ */
+@Name("treasurehunt.WaterCrossing")
+@Label("Water Crossing Search")
+@Category({ "Treasure Hunt", "Planner" })
+public class WaterCrossingEvent extends Event {
+  @Label("Start X")
+  int startX;
+
+  @Label("Start Y")
+  int startY;
+
+  @Label("Goal X")
+  int goalX;
+
+  @Label("Goal Y")
+  int goalY;
+
+  @Label("Explore")
+  boolean explore;
+
+  @Label("Has Key")
+  boolean hasKey;
+
+  @Label("Has Axe")
+  boolean hasAxe;
+
+  @Label("Stones Held")
+  int numStones;
+
+  @Label("Has Raft")
+  boolean hasRaft;
+
+  @Label("Route Found")
+  boolean found;
+
+  @Label("Stones Placed")
+  int numStonesNeeded;
+
+  @Label("Nodes Expanded")
+  int nodesExpanded;
+}
@@ -0,0 +1,549 @@
+import java.util.*;
+
+/**
+ * WaterCrossingSearch class finds the cheapest way to a goal across water,
+ * placing stepping stones or sailing on a raft the way the game allows: stones
+ * we hold are always placed first, a raft only launches once we have none left,
+ * and the raft is used up as soon as it lands. A raft comes from chopping a tree
+ * on the way. Routes that place fewer stones are cheaper, then routes that launch
+ * fewer rafts. Among those, the one whose stones can best be reused later is
+ * chosen (stones that leave the fewest water tiles between them and the primary
+ * targets, then the secondary targets), and after that the shortest.
+ *
+ * @author Yufan Zou
+ * @see "https://en.wikipedia.org/wiki/Dijkstra%27s_algorithm" Wikipedia Dijkstra's Algorithm
+ */
+public class WaterCrossingSearch {
+  // What we are doing with a raft in a search state
+  private final static int NO_RAFT = 0;
+  private final static int HAVE_RAFT = 1;
+  private final static int ON_RAFT = 2;
+
+  private Coordinate start, goal;
+  private Map<Coordinate, Character> map;
+  // Search states are (tile, stones placed, raft), packed into a long
+  private Map<Long, Long> origin;
+  private long goalState;
+
+  private List<Coordinate> primaryTargets;
+  private List<Coordinate> secondaryTargets;
+  private Map<Coordinate, Integer> primaryDistance;
+  private Map<Coordinate, Integer> secondaryDistance;
+
+  // Cost of a route is compared part by part, from most to least important: the
+  // stones it places, the rafts it launches, how far those stones are from the
+  // primary then secondary targets, and its number of moves. A part only counts
+  // when all the parts before it are equal, however large it gets.
+  private final static int STONES = 0;
+  private final static int RAFTS = 1;
+  private final static int PRIMARY = 2;
+  private final static int SECONDARY = 3;
+  private final static int MOVES = 4;
+  private final static int NUM_COST_PARTS = 5;
+
+  // Water distance used for targets that cannot be reached at all
+  private final static int UNREACHABLE_DISTANCE = 2 * State.MAX_SIZE;
+
+  private final static int SIZE = 2 * State.MAX_SIZE + 1;
+
+  private int numStonesNeeded;
+  private int nodesExpanded;
+
+  // Search kept between calls so a search cut short can carry on
+  private Map<Long, long[]> cost;
+  private PriorityQueue<long[]> openSet;
+  private Set<Long> closedSet;
+  private long startState;
+  private boolean complete;
+
+  // Stops the search early, null to always search to the end
+  private MoveDeadline deadline;
+
+  /**
+   * WaterCrossingSearch class constructor.
+   *
+   * @param map
+   *          internal view of the map
+   * @param start
+   *          starting coordinate
+   * @param goal
+   *          goal coordinate, or null to stop at the first tile (land or water)
+   *          that would reveal unknown tiles
+   */
+  public WaterCrossingSearch(Map<Coordinate, Character> map, Coordinate start, Coordinate goal) {
+    this.map = map;
+    this.start = start;
+    this.goal = goal;
+    this.origin = new HashMap<>();
+    this.primaryTargets = new ArrayList<>();
+    this.secondaryTargets = new ArrayList<>();
+    this.numStonesNeeded = -1;
+  }
+
+  /**
+   * Adds a point that we will want to reach later on, so stones are placed where
+   * they leave as little water as possible between us and it.
+   *
+   * @param target
+   *          point we want to reach later
+   * @param primary
+   *          whether this point matters more than the non-primary ones
+   */
+  public void addLaterTarget(Coordinate target, boolean primary) {
+    if (primary) {
+      primaryTargets.add(target);
+    } else {
+      secondaryTargets.add(target);
+    }
+  }
+
+  /**
+   * Lets the search be cut short once the move's deadline has passed. A search
+   * that was cut short carries on where it stopped the next time search is
+   * called, which should be with the same arguments and an unchanged map.
+   *
+   * @param deadline
+   *          deadline of the move being planned, or null for none
+   */
+  public void setDeadline(MoveDeadline deadline) {
+    this.deadline = deadline;
+  }
+
+  /**
+   * Indicates if the last search ran to the end rather than being cut short
+   *
+   * @return boolean value of if the search is complete
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  /**
+   * Searches for the cheapest route to the goal.
+   *
+   * @param hasKey
+   *          allows player to pass through doors if we have key
+   * @param hasAxe
+   *          allows player to pass through trees if we have axe, which also
+   *          gives us a raft
+   * @param maxStones
+   *          number of stepping stones we can place
+   * @param hasRaft
+   *          whether we already have a raft
+   * @param onRaft
+   *          whether we are sailing on that raft right now
+   * @return boolean value of whether the goal can be reached, false too if the
+   *         search was cut short
+   */
+  public boolean search(boolean hasKey, boolean hasAxe, int maxStones, boolean hasRaft, boolean onRaft) {
+    WaterCrossingEvent event = new WaterCrossingEvent();
+    event.begin();
+
+    if (openSet == null) {
+      primaryDistance = getWaterDistances(primaryTargets, hasKey, hasAxe);
+      secondaryDistance = getWaterDistances(secondaryTargets, hasKey, hasAxe);
+
+      cost = new HashMap<>();
+      // Entries are the cost parts followed by the state; stale entries are
+      // skipped once a state is closed
+      openSet = new PriorityQueue<>(10, WaterCrossingSearch::compareCosts);
+      closedSet = new HashSet<>();
+
+      startState = encodeState(start, 0, onRaft ? ON_RAFT : hasRaft ? HAVE_RAFT : NO_RAFT);
+      long[] startEntry = new long[NUM_COST_PARTS + 1];
+      startEntry[NUM_COST_PARTS] = startState;
+      cost.put(startState, startEntry);
+      openSet.add(startEntry);
+    }
+    complete = true;
+    int firstNode = nodesExpanded;
+
+    while (!openSet.isEmpty()) {
+      // Out of time, leave the rest of the search for the next call (each call
+      // still gets somewhere, however late it starts)
+      if (deadline != null && nodesExpanded - firstNode >= MoveDeadline.CHECK_INTERVAL
+          && nodesExpanded % MoveDeadline.CHECK_INTERVAL == 0 && deadline.isExpired()) {
+        deadline.cutShort();
+        complete = false;
+        return false;
+      }
+
+      long[] entry = openSet.remove();
+      long currState = entry[NUM_COST_PARTS];
+
+      if (!closedSet.add(currState)) {
+        continue;
+      }
+      ++nodesExpanded;
+
+      Coordinate currTile = getStateTile(currState);
+      int stonesPlaced = getStateStones(currState);
+      int raft = getStateRaft(currState);
+
+      if (isGoal(currTile, raft, currState == startState)) {
+        numStonesNeeded = stonesPlaced;
+        goalState = currState;
+        commitEvent(event, hasKey, hasAxe, maxStones, hasRaft || onRaft, true);
+        return true;
+      }
+
+      // For each adjacent tile of currTile (neighbours)
+      for (int i = 0; i < 4; i++) {
+        Coordinate neighbour = getNeighbour(currTile, i);
+        Character tile = map.get(neighbour);
+        if (tile == null) {
+          continue;
+        }
+
+        long[] tentativeCost = entry.clone();
+        ++tentativeCost[MOVES];
+        int nextStones = stonesPlaced;
+        int nextRaft = raft;
+
+        if (isWater(tile)) {
+          if (raft == ON_RAFT) {
+            // Keep sailing
+          } else if (stonesPlaced < maxStones) {
+            // Entering water means placing a stone on it
+            ++nextStones;
+            ++tentativeCost[STONES];
+            tentativeCost[PRIMARY] += primaryDistance.getOrDefault(neighbour, UNREACHABLE_DISTANCE);
+            tentativeCost[SECONDARY] += secondaryDistance.getOrDefault(neighbour, UNREACHABLE_DISTANCE);
+          } else if (raft == HAVE_RAFT) {
+            nextRaft = ON_RAFT;
+            ++tentativeCost[RAFTS];
+          } else {
+            continue; // would drown
+          }
+        } else if (!State.isTilePassable(tile, hasKey, hasAxe)) {
+          continue; // can not get to this tile
+        } else if (raft == ON_RAFT) {
+          // Only land where the raft is sure to be left behind
+          if (!endsRaft(tile)) {
+            continue;
+          }
+          nextRaft = NO_RAFT;
+        } else if (tile == 'T') {
+          // Chop the tree down first, which gives us a raft
+          ++tentativeCost[MOVES];
+          nextRaft = HAVE_RAFT;
+        }
+
+        long nextState = encodeState(neighbour, nextStones, nextRaft);
+        // ignore if not a cheaper route
+        if (closedSet.contains(nextState)
+            || (cost.containsKey(nextState) && compareCosts(tentativeCost, cost.get(nextState)) >= 0)) {
+          continue;
+        }
+
+        tentativeCost[NUM_COST_PARTS] = nextState;
+        origin.put(nextState, currState);
+        cost.put(nextState, tentativeCost);
+        openSet.add(tentativeCost);
+      }
+    }
+
+    // Failed search, no way across
+    commitEvent(event, hasKey, hasAxe, maxStones, hasRaft || onRaft, false);
+    return false;
+  }
+
+  /**
+   * Records a finished search with the flight recorder, if it is recording.
+   *
+   * @param event
+   *          event begun when the search started
+   * @param hasKey
+   *          whether the search could pass doors
+   * @param hasAxe
+   *          whether the search could pass trees
+   * @param maxStones
+   *          number of stepping stones the search could place
+   * @param hasRaft
+   *          whether the search started with a raft
+   * @param found
+   *          whether a route to the goal was found
+   */
+  private void commitEvent(WaterCrossingEvent event, boolean hasKey, boolean hasAxe, int maxStones, boolean hasRaft,
+      boolean found) {
+    if (event.shouldCommit()) {
+      event.startX = start.getX();
+      event.startY = start.getY();
+      event.explore = goal == null;
+      if (goal != null) {
+        event.goalX = goal.getX();
+        event.goalY = goal.getY();
+      }
+      event.hasKey = hasKey;
+      event.hasAxe = hasAxe;
+      event.numStones = maxStones;
+      event.hasRaft = hasRaft;
+      event.found = found;
+      event.numStonesNeeded = found ? numStonesNeeded : -1;
+      event.nodesExpanded = nodesExpanded;
+      event.commit();
+    }
+  }
+
+  /**
+   * Returns the number of nodes the last search expanded
+   *
+   * @return number of nodes expanded
+   */
+  public int getNodesExpanded() {
+    return nodesExpanded;
+  }
+
+  /**
+   * Returns the number of stones the found route places.
+   *
+   * @return number of stones, or -1 if no route was found
+   */
+  public int getNumStonesNeeded() {
+    return numStonesNeeded;
+  }
+
+  /**
+   * Returns the water tiles on the found route that need a stepping stone.
+   *
+   * @return returns the water tiles in the order they are crossed
+   */
+  public List<Coordinate> getStoneTiles() {
+    List<Coordinate> stoneTiles = new ArrayList<>();
+
+    if (numStonesNeeded == -1) {
+      return stoneTiles;
+    }
+
+    for (long u = goalState; origin.get(u) != null; u = origin.get(u)) {
+      if (getStateStones(u) > getStateStones(origin.get(u))) {
+        stoneTiles.add(0, getStateTile(u));
+      }
+    }
+
+    return stoneTiles;
+  }
+
+  /**
+   * Returns the found route from the goal back to (but not including) the start
+   *
+   * @return returns found path as a linked list from one node to another
+   */
+  public LinkedList<Coordinate> returnPath() {
+    LinkedList<Coordinate> sequence = new LinkedList<>();
+
+    if (numStonesNeeded == -1) {
+      return sequence;
+    }
+
+    for (long u = goalState; origin.get(u) != null; u = origin.get(u)) {
+      sequence.add(getStateTile(u));
+    }
+
+    return sequence;
+  }
+
+  /**
+   * Works out, for every tile, how many more water tiles would have to be entered
+   * after it to get to the nearest of the given targets. Found with a 0-1 breadth
+   * first search walking backwards from the targets.
+   *
+   * @param targets
+   *          points that we want to reach
+   * @param hasKey
+   *          allows player to pass through doors if we have key
+   * @param hasAxe
+   *          allows player to pass through trees if we have axe
+   * @return returns the water distance of every tile that can reach a target
+   */
+  private Map<Coordinate, Integer> getWaterDistances(List<Coordinate> targets, boolean hasKey, boolean hasAxe) {
+    Map<Coordinate, Integer> distance = new HashMap<>();
+    Deque<Coordinate> q = new ArrayDeque<>();
+
+    for (Coordinate target : targets) {
+      distance.put(target, 0);
+      q.add(target);
+    }
+
+    while (!q.isEmpty()) {
+      Coordinate currTile = q.removeFirst();
+      // Coming into this tile from a neighbour costs a stone if it is water
+      int step = isWater(map.get(currTile)) ? 1 : 0;
+      int nextDistance = distance.get(currTile) + step;
+
+      for (int i = 0; i < 4; i++) {
+        Coordinate neighbour = getNeighbour(currTile, i);
+        Character tile = map.get(neighbour);
+        if (tile == null || (!isWater(tile) && !State.isTilePassable(tile, hasKey, hasAxe))) {
+          continue;
+        }
+
+        if (distance.containsKey(neighbour) && distance.get(neighbour) <= nextDistance) {
+          continue;
+        }
+
+        distance.put(neighbour, nextDistance);
+        if (step == 0) {
+          q.addFirst(neighbour);
+        } else {
+          q.addLast(neighbour);
+        }
+      }
+    }
+
+    return distance;
+  }
+
+  /**
+   * Compares the costs of two routes part by part, from the stones they place
+   * down to their number of moves.
+   *
+   * @param one
+   *          cost parts of the first route
+   * @param two
+   *          cost parts of the second route
+   * @return returns a negative number if the first route is cheaper, zero if
+   *         they cost the same and a positive number otherwise
+   */
+  private static int compareCosts(long[] one, long[] two) {
+    return Arrays.compare(one, 0, NUM_COST_PARTS, two, 0, NUM_COST_PARTS);
+  }
+
+  /**
+   * Returns one of the four tiles next to the given tile
+   *
+   * @param tile
+   *          tile in the middle
+   * @param i
+   *          which neighbour, 0 right, 1 left, 2 up, 3 down
+   * @return returns coordinate of the neighbouring tile
+   */
+  private static Coordinate getNeighbour(Coordinate tile, int i) {
+    int neighbourX = tile.getX();
+    int neighbourY = tile.getY();
+
+    if (i == 0) {
+      // right tile
+      neighbourX++;
+    } else if (i == 1) {
+      // left tile
+      neighbourX--;
+    } else if (i == 2) {
+      // up tile
+      neighbourY++;
+    } else if (i == 3) {
+      // down tile
+      neighbourY--;
+    }
+
+    return new Coordinate(neighbourX, neighbourY);
+  }
+
+  /**
+   * Tests if the search can stop at a tile.
+   *
+   * @param tile
+   *          tile we are on
+   * @param raft
+   *          NO_RAFT, HAVE_RAFT or ON_RAFT
+   * @param isStart
+   *          whether this is the tile we started on
+   * @return boolean value of whether the tile is a goal
+   */
+  private boolean isGoal(Coordinate tile, int raft, boolean isStart) {
+    if (goal != null) {
+      return tile.equals(goal) && raft != ON_RAFT;
+    }
+
+    if (isStart) {
+      return false;
+    }
+
+    for (int x = -State.VIEW_RADIUS; x <= State.VIEW_RADIUS; ++x) {
+      for (int y = -State.VIEW_RADIUS; y <= State.VIEW_RADIUS; ++y) {
+        Character inView = map.get(new Coordinate(tile.getX() + x, tile.getY() + y));
+        if (inView != null && inView == State.COORDINATE_UNKNOWN) {
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Tests if landing on a tile from a raft leaves the raft behind. Other tiles
+   * that can be walked on are not landed on, to keep the raft accounting simple.
+   *
+   * @param tile
+   *          char representation of the tile
+   * @return boolean value of whether landing there ends the raft
+   */
+  private static boolean endsRaft(char tile) {
+    return tile == ' ' || tile == 'a' || tile == 'k' || tile == '$' || tile == 'O';
+  }
+
+  /**
+   * Packs a tile, the stones placed so far and the raft into one search state.
+   *
+   * @param tile
+   *          tile we are on
+   * @param stonesPlaced
+   *          number of stones placed so far
+   * @param raft
+   *          NO_RAFT, HAVE_RAFT or ON_RAFT
+   * @return returns the packed state
+   */
+  private static long encodeState(Coordinate tile, int stonesPlaced, int raft) {
+    long x = tile.getX() + State.MAX_SIZE;
+    long y = tile.getY() + State.MAX_SIZE;
+    return ((stonesPlaced * 3L + raft) * SIZE + x) * SIZE + y;
+  }
+
+  /**
+   * Returns the tile of a packed search state.
+   *
+   * @param state
+   *          packed state
+   * @return returns the coordinate of the tile
+   */
+  private static Coordinate getStateTile(long state) {
+    int x = (int) (state / SIZE % SIZE) - State.MAX_SIZE;
+    int y = (int) (state % SIZE) - State.MAX_SIZE;
+    return new Coordinate(x, y);
+  }
+
+  /**
+   * Returns the number of stones placed in a packed search state.
+   *
+   * @param state
+   *          packed state
+   * @return returns the number of stones placed
+   */
+  private static int getStateStones(long state) {
+    return (int) (state / SIZE / SIZE / 3);
+  }
+
+  /**
+   * Returns the raft part of a packed search state.
+   *
+   * @param state
+   *          packed state
+   * @return returns NO_RAFT, HAVE_RAFT or ON_RAFT
+   */
+  private static int getStateRaft(long state) {
+    return (int) (state / SIZE / SIZE % 3);
+  }
+
+  /**
+   * Tests if a tile is water that a stepping stone has to be placed on, including
+   * water that we have already planned to place a stone on.
+   *
+   * @param tile
+   *          char representation of the tile
+   * @return boolean value of whether the tile is water
+   */
+  private static boolean isWater(char tile) {
+    return tile == '~' || tile == State.COORDINATE_TEMPORARY_WATER;
+  }
+}
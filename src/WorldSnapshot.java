@@ -0,0 +1,109 @@
+import java.util.*;
+
+/**
+ * WorldSnapshot class is a frozen copy of what the planner's searches read from
+ * the internal state: the map, where the player stands and what they carry. It
+ * never changes after it is made, so any number of searches can read it from
+ * different threads at once while the real state moves on.
+ *
+ * @author Yufan Zou
+ */
+public class WorldSnapshot {
+  private final Map<Coordinate, Character> map;
+  private final Coordinate player;
+  private final int direction;
+  private final boolean hasKey;
+  private final boolean hasAxe;
+  private final int numSteppingStones;
+  private final boolean hasRaft;
+  private final boolean onRaft;
+
+  /**
+   * WorldSnapshot class constructor.
+   *
+   * @param state
+   *          internal state to copy
+   */
+  public WorldSnapshot(State state) {
+    this.map = Collections.unmodifiableMap(new HashMap<>(state.getMap()));
+    this.player = state.getPlayerCoordinate();
+    this.direction = state.getDirection();
+    this.hasKey = state.haveKey();
+    this.hasAxe = state.haveAxe();
+    this.numSteppingStones = state.getNumSteppingStones();
+    this.hasRaft = state.haveRaft();
+    this.onRaft = state.onRaft();
+  }
+
+  /**
+   * Returns the map as it was when the snapshot was taken
+   *
+   * @return read-only map of the board
+   */
+  public Map<Coordinate, Character> getMap() {
+    return map;
+  }
+
+  /**
+   * Returns where the player stood
+   *
+   * @return coordinate of the player
+   */
+  public Coordinate getPlayerCoordinate() {
+    return player;
+  }
+
+  /**
+   * Returns the direction the player faced
+   *
+   * @return one of State.UP, RIGHT, DOWN or LEFT
+   */
+  public int getDirection() {
+    return direction;
+  }
+
+  /**
+   * Indicates if the player had the key
+   *
+   * @return boolean value of if we have key
+   */
+  public boolean haveKey() {
+    return hasKey;
+  }
+
+  /**
+   * Indicates if the player had the axe
+   *
+   * @return boolean value of if we have axe
+   */
+  public boolean haveAxe() {
+    return hasAxe;
+  }
+
+  /**
+   * Returns the number of stepping stones the player held
+   *
+   * @return number of stones
+   */
+  public int getNumSteppingStones() {
+    return numSteppingStones;
+  }
+
+  /**
+   * Indicates if the player had a raft
+   *
+   * @return boolean value of if we have a raft
+   */
+  public boolean haveRaft() {
+    return hasRaft;
+  }
+
+  /**
+   * Indicates if the player was sailing on the raft
+   *
+   * @return boolean value of if we are on the raft
+   */
+  public boolean onRaft() {
+    return onRaft;
+  }
+}
@@ -0,0 +1,63 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that planning ahead (java Agent -s) plays every sample map exactly as
+ * the agent does without it, move for move.
+ *
+ * @author Yufan Zou
+ */
+public class SpeculationTest {
+  @Test
+  public void speculationPlaysTheSameGames() throws IOException {
+    File[] maps = new File("maps").listFiles((dir, name) -> name.endsWith(".in"));
+    assertTrue(maps.length > 0);
+
+    int numCommitted = 0;
+    for (File map : maps) {
+      String plain = play(map, new Agent(false));
+      Agent speculating = new Agent(true);
+      String speculated = play(map, speculating);
+      numCommitted += speculating.getNumCommitted();
+
+      assertEquals(plain.length(), speculated.length(), map + " moves");
+      assertEquals(plain, speculated, map + " actions");
+    }
+
+    // Otherwise the games would be the same for want of trying
+    assertTrue(numCommitted > 0);
+  }
+
+  /**
+   * Plays a map to the end the way Step and Agent do over a socket, letting the
+   * agent know each action has been sent before the engine applies it.
+   *
+   * @param map
+   *          map to play
+   * @param agent
+   *          agent to play it
+   * @return returns the actions taken, in order
+   * @throws IOException
+   *           if the map cannot be read
+   */
+  private static String play(File map, Agent agent) throws IOException {
+    GameEngine engine = new GameEngine();
+    engine.reset(GameEngine.readMap(map.getPath()));
+    char[][] view = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+    StringBuilder actions = new StringBuilder();
+
+    while (!engine.isOver() && engine.getNumMoves() < BatchRunner.DEFAULT_MAX_MOVES) {
+      engine.observe(view);
+      char action = agent.get_action(view, ViewDelta.ALL_CHANGED);
+      agent.action_sent();
+      actions.append(action);
+      engine.apply(action);
+    }
+
+    assertTrue(engine.isWon(), map + " not won");
+    return actions.toString();
+  }
+}
@@ -0,0 +1,141 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a trace written by TraceWriter reads back the same through
+ * TraceReader, and that a recorded game replays without diverging.
+ *
+ * @author Yufan Zou
+ */
+public class TraceWriterTest {
+  // Decision times around each length of the varint, and the extremes
+  private final static long[] NANOS = { 0, 1, 127, 128, 16383, 16384, 1L << 35, Long.MAX_VALUE };
+
+  @Test
+  public void turnsReadBackAsWritten() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (TraceWriter writer = new TraceWriter(bytes, 0x123456789ABCDEFL)) {
+      for (int turn = 0; turn < NANOS.length; ++turn) {
+        writer.writeTurn(makeView(turn), (char) ('a' + turn), NANOS[turn]);
+      }
+      assertEquals(NANOS.length, writer.getNumTurns());
+    }
+
+    char[][] view = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+    try (TraceReader reader = new TraceReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+      assertEquals(0x123456789ABCDEFL, reader.getMapHash());
+      for (int turn = 0; turn < NANOS.length; ++turn) {
+        assertTrue(reader.readTurn(view));
+        assertViewEquals(makeView(turn), view);
+        assertEquals((char) ('a' + turn), reader.getAction());
+        assertEquals(NANOS[turn], reader.getNanos());
+      }
+      assertFalse(reader.readTurn(view));
+      assertEquals(NANOS.length, reader.getNumTurns());
+    }
+  }
+
+  @Test
+  public void negativeTimeIsRecordedAsZero() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (TraceWriter writer = new TraceWriter(bytes, 0)) {
+      writer.writeTurn(makeView(0), 'f', -5);
+    }
+
+    try (TraceReader reader = new TraceReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+      assertTrue(reader.readTurn(new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE]));
+      assertEquals(0, reader.getNanos());
+    }
+  }
+
+  @Test
+  public void turnCutShortIsAnError() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (TraceWriter writer = new TraceWriter(bytes, 0)) {
+      writer.writeTurn(makeView(0), 'f', 1000);
+    }
+    byte[] cut = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 3);
+
+    try (TraceReader reader = new TraceReader(new ByteArrayInputStream(cut))) {
+      assertThrows(EOFException.class, () -> reader.readTurn(new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE]));
+    }
+  }
+
+  @Test
+  public void otherStreamsAreRejected() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    new TraceWriter(bytes, 0).close();
+    byte[] header = bytes.toByteArray();
+
+    byte[] badMagic = header.clone();
+    badMagic[0] ^= 1;
+    assertThrows(IOException.class, () -> new TraceReader(new ByteArrayInputStream(badMagic)));
+
+    byte[] badVersion = header.clone();
+    badVersion[4] = (byte) (TraceWriter.VERSION + 1);
+    assertThrows(IOException.class, () -> new TraceReader(new ByteArrayInputStream(badVersion)));
+  }
+
+  @Test
+  public void mapHashTellsMapsApart() throws IOException {
+    char[][] rows = GameEngine.readMap("maps/s0.in");
+    assertEquals(TraceWriter.hashMap(rows), TraceWriter.hashMap(GameEngine.readMap("maps/s0.in")));
+    assertNotEquals(TraceWriter.hashMap(rows), TraceWriter.hashMap(GameEngine.readMap("maps/s1.in")));
+    assertNotEquals(0, TraceWriter.hashMap(rows));
+  }
+
+  @Test
+  public void recordedGameReplays(@TempDir Path traceDir) throws IOException {
+    File map = new File("maps/s0.in");
+    BatchRunner.GameResult result = BatchRunner.play(map, BatchRunner.DEFAULT_MAX_MOVES, null, traceDir.toFile(),
+        false);
+
+    TraceReplayer.ReplayResult replay = TraceReplayer.replay(traceDir.resolve("s0.in.trace").toFile());
+    assertEquals(0, replay.getDivergedTurn());
+    assertEquals(result.getMoves(), replay.getNumTurns());
+    assertEquals(TraceWriter.hashMap(GameEngine.readMap(map.getPath())), replay.getMapHash());
+  }
+
+  /**
+   * Makes a view whose cells differ from turn to turn, some of them above 127 so
+   * the bytes must be read back unsigned.
+   *
+   * @param turn
+   *          number of the turn
+   * @return 5*5 view, with a blank centre
+   */
+  private static char[][] makeView(int turn) {
+    char[][] view = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+    for (int i = 0; i < GameEngine.VIEW_SIZE; ++i) {
+      for (int j = 0; j < GameEngine.VIEW_SIZE; ++j) {
+        view[i][j] = (char) ((turn * 37 + i * GameEngine.VIEW_SIZE + j) & 0xFF);
+      }
+    }
+    view[2][2] = ' ';
+    return view;
+  }
+
+  /**
+   * Checks that two views agree on every cell but the centre.
+   *
+   * @param expected
+   *          view written
+   * @param actual
+   *          view read back
+   */
+  static void assertViewEquals(char[][] expected, char[][] actual) {
+    for (int i = 0; i < GameEngine.VIEW_SIZE; ++i) {
+      for (int j = 0; j < GameEngine.VIEW_SIZE; ++j) {
+        if (i != 2 || j != 2) {
+          assertEquals(expected[i][j], actual[i][j], "cell " + i + "," + j);
+        }
+      }
+    }
+  }
+}
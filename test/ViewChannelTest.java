@@ -0,0 +1,173 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the framing of the Step/Agent protocol by sending frames from a player
+ * end of a loopback connection to an engine end and back.
+ *
+ * @author Yufan Zou
+ */
+public class ViewChannelTest {
+  private ViewChannel engine;
+  private ViewChannel player;
+
+  @BeforeEach
+  public void connect() throws IOException {
+    try (ServerSocketChannel server = ServerSocketChannel.open()) {
+      server.bind(new InetSocketAddress("localhost", 0));
+      player = new ViewChannel(SocketChannel.open(server.getLocalAddress()));
+      engine = new ViewChannel(server.accept());
+    }
+  }
+
+  @AfterEach
+  public void close() throws IOException {
+    player.close();
+    engine.close();
+  }
+
+  @Test
+  public void actionsAndViewsRoundTrip() throws IOException {
+    char[][] view = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+    for (char action : "lrfcuLRFCU".toCharArray()) {
+      player.writeAction(action);
+      int ch = engine.readAction();
+      assertEquals(action, ch);
+      assertFalse(ViewChannel.isBatchCount(ch));
+
+      engine.writeView(makeView(action));
+      assertTrue(player.readView(view));
+      TraceWriterTest.assertViewEquals(makeView(action), view);
+    }
+  }
+
+  @Test
+  public void everyBatchSizeRoundTrips() throws IOException {
+    char[] received = new char[ViewChannel.MAX_BATCH];
+    char[][] view = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+
+    for (int count = 1; count <= ViewChannel.MAX_BATCH; ++count) {
+      char[] actions = new char[count];
+      for (int i = 0; i < count; ++i) {
+        actions[i] = "lrfcu".charAt((count + i) % 5);
+      }
+      player.writeBatch(actions);
+
+      int ch = engine.readAction();
+      assertEquals(count, ch);
+      assertTrue(ViewChannel.isBatchCount(ch));
+      engine.readBatch(received, ch);
+      for (int i = 0; i < count; ++i) {
+        assertEquals(actions[i], received[i]);
+      }
+
+      // Applying all of the batch, or stopping part way
+      int numApplied = count % 2 == 0 ? count : count / 2;
+      engine.writeBatchResult(numApplied, makeView((char) count));
+      assertEquals(numApplied, player.readBatchResult(view));
+      TraceWriterTest.assertViewEquals(makeView((char) count), view);
+    }
+  }
+
+  @Test
+  public void batchCountsCannotBeActions() {
+    assertFalse(ViewChannel.isBatchCount(0));
+    assertTrue(ViewChannel.isBatchCount(1));
+    assertTrue(ViewChannel.isBatchCount(ViewChannel.MAX_BATCH));
+    assertFalse(ViewChannel.isBatchCount(ViewChannel.MAX_BATCH + 1));
+    for (char action = 'A'; action <= 'z'; ++action) {
+      assertFalse(ViewChannel.isBatchCount(action));
+    }
+  }
+
+  @Test
+  public void batchesOutOfRangeAreRefused() {
+    assertThrows(IllegalArgumentException.class, () -> player.writeBatch(new char[0]));
+    assertThrows(IllegalArgumentException.class, () -> player.writeBatch(new char[ViewChannel.MAX_BATCH + 1]));
+  }
+
+  @Test
+  public void deltaRequestSwitchesToDeltaViews() throws IOException {
+    assertFalse(ViewChannel.isBatchCount(ViewChannel.DELTA_REQUEST));
+    for (char action = 'A'; action <= 'z'; ++action) {
+      assertFalse(ViewChannel.isDeltaRequest(action));
+    }
+
+    GameEngine game = new GameEngine();
+    game.reset(GameEngine.readMap("maps/s0.in"));
+    char[][] expected = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+    char[][] view = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+
+    player.requestDelta();
+    int ch = engine.readAction();
+    assertEquals(0x7F, ch);
+    assertTrue(ViewChannel.isDeltaRequest(ch));
+    engine.startDelta();
+    engine.writeView(game);
+    assertTrue(player.readView(view));
+    assertEquals(ViewDelta.ALL_CHANGED, player.getChangedCells());
+    game.observe(expected);
+    TraceWriterTest.assertViewEquals(expected, view);
+
+    for (char action : "frflf".toCharArray()) {
+      player.writeAction(action);
+      game.apply((char) engine.readAction());
+      engine.writeView(game);
+      assertTrue(player.readView(view));
+      assertNotEquals(ViewDelta.ALL_CHANGED, player.getChangedCells());
+      game.observe(expected);
+      TraceWriterTest.assertViewEquals(expected, view);
+    }
+
+    char[] actions = "rrff".toCharArray();
+    char[] received = new char[actions.length];
+    player.writeBatch(actions);
+    engine.readBatch(received, engine.readAction());
+    for (char action : received) {
+      game.apply(action);
+    }
+    engine.writeBatchResult(actions.length, game);
+    assertEquals(actions.length, player.readBatchResult(view));
+    game.observe(expected);
+    TraceWriterTest.assertViewEquals(expected, view);
+  }
+
+  @Test
+  public void closedEngineEndsTheGame() throws IOException {
+    engine.close();
+    assertFalse(player.readView(new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE]));
+    assertEquals(-1, player.readBatchResult(new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE]));
+  }
+
+  @Test
+  public void closedPlayerEndsTheGame() throws IOException {
+    player.close();
+    assertEquals(-1, engine.readAction());
+  }
+
+  /**
+   * Makes a view of plain tiles that differs with the seed.
+   *
+   * @param seed
+   *          char to vary the view by
+   * @return 5*5 view, with a blank centre
+   */
+  static char[][] makeView(char seed) {
+    String tiles = " *T-~akoO$d.";
+    char[][] view = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+    for (int i = 0; i < GameEngine.VIEW_SIZE; ++i) {
+      for (int j = 0; j < GameEngine.VIEW_SIZE; ++j) {
+        view[i][j] = tiles.charAt((seed + i * GameEngine.VIEW_SIZE + j) % tiles.length());
+      }
+    }
+    view[2][2] = ' ';
+    return view;
+  }
+}
@@ -0,0 +1,140 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that every view of a game encoded by ViewDelta decodes back to the view
+ * the engine shows, and that the frames say how long they are.
+ *
+ * @author Yufan Zou
+ */
+public class ViewDeltaTest {
+  @Test
+  public void everyViewOfEveryMapRoundTrips() throws IOException {
+    File[] maps = new File("maps").listFiles((dir, name) -> name.endsWith(".in"));
+    assertTrue(maps.length > 0);
+
+    for (File map : maps) {
+      GameEngine engine = new GameEngine();
+      engine.reset(GameEngine.readMap(map.getPath()));
+      Agent agent = new Agent();
+      ViewDelta encoder = new ViewDelta();
+      ViewDelta decoder = new ViewDelta();
+      ByteBuffer frame = ByteBuffer.allocate(ViewDelta.MAX_FRAME_SIZE);
+      char[][] expected = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+      char[][] view = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+      int numDeltas = 0;
+
+      while (!engine.isOver() && engine.getNumMoves() < BatchRunner.DEFAULT_MAX_MOVES) {
+        frame.clear();
+        int sent = encoder.encode(engine, frame);
+        int size = frame.position();
+        if ((frame.get(0) & 0xFF) != ViewDelta.FULL) {
+          ++numDeltas;
+        } else {
+          assertEquals(ViewDelta.ALL_CHANGED, sent);
+        }
+
+        ByteBuffer received = readByteByByte(frame, 0, size);
+        assertEquals(sent, decoder.decode(received, 0, view), map + " move " + engine.getNumMoves());
+        engine.observe(expected);
+        TraceWriterTest.assertViewEquals(expected, view);
+
+        engine.apply(agent.get_action(view, sent));
+      }
+
+      assertTrue(numDeltas > engine.getNumMoves() / 2, map + " sent " + numDeltas + " deltas");
+    }
+  }
+
+  @Test
+  public void framesAfterABatchCountRoundTrip() throws IOException {
+    GameEngine engine = new GameEngine();
+    engine.reset(GameEngine.readMap("maps/s0.in"));
+    ViewDelta encoder = new ViewDelta();
+    ViewDelta decoder = new ViewDelta();
+    ByteBuffer frame = ByteBuffer.allocate(1 + ViewDelta.MAX_FRAME_SIZE);
+    char[][] expected = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+    char[][] view = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+
+    for (char action : "frflfrrf".toCharArray()) {
+      frame.clear();
+      frame.put((byte) 1);
+      encoder.encode(engine, frame);
+      int size = frame.position();
+
+      ByteBuffer received = readByteByByte(frame, 1, size);
+      decoder.decode(received, 1, view);
+      engine.observe(expected);
+      TraceWriterTest.assertViewEquals(expected, view);
+
+      engine.apply(action);
+    }
+  }
+
+  @Test
+  public void firstFrameAfterResetIsFull() throws IOException {
+    GameEngine engine = new GameEngine();
+    engine.reset(GameEngine.readMap("maps/s0.in"));
+    ViewDelta encoder = new ViewDelta();
+    ByteBuffer frame = ByteBuffer.allocate(ViewDelta.MAX_FRAME_SIZE);
+
+    encoder.encode(engine, frame);
+    assertEquals(ViewDelta.FULL, frame.get(0) & 0xFF);
+    assertEquals(ViewDelta.MAX_FRAME_SIZE, frame.position());
+
+    frame.clear();
+    engine.apply('l');
+    encoder.encode(engine, frame);
+    assertNotEquals(ViewDelta.FULL, frame.get(0) & 0xFF);
+
+    frame.clear();
+    encoder.reset();
+    encoder.encode(engine, frame);
+    assertEquals(ViewDelta.FULL, frame.get(0) & 0xFF);
+  }
+
+  @Test
+  public void malformedDeltasAreRefused() {
+    char[][] view = new char[GameEngine.VIEW_SIZE][GameEngine.VIEW_SIZE];
+    ByteBuffer delta = ByteBuffer.wrap(new byte[] { 0, (byte) 0x88, 0, 0, 0 });
+    assertThrows(IOException.class, () -> new ViewDelta().decode(delta, 0, view));
+
+    ViewDelta decoder = new ViewDelta();
+    byte[] full = new byte[ViewDelta.MAX_FRAME_SIZE];
+    Arrays.fill(full, (byte) ' ');
+    full[0] = (byte) ViewDelta.FULL;
+    assertDoesNotThrow(() -> decoder.decode(ByteBuffer.wrap(full), 0, view));
+    ByteBuffer badRotation = ByteBuffer.wrap(new byte[] { 4, (byte) 0x88, 0, 0, 0 });
+    assertThrows(IOException.class, () -> decoder.decode(badRotation, 0, view));
+  }
+
+  /**
+   * Copies a frame one byte at a time, as if each byte came in a read of its
+   * own, checking that ViewDelta.remaining asks for more until the frame is
+   * complete and for nothing once it is.
+   *
+   * @param frame
+   *          buffer holding the frame
+   * @param start
+   *          index of the frame's first byte in the buffer
+   * @param size
+   *          index just past the frame's last byte
+   * @return returns a buffer holding the bytes copied, positioned after them
+   */
+  private static ByteBuffer readByteByByte(ByteBuffer frame, int start, int size) {
+    ByteBuffer received = ByteBuffer.allocate(size);
+    for (int i = 0; i < size; ++i) {
+      if (i >= start) {
+        assertTrue(ViewDelta.remaining(received, start) > 0, "frame ended after " + (i - start) + " bytes");
+      }
+      received.put(frame.get(i));
+    }
+    assertEquals(0, ViewDelta.remaining(received, start), "frame of " + (size - start) + " bytes");
+    return received;
+  }
+}